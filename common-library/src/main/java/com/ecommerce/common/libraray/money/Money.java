@@ -0,0 +1,75 @@
+package com.ecommerce.common.libraray.money;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money held as a count of minor units (cents), so sums and line totals are plain
+ * {@code long} arithmetic instead of {@link BigDecimal} allocations.
+ * <p>
+ * The shop has a single currency with {@value #SCALE} decimals. On the wire an amount is still a
+ * JSON number such as {@code 12.50}, exactly as when the DTOs carried {@code BigDecimal}.
+ * Arithmetic fails with {@link ArithmeticException} on overflow instead of wrapping.
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Converts a decimal amount. Trailing zeros past {@value #SCALE} decimals are fine; an amount
+     * finer than a minor unit, such as {@code 1.005}, is rejected with
+     * {@link IllegalArgumentException} rather than rounded.
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        BigDecimal exact;
+        try {
+            exact = amount.setScale(SCALE, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Amount " + amount.toPlainString() + " has more than " + SCALE + " decimals");
+        }
+        return ofMinor(exact.unscaledValue().longValueExact());
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(int quantity) {
+        return ofMinor(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.common.libraray.product.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a multi-get lookup. Ids that could not be resolved are reported
+ * in {@code missingIds} instead of failing the whole request.
+ */
+@Data
+public class ProductBatchResponseDTO {
+
+    private List<ProductResponseDTO> products = new ArrayList<>();
+    private List<Long> missingIds = new ArrayList<>();
+}
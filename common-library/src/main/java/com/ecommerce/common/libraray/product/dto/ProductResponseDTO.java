@@ -1,8 +1,8 @@
 package com.ecommerce.common.libraray.product.dto;
 
+import com.ecommerce.common.libraray.money.Money;
 import lombok.Data;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -11,7 +11,7 @@ public class ProductResponseDTO {
     private Long id;
     private String name;
     private String description;
-    private BigDecimal price;
+    private Money price;
     private Integer stockQuantity;
     private String category;
     private String imageUrl;
@@ -0,0 +1,29 @@
+package com.ecommerce.common.libraray.product.event;
+
+import lombok.Getter;
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+
+/**
+ * Broadcast over Spring Cloud Bus whenever product-service changes a product,
+ * so that other services can drop what they cached about it.
+ */
+@Getter
+public class ProductChangedEvent extends RemoteApplicationEvent {
+
+    public enum ChangeType { CREATED, UPDATED, DELETED }
+
+    private Long productId;
+    private ChangeType changeType;
+
+    // Required by Jackson when the event is read back from the bus
+    @SuppressWarnings("unused")
+    public ProductChangedEvent() {
+    }
+
+    public ProductChangedEvent(Object source, String originService, Long productId, ChangeType changeType) {
+        // A null destination addresses every service on the bus
+        super(source, originService, DEFAULT_DESTINATION_FACTORY.getDestination(null));
+        this.productId = productId;
+        this.changeType = changeType;
+    }
+}
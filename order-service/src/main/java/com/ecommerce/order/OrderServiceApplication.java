@@ -1,9 +1,13 @@
 package com.ecommerce.order;
 
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.order.cache.CartChangedEvent;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.bus.jackson.RemoteApplicationEventScan;
 
 @SpringBootApplication
+@RemoteApplicationEventScan(basePackageClasses = {ProductChangedEvent.class, CartChangedEvent.class})
 public class OrderServiceApplication {
 
     public static void main(String[] args) {
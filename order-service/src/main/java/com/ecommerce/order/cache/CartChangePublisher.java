@@ -0,0 +1,28 @@
+package com.ecommerce.order.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile("!reactive")
+public class CartChangePublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final String originService;
+    private final String applicationName;
+
+    public CartChangePublisher(ApplicationEventPublisher eventPublisher,
+                               @Value("${spring.cloud.bus.id:${spring.application.name}}") String originService,
+                               @Value("${spring.application.name}") String applicationName) {
+        this.eventPublisher = eventPublisher;
+        this.originService = originService;
+        this.applicationName = applicationName;
+    }
+
+    // Handled here as well as on every other instance of this service
+    public void publish(Long userId, Long cartId, Long version) {
+        eventPublisher.publishEvent(new CartChangedEvent(this, originService, applicationName, userId, cartId, version));
+    }
+}
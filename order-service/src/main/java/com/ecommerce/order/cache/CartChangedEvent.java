@@ -0,0 +1,30 @@
+package com.ecommerce.order.cache;
+
+import lombok.Getter;
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+
+/**
+ * Broadcast over Spring Cloud Bus to every order-service instance when a cart changed, so each of
+ * them fences or drops what its own {@link CartResponseCache} holds for the user.
+ */
+@Getter
+public class CartChangedEvent extends RemoteApplicationEvent {
+
+    private Long userId;
+    // The cart and version written; both null when the user's cached cart is simply gone
+    private Long cartId;
+    private Long version;
+
+    // Required by Jackson when the event is read back from the bus
+    @SuppressWarnings("unused")
+    public CartChangedEvent() {
+    }
+
+    public CartChangedEvent(Object source, String originService, String destinationService, Long userId, Long cartId,
+                            Long version) {
+        super(source, originService, DEFAULT_DESTINATION_FACTORY.getDestination(destinationService));
+        this.userId = userId;
+        this.cartId = cartId;
+        this.version = version;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.order.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class CartChangedEventListener {
+
+    private final CartResponseCache cartResponseCache;
+
+    @EventListener
+    public void onCartChanged(CartChangedEvent event) {
+        cartResponseCache.changed(event.getUserId(), event.getCartId(), event.getVersion());
+    }
+}
@@ -0,0 +1,193 @@
+package com.ecommerce.order.cache;
+
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.dto.CartResponseDTO;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.mapper.CartMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Bounded cache of cart responses ({@code GET /api/cart/{userId}}), kept as serialized JSON keyed by
+ * user id.
+ * <p>
+ * Reads fill it on a miss; {@link com.ecommerce.order.service.CartService} writes the new cart
+ * through once a mutation has committed, never before, so a rolled-back change is never served.
+ * Mutations that do not load the cart leave a fence instead: the new version without a body, which
+ * forces the next read to the database. Every entry carries the cart id and version, and an entry is
+ * only replaced by a newer version of the same cart, so a reader or writer that loaded the cart before
+ * a concurrent commit cannot put the older cart back. An entry for a different cart of the user, as
+ * after a move between shards, is dropped instead: which of the two is current is not known here.
+ * <p>
+ * Every committed write is also broadcast as a {@link CartChangedEvent}, which leaves the same fence
+ * on the other instances. Their entries expire after {@code ttl} as well, in case a broadcast is
+ * lost. Meters: {@code cart.response-cache.gets} (tagged {@code result=hit|miss}),
+ * {@code cart.response-cache.stale-puts} and {@code cart.response-cache.size}.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class CartResponseCache {
+
+    /**
+     * A cached cart: the version it was serialized at, and the response body, or null for a fence.
+     */
+    public record CachedCart(Long cartId, Long version, byte[] json) {
+    }
+
+    private final CartMapper cartMapper;
+    private final ObjectMapper objectMapper;
+    private final CartChangePublisher cartChangePublisher;
+    private final Cache<Long, CachedCart> cache;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stalePuts;
+
+    public CartResponseCache(CartMapper cartMapper, ObjectMapper objectMapper, CartChangePublisher cartChangePublisher,
+                             CartProperties properties, MeterRegistry meterRegistry) {
+        this.cartMapper = cartMapper;
+        this.objectMapper = objectMapper;
+        this.cartChangePublisher = cartChangePublisher;
+
+        CartProperties.ResponseCache config = properties.getResponseCache();
+        this.cache = config.isEnabled()
+                ? Caffeine.newBuilder().maximumSize(config.getMaxEntries()).expireAfterWrite(config.getTtl()).build()
+                : null;
+
+        this.hits = Counter.builder("cart.response-cache.gets").tag("result", "hit")
+                .description("Cart reads answered from the response cache, or not")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cart.response-cache.gets").tag("result", "miss")
+                .description("Cart reads answered from the response cache, or not")
+                .register(meterRegistry);
+        this.stalePuts = Counter.builder("cart.response-cache.stale-puts")
+                .description("Carts not cached because a newer version already was")
+                .register(meterRegistry);
+        if (cache != null) {
+            Gauge.builder("cart.response-cache.size", cache, Cache::estimatedSize)
+                    .description("Carts and fences in the response cache")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    // Empty on a miss, including when only a fence is cached
+    public Optional<CachedCart> get(Long userId) {
+        if (cache == null) {
+            return Optional.empty();
+        }
+        CachedCart cached = cache.getIfPresent(userId);
+        if (cached == null || cached.json() == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cached);
+    }
+
+    // A cart just read from the database
+    public void putLoaded(Long userId, Long cartId, Long version, CartResponseDTO response) {
+        if (cache != null) {
+            offer(userId, cartId, version, response);
+        }
+    }
+
+    // The cart a mutation returned; cached once the surrounding transaction, if any, has committed
+    public void put(Cart cart) {
+        if (cache != null && cart != null) {
+            CartResponseDTO response = cartMapper.toResponseDTO(cart);
+            afterCommit(() -> {
+                offer(cart.getUserId(), cart.getId(), cart.getVersion(), response);
+                cartChangePublisher.publish(cart.getUserId(), cart.getId(), cart.getVersion());
+            });
+        }
+    }
+
+    // A mutation that did not load the cart: reads go to the database until they see this version
+    public void fence(Long userId, Long cartId, Long version) {
+        if (cache != null) {
+            afterCommit(() -> {
+                merge(userId, new CachedCart(cartId, version, null));
+                cartChangePublisher.publish(userId, cartId, version);
+            });
+        }
+    }
+
+    /**
+     * A {@link CartChangedEvent}, from this instance or another: fences the written version, or drops
+     * the entry when the event names no cart. This instance's own write is already cached by then.
+     */
+    public void changed(Long userId, Long cartId, Long version) {
+        if (cache == null) {
+            return;
+        }
+        if (cartId == null || version == null) {
+            cache.invalidate(userId);
+        } else {
+            merge(userId, new CachedCart(cartId, version, null));
+        }
+    }
+
+    public void invalidate(Long userId) {
+        if (cache != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    private void offer(Long userId, Long cartId, Long version, CartResponseDTO response) {
+        try {
+            merge(userId, new CachedCart(cartId, version, objectMapper.writeValueAsBytes(response)));
+        } catch (JsonProcessingException ex) {
+            // Only costs the next read a database round trip
+            log.warn("Could not cache the cart of user {}", userId, ex);
+            cache.invalidate(userId);
+        }
+    }
+
+    private void merge(Long userId, CachedCart offered) {
+        cache.asMap().merge(userId, offered, (current, next) -> {
+            if (!next.cartId().equals(current.cartId())) {
+                // Versions of two different carts say nothing about which is newer; the next read decides
+                return null;
+            }
+            if (next.version() > current.version()) {
+                return next;
+            }
+            if (next.version() < current.version()) {
+                stalePuts.increment();
+                return current;
+            }
+            // Same version: a body fills a fence, anything else is already there
+            return current.json() == null ? next : current;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.ecommerce.order.cache;
+
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ProductChangedEventListener {
+
+    private final ProductNearCache productNearCache;
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // Newly created products cannot be cached yet
+        if (event.getChangeType() != ProductChangedEvent.ChangeType.CREATED) {
+            productNearCache.invalidate(event.getProductId());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.order.cache;
+
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.client.ProductBatchLoader;
+import com.ecommerce.order.config.ProductClientProperties;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded local copy of product data for the add-to-cart path.
+ * <p>
+ * Entries expire after {@code ttl} and are invalidated as soon as product-service broadcasts a
+ * {@code ProductChangedEvent}. In stale-while-revalidate mode an entry older than {@code ttl} is
+ * still returned while a background reload runs; if that reload fails the old value stays until
+ * {@code ttl + staleGrace}, so carts keep working through short product-service outages.
+ * <p>
+ * Loads are asynchronous and go through {@link ProductBatchLoader}, so cache misses are batched too
+ * and no caller blocks inside the cache's own locks. Hit, miss and eviction counts are published
+ * under the {@code cache.*} meters with {@code cache=product-near-cache}.
+ */
+@Slf4j
+@Component
+public class ProductNearCache {
+
+    private final ProductBatchLoader productBatchLoader;
+    private final AsyncLoadingCache<Long, ProductResponseDTO> cache;
+
+    public ProductNearCache(ProductBatchLoader productBatchLoader, ProductClientProperties properties, MeterRegistry meterRegistry) {
+        this.productBatchLoader = productBatchLoader;
+
+        ProductClientProperties.Cache config = properties.getCache();
+        if (!config.isEnabled()) {
+            this.cache = null;
+            return;
+        }
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .recordStats();
+        if (config.isStaleWhileRevalidate()) {
+            builder.refreshAfterWrite(config.getTtl())
+                    .expireAfterWrite(config.getTtl().plus(config.getStaleGrace()));
+        } else {
+            builder.expireAfterWrite(config.getTtl());
+        }
+        // A null result (product not found) is not stored
+        this.cache = builder.buildAsync((productId, executor) -> productBatchLoader.load(productId));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-near-cache");
+    }
+
+    /**
+     * @return the product, or {@code null} if product-service does not know it
+     */
+    public ProductResponseDTO getProductById(Long productId) {
+        if (cache == null) {
+            return productBatchLoader.getProductById(productId);
+        }
+        try {
+            return cache.get(productId).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    // Seeds the cache with data fetched through another path (e.g. a batched cart refresh)
+    public void put(ProductResponseDTO product) {
+        if (cache != null && product != null) {
+            cache.put(product.getId(), CompletableFuture.completedFuture(product));
+        }
+    }
+
+    public void invalidate(Long productId) {
+        if (cache != null) {
+            cache.synchronous().invalidate(productId);
+            log.debug("Invalidated cached product {}", productId);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecommerce.order.client;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Leaves out the instance a hedged request must not go to, so the hedge lands on a different
+ * replica than the attempt it races. With a single instance left the list is returned unchanged.
+ */
+public class HedgeAwareServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    public HedgeAwareServiceInstanceListSupplier(ServiceInstanceListSupplier delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return delegate.get();
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        Object avoid = avoidedInstance(request);
+        if (avoid == null) {
+            return delegate.get(request);
+        }
+        return delegate.get(request).map(instances -> {
+            List<ServiceInstance> others = instances.stream()
+                    .filter(instance -> !avoid.equals(InstanceLatencyTracker.instanceOf(instance)))
+                    .toList();
+            return others.isEmpty() ? instances : others;
+        });
+    }
+
+    private static Object avoidedInstance(Request<?> request) {
+        if (request != null && request.getContext() instanceof RequestDataContext context
+                && context.getClientRequest() != null) {
+            return context.getClientRequest().getAttributes().get(ProductServiceHedgingFilter.AVOID_INSTANCE_ATTRIBUTE);
+        }
+        return null;
+    }
+}
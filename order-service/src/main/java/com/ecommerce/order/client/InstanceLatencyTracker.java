@@ -0,0 +1,150 @@
+package com.ecommerce.order.client;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Response times and in-flight requests per service instance ("host:port"), fed by {@link #filter()}
+ * and read by {@link LatencyAwareLoadBalancer}.
+ * <p>
+ * Latency is an exponentially-decayed moving average: a sample's weight depends on how much time
+ * passed since the previous one, so an instance that recovers (or degrades) is noticed within about
+ * one {@code decay} period regardless of its request rate.
+ * <p>
+ * A failed call (an error, or a 5xx answer) counts as taking at least {@code failurePenalty}, so an
+ * instance that fails fast does not look fast. The cost of an instance that has not answered for a
+ * while shrinks by the same decay: an instance avoided for being slow or failing gets a request again
+ * after a few {@code decay} periods, and that request measures whether it has recovered.
+ */
+public class InstanceLatencyTracker {
+
+    private final ConcurrentMap<String, InstanceStats> instances = new ConcurrentHashMap<>();
+    private final double decayNanos;
+    private final long defaultLatencyNanos;
+    private final long failurePenaltyNanos;
+    private final LongSupplier clock;
+
+    /**
+     * @param decay          time constant of the moving average
+     * @param defaultLatency latency assumed for an instance that has not answered yet, so a new
+     *                       instance gets a fair share instead of every request at once
+     * @param failurePenalty latency recorded at least for a call that failed
+     */
+    public InstanceLatencyTracker(Duration decay, Duration defaultLatency, Duration failurePenalty) {
+        this(decay, defaultLatency, failurePenalty, System::nanoTime);
+    }
+
+    InstanceLatencyTracker(Duration decay, Duration defaultLatency, Duration failurePenalty, LongSupplier clock) {
+        this.decayNanos = decay.toNanos();
+        this.defaultLatencyNanos = defaultLatency.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Measures every exchange against the instance it was sent to. Must be registered after the
+     * load-balancer filter, where the request URL names the chosen instance.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.defer(() -> {
+            InstanceStats stats = statsOf(instanceOf(request));
+            long start = clock.getAsLong();
+            AtomicBoolean serverError = new AtomicBoolean();
+            stats.inFlight.incrementAndGet();
+            // Cancelled attempts (hedge losers) release their slot too and count the time they ran
+            return next.exchange(request)
+                    .doOnNext(response -> serverError.set(response.statusCode().is5xxServerError()))
+                    .doFinally(signal -> {
+                        long now = clock.getAsLong();
+                        long latency = signal == SignalType.ON_ERROR || serverError.get()
+                                ? Math.max(now - start, failurePenaltyNanos)
+                                : now - start;
+                        stats.inFlight.decrementAndGet();
+                        stats.observe(latency, now, decayNanos);
+                    });
+        });
+    }
+
+    /**
+     * Expected cost of sending one more request: average latency, discounted by the time since an idle
+     * instance last answered, times the requests it would queue behind.
+     */
+    public double costOf(String instance) {
+        InstanceStats stats = instances.get(instance);
+        if (stats == null) {
+            return defaultLatencyNanos;
+        }
+        Ewma ewma = stats.ewma.get();
+        int inFlight = stats.inFlight.get();
+        if (!ewma.hasSample()) {
+            return (double) defaultLatencyNanos * (inFlight + 1);
+        }
+        // Only an instance with nothing outstanding is idle; one that stopped answering is not
+        double latency = inFlight == 0 ? ewma.idleDecayed(clock.getAsLong(), decayNanos) : ewma.nanos();
+        return latency * (inFlight + 1);
+    }
+
+    // As last measured, without the discount for idle time
+    public Duration averageLatencyOf(String instance) {
+        InstanceStats stats = instances.get(instance);
+        return stats == null || !stats.ewma.get().hasSample()
+                ? Duration.ofNanos(defaultLatencyNanos)
+                : Duration.ofNanos(stats.ewma.get().nanos());
+    }
+
+    public int inFlightOf(String instance) {
+        InstanceStats stats = instances.get(instance);
+        return stats == null ? 0 : stats.inFlight.get();
+    }
+
+    public static String instanceOf(ClientRequest request) {
+        return request.url().getHost() + ":" + request.url().getPort();
+    }
+
+    public static String instanceOf(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private InstanceStats statsOf(String instance) {
+        return instances.computeIfAbsent(instance, key -> new InstanceStats());
+    }
+
+    private static final class InstanceStats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicReference<Ewma> ewma = new AtomicReference<>(Ewma.EMPTY);
+
+        // Lock-free so callers on event-loop threads never block
+        void observe(long latencyNanos, long now, double decayNanos) {
+            ewma.updateAndGet(current -> current.with(latencyNanos, now, decayNanos));
+        }
+    }
+
+    private record Ewma(long nanos, long stamp, boolean hasSample) {
+
+        static final Ewma EMPTY = new Ewma(0, 0, false);
+
+        Ewma with(long sample, long now, double decayNanos) {
+            if (!hasSample) {
+                return new Ewma(sample, now, true);
+            }
+            double weight = Math.exp(-Math.max(0, now - stamp) / decayNanos);
+            return new Ewma(Math.round(nanos * weight + sample * (1 - weight)), now, true);
+        }
+
+        double idleDecayed(long now, double decayNanos) {
+            return nanos * Math.exp(-Math.max(0, now - stamp) / decayNanos);
+        }
+    }
+}
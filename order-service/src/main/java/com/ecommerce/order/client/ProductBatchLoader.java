@@ -0,0 +1,202 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.config.ProductClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces concurrent single-product lookups into batched calls to product-service.
+ * <p>
+ * The first lookup of a batch opens a short window; every lookup that arrives before the window
+ * closes (or before the batch is full) rides along in the same {@code /api/products/batch} call.
+ * Lookups for an id that is already queued or on the wire share that result instead of asking again.
+ * A missing product completes with {@code null}.
+ */
+@Slf4j
+@Component
+public class ProductBatchLoader implements DisposableBean {
+
+    private final ProductClient productClient;
+    private final ProductClientProperties.Batching config;
+
+    // Everything waiting for a result, queued or dispatched, keyed by product id
+    private final Map<Long, CompletableFuture<ProductResponseDTO>> inFlight = new ConcurrentHashMap<>();
+
+    // ReentrantLock rather than synchronized so virtual threads are not pinned while queueing
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CompletableFuture<ProductResponseDTO>> pending = new LinkedHashMap<>();
+    private long pendingSince;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("product-batch-timer").daemon().factory());
+    private final ExecutorService dispatcher = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("product-batch-", 0).factory());
+
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+    private final Counter sharedLookups;
+
+    public ProductBatchLoader(ProductClient productClient, ProductClientProperties properties, MeterRegistry meterRegistry) {
+        this.productClient = productClient;
+        this.config = properties.getBatching();
+        this.batchSize = DistributionSummary.builder("product.client.batch.size")
+                .description("Distinct product ids sent per batched lookup")
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("product.client.batch.wait")
+                .description("Time the oldest lookup of a batch waited before the batch was sent")
+                .register(meterRegistry);
+        this.sharedLookups = Counter.builder("product.client.batch.shared")
+                .description("Lookups answered by a request already queued or in flight for the same id")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Blocking convenience for callers on the servlet path.
+     * Unwraps the async failure so callers can keep handling {@link WebClientResponseException} directly.
+     */
+    public ProductResponseDTO getProductById(Long productId) {
+        try {
+            return load(productId).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public CompletableFuture<ProductResponseDTO> load(Long productId) {
+        if (!config.isEnabled()) {
+            return CompletableFuture.supplyAsync(() -> fetchSingle(productId), dispatcher);
+        }
+
+        CompletableFuture<ProductResponseDTO> existing = inFlight.get(productId);
+        if (existing != null) {
+            sharedLookups.increment();
+            return existing;
+        }
+
+        Map<Long, CompletableFuture<ProductResponseDTO>> fullBatch = null;
+        long fullBatchSince = 0;
+        CompletableFuture<ProductResponseDTO> future;
+
+        lock.lock();
+        try {
+            future = inFlight.get(productId);
+            if (future != null) {
+                sharedLookups.increment();
+                return future;
+            }
+            future = new CompletableFuture<>();
+            inFlight.put(productId, future);
+            if (pending.isEmpty()) {
+                pendingSince = System.nanoTime();
+            }
+            pending.put(productId, future);
+
+            if (pending.size() >= config.getMaxBatchSize()) {
+                fullBatch = pending;
+                fullBatchSince = pendingSince;
+                pending = new LinkedHashMap<>();
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, config.getWindow().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch, fullBatchSince);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<Long, CompletableFuture<ProductResponseDTO>> batch;
+        long since;
+        lock.lock();
+        try {
+            scheduledFlush = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            since = pendingSince;
+            pending = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(batch, since);
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<ProductResponseDTO>> batch, long since) {
+        batchWait.record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+        batchSize.record(batch.size());
+        dispatcher.execute(() -> execute(batch));
+    }
+
+    private void execute(Map<Long, CompletableFuture<ProductResponseDTO>> batch) {
+        try {
+            ProductBatchResponseDTO response = productClient.getProductsByIds(new ArrayList<>(batch.keySet()));
+            Map<Long, ProductResponseDTO> found = new LinkedHashMap<>();
+            response.getProducts().forEach(p -> found.put(p.getId(), p));
+            batch.forEach((id, future) -> complete(id, future, found.get(id), null));
+        } catch (RuntimeException ex) {
+            log.warn("Batched lookup of {} products failed", batch.size(), ex);
+            batch.forEach((id, future) -> complete(id, future, null, ex));
+        }
+    }
+
+    private void complete(Long id, CompletableFuture<ProductResponseDTO> future, ProductResponseDTO product, Throwable error) {
+        // Remove first so a lookup arriving after completion starts a fresh request
+        inFlight.remove(id, future);
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(product);
+        }
+    }
+
+    private ProductResponseDTO fetchSingle(Long productId) {
+        try {
+            return productClient.getProductById(productId);
+        } catch (WebClientResponseException.NotFound ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        dispatcher.shutdown();
+        List<CompletableFuture<ProductResponseDTO>> abandoned = new ArrayList<>(inFlight.values());
+        abandoned.forEach(f -> f.cancel(false));
+    }
+}
@@ -1,12 +1,23 @@
 package com.ecommerce.order.client;
 
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
 import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.service.annotation.GetExchange;
 import org.springframework.web.service.annotation.HttpExchange;
 
+import java.util.Collection;
+
 @HttpExchange("/api/products")
 public interface ProductClient {
+
+    // product-service rejects batches larger than this
+    int MAX_BATCH_SIZE = 100;
+
     @GetExchange("/{id}")
     ProductResponseDTO getProductById(@PathVariable Long id);
+
+    @GetExchange("/batch")
+    ProductBatchResponseDTO getProductsByIds(@RequestParam Collection<Long> ids);
 }
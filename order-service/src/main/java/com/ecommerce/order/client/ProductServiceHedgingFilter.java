@@ -0,0 +1,226 @@
+package com.ecommerce.order.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedges GETs to product-service: if the first attempt has not answered after the current hedge
+ * delay (a percentile of recent attempt latencies), an identical second attempt is sent and
+ * whichever answers first wins; the other one is cancelled.
+ * <p>
+ * The second attempt asks the load balancer to avoid the instance the first one went to (see
+ * {@link HedgeAwareServiceInstanceListSupplier}), which needs {@link #instanceRecorder()} to sit
+ * after the load-balancer filter. Hedges are paid for from a budget that every request tops up by
+ * a fixed ratio, so they add at most that fraction of extra load beyond a small initial burst.
+ * Other methods are never hedged, since they may not be idempotent.
+ */
+public class ProductServiceHedgingFilter implements ExchangeFilterFunction {
+
+    // Request attribute: "host:port" the load balancer should not pick for this attempt
+    public static final String AVOID_INSTANCE_ATTRIBUTE = ProductServiceHedgingFilter.class.getName() + ".avoidInstance";
+    // Request attribute: where the instance recorder leaves the "host:port" an attempt went to
+    private static final String CHOSEN_INSTANCE_ATTRIBUTE = ProductServiceHedgingFilter.class.getName() + ".chosenInstance";
+
+    private final HedgeBudget budget;
+    private final LatencyWindow latencies;
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter skipped;
+
+    public ProductServiceHedgingFilter(Settings settings, MeterRegistry meterRegistry) {
+        this.budget = new HedgeBudget(settings.budgetRatio(), settings.maxBurst());
+        this.latencies = new LatencyWindow(settings.windowSize(), settings.minSamples(), settings.initialDelay());
+        this.percentile = settings.percentile();
+        this.minDelay = settings.minDelay();
+        this.maxDelay = settings.maxDelay();
+        this.fired = Counter.builder("product.client.hedges").tag("outcome", "fired")
+                .description("Hedged GETs to product-service").register(meterRegistry);
+        this.won = Counter.builder("product.client.hedges").tag("outcome", "won")
+                .description("Hedged GETs to product-service").register(meterRegistry);
+        this.skipped = Counter.builder("product.client.hedges").tag("outcome", "budget_exhausted")
+                .description("Hedged GETs to product-service").register(meterRegistry);
+        Gauge.builder("product.client.hedge.delay", this, filter -> filter.currentDelay().toMillis())
+                .baseUnit("milliseconds")
+                .description("Time a GET to product-service waits before it is hedged")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param percentile   latency percentile (0..1) used as the hedge delay
+     * @param minDelay     lower bound of the delay, so a fast tail does not turn every call into two
+     * @param maxDelay     upper bound of the delay, so a slow tail still gets hedged in time
+     * @param initialDelay delay used until {@code minSamples} latencies have been seen
+     * @param windowSize   number of recent latencies the percentile is taken from
+     * @param budgetRatio  hedges allowed per request, e.g. 0.05 for at most 5% extra load
+     * @param maxBurst     hedges that may be fired back to back when the budget is full
+     */
+    public record Settings(double percentile, Duration minDelay, Duration maxDelay, Duration initialDelay,
+                           int windowSize, int minSamples, double budgetRatio, int maxBurst) {
+    }
+
+    /**
+     * Must be registered after the load-balancer filter, where the request URL names the chosen instance.
+     */
+    public static ExchangeFilterFunction instanceRecorder() {
+        return (request, next) -> {
+            request.attribute(CHOSEN_INSTANCE_ATTRIBUTE)
+                    .map(AtomicReference.class::cast)
+                    .ifPresent(chosen -> chosen.set(InstanceLatencyTracker.instanceOf(request)));
+            return next.exchange(request);
+        };
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.method() != HttpMethod.GET) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            budget.deposit();
+            AtomicReference<String> primaryInstance = new AtomicReference<>();
+            ClientRequest primaryRequest = ClientRequest.from(request)
+                    .attribute(CHOSEN_INSTANCE_ATTRIBUTE, primaryInstance)
+                    .build();
+            Mono<Attempt> primary = timed(next.exchange(primaryRequest)).map(response -> new Attempt(response, false));
+
+            Mono<Attempt> hedge = Mono.delay(currentDelay())
+                    .flatMap(tick -> {
+                        if (!budget.tryWithdraw()) {
+                            skipped.increment();
+                            return Mono.never();
+                        }
+                        fired.increment();
+                        ClientRequest.Builder hedgeRequest = ClientRequest.from(request);
+                        if (primaryInstance.get() != null) {
+                            hedgeRequest.attribute(AVOID_INSTANCE_ATTRIBUTE, primaryInstance.get());
+                        }
+                        return timed(next.exchange(hedgeRequest.build())).map(response -> new Attempt(response, true));
+                    })
+                    // A failed hedge leaves the outcome to the first attempt
+                    .onErrorResume(ex -> Mono.never());
+
+            // The first signal wins, so an error of the first attempt is not masked by waiting for a hedge
+            return Mono.firstWithSignal(primary, hedge)
+                    .doOnNext(winner -> {
+                        if (winner.hedged()) {
+                            won.increment();
+                        }
+                    })
+                    .map(Attempt::response);
+        });
+    }
+
+    Duration currentDelay() {
+        Duration delay = latencies.percentile(percentile);
+        if (delay.compareTo(minDelay) < 0) {
+            return minDelay;
+        }
+        return delay.compareTo(maxDelay) > 0 ? maxDelay : delay;
+    }
+
+    // Records how long an attempt took; a cancelled attempt records the time it ran, a lower bound of its latency
+    private Mono<ClientResponse> timed(Mono<ClientResponse> attempt) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt
+                    .doOnSuccess(response -> latencies.record(System.nanoTime() - start))
+                    .doOnCancel(() -> latencies.record(System.nanoTime() - start));
+        });
+    }
+
+    private record Attempt(ClientResponse response, boolean hedged) {
+    }
+
+    /**
+     * Token bucket in thousandths of a hedge: each request deposits {@code ratio}, each hedge costs one.
+     */
+    static final class HedgeBudget {
+
+        private static final long UNIT = 1000;
+
+        private final long deposit;
+        private final long capacity;
+        private final AtomicLong balance;
+
+        HedgeBudget(double ratio, int maxBurst) {
+            this.deposit = Math.round(ratio * UNIT);
+            this.capacity = Math.max(1, maxBurst) * UNIT;
+            this.balance = new AtomicLong(capacity);
+        }
+
+        void deposit() {
+            balance.accumulateAndGet(deposit, (current, add) -> Math.min(capacity, current + add));
+        }
+
+        boolean tryWithdraw() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < UNIT) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - UNIT));
+            return true;
+        }
+    }
+
+    /**
+     * Ring buffer of recent latencies. The percentile is recomputed from a sorted copy at most once
+     * per {@code size / 16} samples, so reading it on every request stays cheap.
+     */
+    static final class LatencyWindow {
+
+        private final long[] samples;
+        private final int minSamples;
+        private final int recomputeEvery;
+        private final AtomicInteger recorded = new AtomicInteger();
+        private final long initialNanos;
+        private volatile int computedAt = -1;
+        private volatile long[] sorted = new long[0];
+
+        LatencyWindow(int size, int minSamples, Duration initial) {
+            this.samples = new long[size];
+            this.minSamples = Math.min(minSamples, size);
+            this.recomputeEvery = Math.max(1, size / 16);
+            this.initialNanos = initial.toNanos();
+        }
+
+        void record(long nanos) {
+            int n = recorded.getAndIncrement();
+            samples[Math.floorMod(n, samples.length)] = nanos;
+        }
+
+        Duration percentile(double p) {
+            int n = recorded.get();
+            if (n < minSamples) {
+                return Duration.ofNanos(initialNanos);
+            }
+            long[] snapshot = sorted;
+            if (n - computedAt >= recomputeEvery || snapshot.length == 0) {
+                // Racy copy: a slot being overwritten just yields a slightly different sample
+                snapshot = Arrays.copyOf(samples, Math.min(n, samples.length));
+                Arrays.sort(snapshot);
+                sorted = snapshot;
+                computedAt = n;
+            }
+            int index = (int) Math.ceil(p * snapshot.length) - 1;
+            return Duration.ofNanos(snapshot[Math.max(0, Math.min(index, snapshot.length - 1))]);
+        }
+    }
+}
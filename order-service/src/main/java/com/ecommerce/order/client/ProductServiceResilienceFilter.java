@@ -0,0 +1,56 @@
+package com.ecommerce.order.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Guards every call to product-service with a bulkhead (caps concurrent calls, rejects the excess at
+ * once) inside a circuit breaker (fails fast while product-service is unhealthy, then lets a few
+ * probe calls through before closing again).
+ * <p>
+ * 5xx responses and transport errors, including response timeouts ({@code clients.product.timeouts}),
+ * count as failures; 4xx responses such as an unknown product do not. Rejected calls fail with
+ * {@link CallNotPermittedException} or {@link BulkheadFullException} and are counted in
+ * {@code product.client.rejected}.
+ */
+public class ProductServiceResilienceFilter implements ExchangeFilterFunction {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Counter rejectedByBreaker;
+    private final Counter rejectedByBulkhead;
+
+    public ProductServiceResilienceFilter(CircuitBreaker circuitBreaker, Bulkhead bulkhead, MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.rejectedByBreaker = Counter.builder("product.client.rejected").tag("reason", "circuit_open")
+                .description("Calls to product-service rejected without being sent")
+                .register(meterRegistry);
+        this.rejectedByBulkhead = Counter.builder("product.client.rejected").tag("reason", "bulkhead_full")
+                .description("Calls to product-service rejected without being sent")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return next.exchange(request)
+                .flatMap(response -> response.statusCode().is5xxServerError()
+                        ? response.<ClientResponse>createError()
+                        : Mono.just(response))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnError(CallNotPermittedException.class, ex -> rejectedByBreaker.increment())
+                .doOnError(BulkheadFullException.class, ex -> rejectedByBulkhead.increment());
+    }
+}
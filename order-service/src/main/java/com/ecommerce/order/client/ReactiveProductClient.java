@@ -0,0 +1,18 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.service.annotation.GetExchange;
+import org.springframework.web.service.annotation.HttpExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ProductClient} for the reactive profile. Backed by the same
+ * {@code productWebClient}, so calls go through the same breaker, bulkhead, timeouts and load balancer.
+ */
+@HttpExchange("/api/products")
+public interface ReactiveProductClient {
+
+    @GetExchange("/{id}")
+    Mono<ProductResponseDTO> getProductById(@PathVariable Long id);
+}
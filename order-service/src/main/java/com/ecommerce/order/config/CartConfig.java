@@ -0,0 +1,9 @@
+package com.ecommerce.order.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CartProperties.class)
+public class CartConfig {
+}
@@ -0,0 +1,132 @@
+package com.ecommerce.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "cart")
+public class CartProperties {
+
+    // Add items with a single PostgreSQL upsert instead of loading and saving the whole cart
+    private boolean upsertFastPath = true;
+
+    private Concurrency concurrency = new Concurrency();
+
+    @Data
+    public static class Concurrency {
+        // Attempts per cart mutation before a version or uniqueness conflict is reported as 409
+        private int maxAttempts = 5;
+        // Base delay between attempts; grows linearly and is jittered
+        private Duration backoff = Duration.ofMillis(10);
+    }
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    @Data
+    public static class WriteBehind {
+        // Keep active carts in memory and persist them asynchronously; trades durability for throughput
+        private boolean enabled = false;
+        // Dirty carts are flushed at least this often
+        private Duration flushInterval = Duration.ofSeconds(1);
+        // ...and immediately once this many carts are dirty
+        private int dirtyThreshold = 500;
+        // Carts written per database transaction
+        private int batchSize = 100;
+        // Clean carts beyond this count are evicted, least recently used first
+        private int maxCarts = 100_000;
+    }
+
+    private Idempotency idempotency = new Idempotency();
+
+    @Data
+    public static class Idempotency {
+        // Honour the Idempotency-Key header on cart write endpoints
+        private boolean enabled = true;
+        // How long a completed response can be replayed
+        private Duration ttl = Duration.ofHours(24);
+        // Completed responses kept in memory; older ones are replayed from the database
+        private int maxEntries = 10_000;
+        // Larger response bodies are only kept in the database
+        private int maxCachedBodyBytes = 8 * 1024;
+        // How long a duplicate waits for the first execution before getting 409
+        private Duration waitTimeout = Duration.ofSeconds(10);
+        // A claim left behind by a crashed instance is taken over after this long
+        private Duration claimTimeout = Duration.ofMinutes(1);
+        // Polling interval while another instance executes the same key
+        private Duration pollInterval = Duration.ofMillis(50);
+        // Expired records are deleted this often
+        private Duration purgeInterval = Duration.ofHours(1);
+    }
+
+    private Sweeper sweeper = new Sweeper();
+
+    @Data
+    public static class Sweeper {
+        // Move abandoned carts to the archive tables; they come back on the user's next visit
+        private boolean enabled = true;
+        // Carts not updated for this long are archived
+        private Duration maxIdle = Duration.ofDays(30);
+        // Time between two sweeps
+        private Duration interval = Duration.ofHours(1);
+        // Carts scanned, and at most archived, per transaction
+        private int batchSize = 500;
+        // Pause after every batch, so a sweep never competes with requests for long
+        private Duration pauseBetweenBatches = Duration.ofMillis(200);
+        // Only count and log what would be archived
+        private boolean dryRun = false;
+    }
+
+    private ResponseCache responseCache = new ResponseCache();
+
+    @Data
+    public static class ResponseCache {
+        // Serve GET /api/cart/{userId} from serialized responses kept in memory
+        private boolean enabled = true;
+        // Carts kept, least recently used evicted first
+        private int maxEntries = 100_000;
+        // Upper bound on how long a write made through another instance goes unseen here if its bus event is lost
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    private Sharding sharding = new Sharding();
+
+    @Data
+    public static class Sharding {
+        // Spread carts over several databases by consistent hashing of the user id
+        private boolean enabled = false;
+        // Connection settings per shard name; the pools also take spring.datasource.hikari.*
+        private Map<String, Shard> shards = new LinkedHashMap<>();
+        // Holds everything that is not a cart (idempotency records); defaults to the first shard
+        private String defaultShard;
+        // Shards that own users; defaults to all of them. Leave one out to drain it
+        private List<String> ring = new ArrayList<>();
+        // The ring before the last change; while set, carts are moved to their new owner
+        private List<String> previousRing = new ArrayList<>();
+        // Points per shard on the ring; more points spread users more evenly
+        private int virtualNodes = 128;
+        private Rebalance rebalance = new Rebalance();
+    }
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+
+    @Data
+    public static class Rebalance {
+        // Time between two passes, only while previous-ring is set
+        private Duration interval = Duration.ofMinutes(1);
+        // Carts scanned per window of one shard
+        private int batchSize = 200;
+        // Pause after every window, so moving carts never competes with requests for long
+        private Duration pauseBetweenBatches = Duration.ofMillis(100);
+    }
+}
@@ -1,31 +1,76 @@
 package com.ecommerce.order.config;
 
-import javax.sql.DataSource;
+import com.ecommerce.order.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Configuration
+@Profile("!reactive")
 public class DataSourceConfig {
 
+    // Pool settings under spring.datasource.hikari are bound onto the pool built here
     @Bean
     @Primary
     @RefreshScope
-    public DataSource dataSource(
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    @ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public HikariDataSource dataSource(
             @Value("${spring.datasource.url}") String url,
             @Value("${spring.datasource.username}") String username,
             @Value("${spring.datasource.password}") String password,
             @Value("${spring.datasource.driver-class-name}") String driverClassName) {
 
         return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
                 .driverClassName(driverClassName)
                 .url(url)
                 .username(username)
                 .password(password)
                 .build();
     }
-}
 
+    // One pool per shard under cart.sharding.shards, each with the spring.datasource.hikari settings
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+    public ShardRoutingDataSource shardedDataSource(
+            CartProperties properties, Environment environment,
+            @Value("${spring.datasource.driver-class-name}") String driverClassName) {
+
+        CartProperties.Sharding sharding = properties.getSharding();
+        if (sharding.getShards().isEmpty()) {
+            throw new IllegalStateException("cart.sharding.enabled needs at least one entry under cart.sharding.shards");
+        }
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        sharding.getShards().forEach((name, shard) -> {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(driverClassName)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("cart-shard-" + name);
+            pools.put(name, pool);
+        });
+        String defaultShard = sharding.getDefaultShard() != null
+                ? sharding.getDefaultShard()
+                : pools.keySet().iterator().next();
+        return new ShardRoutingDataSource(pools, defaultShard);
+    }
+}
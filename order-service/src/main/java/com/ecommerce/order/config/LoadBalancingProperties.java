@@ -0,0 +1,35 @@
+package com.ecommerce.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How order-service spreads calls over the instances of the services it calls.
+ */
+@Data
+@ConfigurationProperties(prefix = "clients.load-balancing")
+public class LoadBalancingProperties {
+
+    // Strategy per service id, e.g. product-service: latency-aware; services not listed use round robin
+    private Map<String, Strategy> strategies = new HashMap<>();
+    // Time constant of the response-time moving average used by latency-aware balancing
+    private Duration decay = Duration.ofSeconds(2);
+    // Response time assumed for an instance until it has answered once
+    private Duration defaultLatency = Duration.ofMillis(100);
+    // Response time recorded at least for a call that failed with an error or a 5xx answer
+    private Duration failurePenalty = Duration.ofSeconds(1);
+
+    public Strategy strategyFor(String serviceId) {
+        return strategies.getOrDefault(serviceId, Strategy.ROUND_ROBIN);
+    }
+
+    public enum Strategy {
+        ROUND_ROBIN,
+        // Power-of-two-choices on moving-average latency times in-flight requests
+        LATENCY_AWARE
+    }
+}
@@ -0,0 +1,33 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.order.client.InstanceLatencyTracker;
+import com.ecommerce.order.client.LatencyAwareLoadBalancer;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Default load-balancer setup for every called service, applied through {@code @LoadBalancerClients}
+ * in {@link WebClientConfig}: picks the strategy configured for the service in
+ * {@link LoadBalancingProperties}. Not a {@code @Configuration}, as it belongs to the per-service
+ * child contexts.
+ */
+public class LoadBalancingStrategyConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(Environment environment,
+                                                                                   LoadBalancerClientFactory factory,
+                                                                                   LoadBalancingProperties properties,
+                                                                                   InstanceLatencyTracker tracker) {
+        String serviceId = LoadBalancerClientFactory.getName(environment);
+        var suppliers = factory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        return switch (properties.strategyFor(serviceId)) {
+            case LATENCY_AWARE -> new LatencyAwareLoadBalancer(suppliers, tracker);
+            case ROUND_ROBIN -> new RoundRobinLoadBalancer(suppliers, serviceId);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.client.ProductServiceHedgingFilter;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for the calls order-service makes to product-service.
+ */
+@Data
+@ConfigurationProperties(prefix = "clients.product")
+public class ProductClientProperties {
+
+    private Batching batching = new Batching();
+    private Cache cache = new Cache();
+    private Timeouts timeouts = new Timeouts();
+    private Hedging hedging = new Hedging();
+
+    // Circuit breaker and bulkhead are configured under resilience4j.*.instances.product-service
+    @Data
+    public static class Timeouts {
+        private Duration connect = Duration.ofSeconds(1);
+        // Time allowed for the response to arrive once the request is sent; counts as a failure for the breaker
+        private Duration response = Duration.ofSeconds(2);
+    }
+
+    // Second attempt for GETs that are slower than usual; see ProductServiceHedgingFilter
+    @Data
+    public static class Hedging {
+        private boolean enabled = false;
+        // A GET is hedged once it has been waiting longer than this percentile of recent latencies
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofMillis(500);
+        // Used until min-samples latencies have been recorded
+        private Duration initialDelay = Duration.ofMillis(100);
+        private int windowSize = 1024;
+        private int minSamples = 100;
+        // Extra load hedges may add: 0.05 allows one hedge per 20 requests
+        private double budgetRatio = 0.05;
+        // Hedges that may fire back to back before the ratio applies
+        private int maxBurst = 10;
+
+        public ProductServiceHedgingFilter.Settings toSettings() {
+            return new ProductServiceHedgingFilter.Settings(percentile, minDelay, maxDelay, initialDelay,
+                    windowSize, minSamples, budgetRatio, maxBurst);
+        }
+    }
+
+    @Data
+    public static class Batching {
+        // When disabled every lookup goes straight to ProductClient#getProductById
+        private boolean enabled = true;
+        // How long the first lookup of a batch waits for others to join it
+        private Duration window = Duration.ofMillis(5);
+        // A batch is sent as soon as it reaches this many distinct ids
+        private int maxBatchSize = ProductClient.MAX_BATCH_SIZE;
+    }
+
+    @Data
+    public static class Cache {
+        // When disabled every lookup goes to product-service (through the batch loader)
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        // Entries older than this are reloaded; change events invalidate them earlier
+        private Duration ttl = Duration.ofMinutes(5);
+        // Serve an expired entry while it is reloaded in the background, and keep
+        // serving it if product-service cannot be reached
+        private boolean staleWhileRevalidate = true;
+        // How long past the ttl a stale entry may still be served
+        private Duration staleGrace = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.order.client.HedgeAwareServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Load-balancer setup for product-service, applied through {@code @LoadBalancerClient} in
+ * {@link WebClientConfig}. Deliberately not a {@code @Configuration}: it belongs to the
+ * load balancer's child context, not the application context.
+ */
+public class ProductServiceLoadBalancerConfig {
+
+    @Bean
+    public ServiceInstanceListSupplier productServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+        return new HedgeAwareServiceInstanceListSupplier(
+                ServiceInstanceListSupplier.builder()
+                        .withDiscoveryClient()
+                        .withCaching()
+                        .build(context));
+    }
+}
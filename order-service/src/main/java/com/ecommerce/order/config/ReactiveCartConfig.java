@@ -0,0 +1,58 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.common.libraray.money.Money;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.http.client.ReactorResourceFactory;
+
+import java.util.List;
+
+/**
+ * R2DBC setup of the reactive profile (see {@code ReactiveCartController}).
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveCartConfig {
+
+    // Tomcat is on the classpath for the servlet stack and would be picked otherwise. Netty shares its
+    // event loops with WebClient, so server and outgoing calls run on the same few threads.
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ReactorResourceFactory resourceFactory) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.setResourceFactory(resourceFactory);
+        return factory;
+    }
+
+    // Money columns are BIGINT counts of minor units, as with MoneyConverter on the JPA side
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory),
+                List.of(new MoneyToMinorUnits(), new MinorUnitsToMoney()));
+    }
+
+    @WritingConverter
+    static class MoneyToMinorUnits implements Converter<Money, Long> {
+
+        @Override
+        public Long convert(Money money) {
+            return money.minorUnits();
+        }
+    }
+
+    @ReadingConverter
+    static class MinorUnitsToMoney implements Converter<Long, Money> {
+
+        @Override
+        public Money convert(Long minorUnits) {
+            return Money.ofMinor(minorUnits);
+        }
+    }
+}
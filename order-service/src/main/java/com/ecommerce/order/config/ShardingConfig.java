@@ -0,0 +1,23 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.order.sharding.ShardRoutingDataSource;
+import com.ecommerce.order.sharding.ShardTenantIdentifierResolver;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    // Sessions carry their shard as tenant, so each shard draws ids from its own sequences
+    @Bean
+    public HibernatePropertiesCustomizer shardTenantIdentifierResolver(ShardRoutingDataSource dataSource) {
+        return properties -> properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER,
+                new ShardTenantIdentifierResolver(dataSource.defaultShard()));
+    }
+}
@@ -1,37 +1,104 @@
 package com.ecommerce.order.config;
 
+import com.ecommerce.order.client.InstanceLatencyTracker;
 import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.client.ProductServiceHedgingFilter;
+import com.ecommerce.order.client.ProductServiceResilienceFilter;
+import com.ecommerce.order.client.ReactiveProductClient;
 import com.ecommerce.order.client.UserClient;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.support.WebClientAdapter;
 import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import reactor.netty.http.client.HttpClient;
 
 @Configuration
+@EnableConfigurationProperties({ProductClientProperties.class, LoadBalancingProperties.class})
+@LoadBalancerClients(
+        value = @LoadBalancerClient(name = WebClientConfig.PRODUCT_SERVICE, configuration = ProductServiceLoadBalancerConfig.class),
+        defaultConfiguration = LoadBalancingStrategyConfig.class)
 public class WebClientConfig {
 
+    // Service id in discovery, also the name of its circuit breaker and bulkhead
+    public static final String PRODUCT_SERVICE = "product-service";
+
     @Bean
     @LoadBalanced
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
 
+    // Shared by all clients, keyed by instance; read by the latency-aware load balancer
+    @Bean
+    public InstanceLatencyTracker instanceLatencyTracker(LoadBalancingProperties properties) {
+        return new InstanceLatencyTracker(properties.getDecay(), properties.getDefaultLatency(),
+                properties.getFailurePenalty());
+    }
+
     @Bean
-    public WebClient productWebClient(WebClient.Builder builder) {
+    public WebClient productWebClient(WebClient.Builder builder,
+                                      ProductClientProperties properties,
+                                      InstanceLatencyTracker latencyTracker,
+                                      CircuitBreakerRegistry circuitBreakerRegistry,
+                                      BulkheadRegistry bulkheadRegistry,
+                                      MeterRegistry meterRegistry) {
+        ProductServiceResilienceFilter resilience = new ProductServiceResilienceFilter(
+                circuitBreakerRegistry.circuitBreaker(PRODUCT_SERVICE),
+                bulkheadRegistry.bulkhead(PRODUCT_SERVICE),
+                meterRegistry);
+        ProductServiceHedgingFilter hedging = properties.getHedging().isEnabled()
+                ? new ProductServiceHedgingFilter(properties.getHedging().toSettings(), meterRegistry)
+                : null;
+        // Cloned so the timeouts and filters stay off the other clients built from the shared builder; the
+        // tracker lands right after the load-balancer filter, so it sees the instance that was picked
+        WebClient.Builder tracked = builder.clone().filter(latencyTracker.filter());
+        return productWebClient(tracked.baseUrl("http://" + PRODUCT_SERVICE), properties.getTimeouts(), resilience, hedging);
+    }
+
+    // Also used by tests, which point a plain builder at a stub of product-service
+    static WebClient productWebClient(WebClient.Builder builder,
+                                      ProductClientProperties.Timeouts timeouts,
+                                      ExchangeFilterFunction resilience,
+                                      @Nullable ProductServiceHedgingFilter hedging) {
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeouts.getConnect().toMillis())
+                .responseTimeout(timeouts.getResponse());
         return builder
-                .baseUrl("http://product-service")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .filters(filters -> {
+                    if (hedging != null) {
+                        // Before the load balancer so each attempt picks its own instance, and inside the
+                        // breaker so a hedged call counts once; the recorder sees the URL the balancer chose
+                        filters.addFirst(hedging);
+                        filters.addLast(ProductServiceHedgingFilter.instanceRecorder());
+                    }
+                    // Outermost filter, so it also covers picking an instance through the load balancer
+                    filters.addFirst(resilience);
+                })
                 .build();
     }
 
     @Bean
-    public WebClient userWebClient(WebClient.Builder builder) {
-        return builder
+    public WebClient userWebClient(WebClient.Builder builder, InstanceLatencyTracker latencyTracker) {
+        return builder.clone()
+                // After the load-balancer filter, so it sees the instance that was picked
+                .filter(latencyTracker.filter())
                 .baseUrl("http://user-service")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .build();
@@ -46,6 +113,14 @@ public class WebClientConfig {
         return factory.createClient(ProductClient.class);
     }
 
+    @Bean
+    public ReactiveProductClient reactiveProductClient(@Qualifier("productWebClient") WebClient webClient) {
+        HttpServiceProxyFactory factory = HttpServiceProxyFactory
+                .builderFor(WebClientAdapter.create(webClient))
+                .build();
+        return factory.createClient(ReactiveProductClient.class);
+    }
+
     @Bean
     public UserClient userClient(@Qualifier("userWebClient") WebClient webClient) {
         HttpServiceProxyFactory factory = HttpServiceProxyFactory
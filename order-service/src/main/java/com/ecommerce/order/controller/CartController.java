@@ -1,19 +1,40 @@
 package com.ecommerce.order.controller;
 
+import com.ecommerce.order.cache.CartResponseCache;
 import com.ecommerce.order.dto.AddToCartRequestDTO;
+import com.ecommerce.order.dto.BulkAddToCartRequestDTO;
+import com.ecommerce.order.dto.BulkAddToCartResponseDTO;
 import com.ecommerce.order.dto.CartResponseDTO;
 import com.ecommerce.order.entity.Cart;
 import com.ecommerce.order.mapper.CartMapper;
+import com.ecommerce.order.repository.CartLineRow;
+import com.ecommerce.order.repository.CartTotalsView;
+import com.ecommerce.order.service.BulkAddResult;
+import com.ecommerce.order.service.CartLine;
 import com.ecommerce.order.service.CartService;
+import com.ecommerce.order.service.RefreshedCart;
+import com.ecommerce.order.service.WriteBehindCartStore;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Optional;
+
 @RestController
+// The reactive profile serves these paths from ReactiveCartController
+@Profile("!reactive")
 @RequestMapping("/api/cart")
 @RequiredArgsConstructor
 @Tag(name = "Cart")
@@ -22,28 +43,136 @@ public class CartController {
 
     private final CartService cartService;
     private final CartMapper cartMapper;
+    private final CartResponseCache cartResponseCache;
+    // Present only when cart.write-behind.enabled=true; then it owns all cart reads and writes
+    private final Optional<WriteBehindCartStore> writeBehindStore;
 
     @PostMapping("/add")
-    public ResponseEntity<CartResponseDTO> addToCart(@Valid @RequestBody AddToCartRequestDTO request) {
+    public ResponseEntity<CartResponseDTO> addToCart(@Valid @RequestBody AddToCartRequestDTO request,
+                                                     @RequestParam(defaultValue = "true") boolean includeItems) {
+        if (writeBehindStore.isPresent()) {
+            // Served from memory, so returning the full cart costs nothing extra
+            Cart cart = writeBehindStore.get().addToCart(request.getUserId(), request.getProductId(), request.getQuantity());
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(eTagOf(cart)).body(cartMapper.toResponseDTO(cart));
+        }
+        if (!includeItems) {
+            // Cheapest path: the cart is never loaded, only its new total is returned
+            CartTotalsView totals = cartService.addItem(request.getUserId(), request.getProductId(), request.getQuantity());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .eTag(CartETags.of(totals.getId(), totals.getVersion()))
+                    .body(cartMapper.toSummaryDTO(totals));
+        }
         Cart cart = cartService.addToCart(request.getUserId(), request.getProductId(), request.getQuantity());
-        return ResponseEntity.status(HttpStatus.CREATED).body(cartMapper.toResponseDTO(cart));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(eTagOf(cart)).body(cartMapper.toResponseDTO(cart));
+    }
+
+    // Many lines in one transaction; 201 if at least one line was added, 422 if none was
+    @PostMapping("/add/bulk")
+    public ResponseEntity<BulkAddToCartResponseDTO> addManyToCart(@Valid @RequestBody BulkAddToCartRequestDTO request) {
+        List<CartLine> lines = request.getLines().stream()
+                .map(line -> new CartLine(line.getProductId(), line.getQuantity()))
+                .toList();
+        BulkAddResult result = writeBehindStore
+                .map(store -> store.addItems(request.getUserId(), lines))
+                .orElseGet(() -> cartService.addItems(request.getUserId(), lines));
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(result.anyAdded() ? HttpStatus.CREATED : HttpStatus.UNPROCESSABLE_ENTITY);
+        if (result.cart() != null) {
+            response.eTag(eTagOf(result.cart()));
+        }
+        return response.body(cartMapper.toResponseDTO(result));
     }
 
+    /**
+     * Supports conditional requests: the response carries a strong ETag, and an If-None-Match that
+     * still matches is answered with 304 after a version lookup that does not read any items.
+     * A cart in the response cache is answered with its stored JSON, without touching the database.
+     */
     @GetMapping("/{userId}")
-    public ResponseEntity<CartResponseDTO> getMyCart(@PathVariable Long userId) {
-        Cart cart = cartService.getCartOf(userId);
-        return ResponseEntity.ok(cartMapper.toResponseDTO(cart));
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = CartResponseDTO.class)))
+    public ResponseEntity<?> getMyCart(@PathVariable Long userId,
+                                       @RequestParam(defaultValue = "false") boolean refresh,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (refresh) {
+            // Re-pricing is the point of the request, so it is never short-circuited
+            RefreshedCart refreshed = writeBehindStore
+                    .map(store -> store.refreshCartOf(userId))
+                    .orElseGet(() -> cartService.refreshCartOf(userId));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(eTagOf(refreshed.cart()))
+                    .body(cartMapper.toResponseDTO(refreshed));
+        }
+        if (writeBehindStore.isEmpty()) {
+            Optional<CartResponseCache.CachedCart> cached = cartResponseCache.get(userId);
+            if (cached.isPresent()) {
+                String eTag = CartETags.of(cached.get().cartId(), cached.get().version());
+                if (CartETags.matches(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .cacheControl(CacheControl.noCache())
+                            .eTag(eTag)
+                            .build();
+                }
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(cached.get().json());
+            }
+        }
+        if (ifNoneMatch != null) {
+            Optional<String> current = currentETagOf(userId);
+            if (current.isPresent() && CartETags.matches(ifNoneMatch, current.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(current.get())
+                        .build();
+            }
+        }
+        if (writeBehindStore.isPresent()) {
+            Cart cart = writeBehindStore.get().getCartOf(userId);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(eTagOf(cart))
+                    .body(cartMapper.toResponseDTO(cart));
+        }
+        List<CartLineRow> rows = cartService.getCartLinesOf(userId);
+        CartLineRow header = rows.getFirst();
+        CartResponseDTO response = cartMapper.toResponseDTO(rows);
+        cartResponseCache.putLoaded(userId, header.cartId(), header.version(), response);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(CartETags.of(header.cartId(), header.version()))
+                .body(response);
     }
 
     @DeleteMapping("/item/{itemId}/{userId}")
     public ResponseEntity<String> removeItem(@PathVariable Long itemId, @PathVariable Long userId) {
-        cartService.removeItemFromCart(userId, itemId);
-        return ResponseEntity.ok("Item removed successfully");
+        Cart cart = writeBehindStore
+                .map(store -> store.removeItemFromCart(userId, itemId))
+                .orElseGet(() -> cartService.removeItemFromCart(userId, itemId));
+        return ResponseEntity.ok().eTag(eTagOf(cart)).body("Item removed successfully");
     }
 
     @DeleteMapping("/clear/{userId}")
     public ResponseEntity<String> clearCart(@PathVariable Long userId) {
-        cartService.clearCart(userId);
-        return ResponseEntity.ok("Cart cleared successfully");
+        Cart cart = writeBehindStore
+                .map(store -> store.clearCart(userId))
+                .orElseGet(() -> cartService.clearCart(userId));
+        return ResponseEntity.ok().eTag(eTagOf(cart)).body("Cart cleared successfully");
+    }
+
+    private String eTagOf(Cart cart) {
+        return writeBehindStore.isPresent()
+                ? CartETags.ofWriteBehind(cart.getUserId(), cart.getVersion())
+                : CartETags.of(cart.getId(), cart.getVersion());
+    }
+
+    private Optional<String> currentETagOf(Long userId) {
+        if (writeBehindStore.isPresent()) {
+            return writeBehindStore.get().getCartVersionOf(userId)
+                    .map(version -> CartETags.ofWriteBehind(userId, version));
+        }
+        return cartService.getCartVersionOf(userId)
+                .map(view -> CartETags.of(view.getId(), view.getVersion()));
     }
 }
@@ -0,0 +1,40 @@
+package com.ecommerce.order.controller;
+
+/**
+ * Strong entity tags for cart representations: the cart id plus its version. The version changes
+ * with every mutation, so equal tags mean identical responses.
+ */
+final class CartETags {
+
+    private CartETags() {
+    }
+
+    static String of(Long cartId, Long version) {
+        return "\"" + cartId + "." + version + "\"";
+    }
+
+    // Write-behind carts may not have an id yet; their versions are unique store-wide instead
+    static String ofWriteBehind(Long userId, Long version) {
+        return "\"u" + userId + "." + version + "\"";
+    }
+
+    // If-None-Match uses the weak comparison (RFC 9110 13.1.2), so a W/ prefix is ignored
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
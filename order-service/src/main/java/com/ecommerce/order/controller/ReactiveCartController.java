@@ -0,0 +1,82 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.dto.AddToCartRequestDTO;
+import com.ecommerce.order.dto.CartResponseDTO;
+import com.ecommerce.order.entity.CartRow;
+import com.ecommerce.order.mapper.CartMapper;
+import com.ecommerce.order.service.ReactiveCartService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * The cart API of the reactive profile, served by WebFlux on Netty's event loops: the same paths,
+ * bodies and ETags as {@link CartController}, but every request is a chain of non-blocking calls to
+ * product-service and R2DBC, so a handful of threads serve any number of open connections.
+ * <p>
+ * Bulk add, refresh, write-behind and {@code Idempotency-Key} handling are only offered by the
+ * servlet stack.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/cart")
+@RequiredArgsConstructor
+@Tag(name = "Cart")
+@SecurityRequirement(name = "bearerAuth")
+public class ReactiveCartController {
+
+    private final ReactiveCartService cartService;
+    private final CartMapper cartMapper;
+
+    @PostMapping("/add")
+    public Mono<ResponseEntity<CartResponseDTO>> addToCart(@Valid @RequestBody AddToCartRequestDTO request,
+                                                           @RequestParam(defaultValue = "true") boolean includeItems) {
+        return cartService.addToCart(request.getUserId(), request.getProductId(), request.getQuantity(), includeItems)
+                .map(cart -> ResponseEntity.status(HttpStatus.CREATED)
+                        .eTag(eTagOf(cart.cart()))
+                        .body(cartMapper.toResponseDTO(cart)));
+    }
+
+    // A matching If-None-Match is answered with 304 before any item is read
+    @GetMapping("/{userId}")
+    public Mono<ResponseEntity<CartResponseDTO>> getMyCart(@PathVariable Long userId,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cartService.getCartHeaderOf(userId).flatMap(header -> {
+            String eTag = eTagOf(header);
+            if (CartETags.matches(ifNoneMatch, eTag)) {
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(eTag)
+                        .<CartResponseDTO>build());
+            }
+            return cartService.withItems(header).map(cart -> ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(eTag)
+                    .body(cartMapper.toResponseDTO(cart)));
+        });
+    }
+
+    @DeleteMapping("/item/{itemId}/{userId}")
+    public Mono<ResponseEntity<String>> removeItem(@PathVariable Long itemId, @PathVariable Long userId) {
+        return cartService.removeItemFromCart(userId, itemId)
+                .map(cart -> ResponseEntity.ok().eTag(eTagOf(cart)).body("Item removed successfully"));
+    }
+
+    @DeleteMapping("/clear/{userId}")
+    public Mono<ResponseEntity<String>> clearCart(@PathVariable Long userId) {
+        return cartService.clearCart(userId)
+                .map(cart -> ResponseEntity.ok().eTag(eTagOf(cart)).body("Cart cleared successfully"));
+    }
+
+    private static String eTagOf(CartRow cart) {
+        return CartETags.of(cart.getId(), cart.getVersion());
+    }
+}
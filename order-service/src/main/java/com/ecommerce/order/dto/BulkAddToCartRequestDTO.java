@@ -0,0 +1,26 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.client.ProductClient;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkAddToCartRequestDTO {
+    @NotNull(message = "User Id is required")
+    private Long userId;
+
+    // Lines are validated one by one and reported in the response, not rejected as a whole
+    @NotEmpty(message = "At least one line is required")
+    @Size(max = ProductClient.MAX_BATCH_SIZE, message = "At most " + ProductClient.MAX_BATCH_SIZE + " lines per request")
+    private List<Line> lines;
+
+    @Data
+    public static class Line {
+        private Long productId;
+        private int quantity = 1;
+    }
+}
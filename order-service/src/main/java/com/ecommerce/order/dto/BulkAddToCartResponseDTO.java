@@ -0,0 +1,13 @@
+package com.ecommerce.order.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkAddToCartResponseDTO {
+    // Null if nothing was added and the user has no cart
+    private CartResponseDTO cart;
+    // One entry per requested line, in request order
+    private List<CartLineResultDTO> results;
+}
@@ -1,14 +1,14 @@
 package com.ecommerce.order.dto;
 
+import com.ecommerce.common.libraray.money.Money;
 import lombok.Data;
 
-import java.math.BigDecimal;
-
 @Data
 public class CartItemResponseDTO {
     private Long id;
     private Long productId;
-//    private String productName;
+    private String productName;
     private Integer quantity;
-    private BigDecimal subTotal;
+    private Money price;
+    private Money subTotal;
 }
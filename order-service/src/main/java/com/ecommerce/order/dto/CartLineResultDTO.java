@@ -0,0 +1,11 @@
+package com.ecommerce.order.dto;
+
+import lombok.Data;
+
+@Data
+public class CartLineResultDTO {
+    private Long productId;
+    private int quantity;
+    // ADDED, INVALID_QUANTITY, PRODUCT_NOT_FOUND or PRODUCT_INACTIVE
+    private String status;
+}
@@ -1,14 +1,19 @@
 package com.ecommerce.order.dto;
 
+import com.ecommerce.common.libraray.money.Money;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 @Data
 public class CartResponseDTO {
     private Long id;
     private Long userId;
-    private BigDecimal totalPrice;
+    private Money totalPrice;
     private List<CartItemResponseDTO> items;
+
+    // Only filled by the refreshed view: products that no longer exist or are inactive
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> unavailableProductIds;
 }
@@ -0,0 +1,39 @@
+package com.ecommerce.order.entity;
+
+import com.ecommerce.common.libraray.money.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A cart moved out of {@code cart} by the {@code AbandonedCartSweeper}. Rows keep the id, version and
+ * timestamps they had, so a restored cart is the same cart with the same ETag.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "cart_archive", indexes = @Index(name = "idx_cart_archive_user", columnList = "user_id"))
+public class ArchivedCart {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(name = "total_price_minor", nullable = false)
+    private Money totalPrice;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
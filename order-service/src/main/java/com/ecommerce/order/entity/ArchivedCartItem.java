@@ -0,0 +1,39 @@
+package com.ecommerce.order.entity;
+
+import com.ecommerce.common.libraray.money.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A line of an {@link ArchivedCart}, with the id it had in {@code cart_item}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "cart_item_archive", indexes = @Index(name = "idx_cart_item_archive_cart", columnList = "cart_id"))
+public class ArchivedCartItem {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long cartId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private String productName;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "sub_total_minor", nullable = false)
+    private Money subTotal;
+
+    @Column(name = "price_minor", nullable = false)
+    private Money price;
+}
@@ -1,11 +1,12 @@
 package com.ecommerce.order.entity;
 
+import com.ecommerce.common.libraray.money.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,14 +17,18 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_user", columnNames = "user_id"))
 public class Cart {
 
+    // Pooled sequence rather than IDENTITY, so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
     private Long id;
 
 
+    // Also the hash partition key of the partitioned schema; Hibernate adds it to updates and deletes
+    @PartitionKey
     @Column(nullable = false)
     private Long userId;
 
@@ -31,9 +36,9 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> items = new ArrayList<>();
 
-    // Total cost of all items
-    @Column(nullable = false)
-    private BigDecimal totalPrice = BigDecimal.ZERO;
+    // Total cost of all items; kept up to date from per-line deltas, never re-summed
+    @Column(name = "total_price_minor", nullable = false)
+    private Money totalPrice = Money.ZERO;
 
     @CreationTimestamp
     private LocalDateTime createdAt;
@@ -41,10 +46,30 @@ public class Cart {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
-    // Helper method to update total price
-    public void calculateTotalPrice() {
-        this.totalPrice = items.stream()
-                .map(CartItem::getSubTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Bumped on every change; concurrent writers of the same cart fail fast instead of losing updates
+    @Version
+    private Long version;
+
+    // Applies the change of one line's subtotal, as returned by CartItem.reprice
+    public void adjustTotalPrice(Money delta) {
+        this.totalPrice = totalPrice.plus(delta);
+        touch();
+    }
+
+    public void removeItem(CartItem item) {
+        if (items.remove(item)) {
+            adjustTotalPrice(Money.ZERO.minus(item.getSubTotal()));
+        }
+    }
+
+    public void clearItems() {
+        items.clear();
+        this.totalPrice = Money.ZERO;
+        touch();
+    }
+
+    // Marks the cart itself dirty, so the version moves even when only its items changed (it backs the ETag)
+    private void touch() {
+        this.updatedAt = LocalDateTime.now();
     }
 }
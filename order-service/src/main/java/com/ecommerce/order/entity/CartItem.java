@@ -2,10 +2,10 @@
 
 package com.ecommerce.order.entity;
 
+import com.ecommerce.common.libraray.money.Money;
 import jakarta.persistence.*;
 import lombok.*;
-
-import java.math.BigDecimal;
+import org.hibernate.annotations.PartitionKey;
 
 @Entity
 @Getter
@@ -13,11 +13,13 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_product", columnNames = {"cart_id", "product_id"}))
 public class CartItem {
 
+    // Pooled sequence rather than IDENTITY, so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_item_seq", allocationSize = 50)
     private Long id;
 
     // Link to the product-service
@@ -33,19 +35,29 @@ public class CartItem {
     @JoinColumn(name = "cart_id")
     private Cart cart;
 
-    @Column(nullable = false)
-    private Integer quantity;
-
-    @Column(nullable = false)
-    private BigDecimal subTotal;
+    // Read-only copy of cart_id, the hash partition key of the partitioned schema; Hibernate adds it to
+    // updates and deletes. Set it along with the cart once the cart has an id.
+    @PartitionKey
+    @Column(name = "cart_id", insertable = false, updatable = false)
+    private Long cartId;
 
     @Column(nullable = false)
-    private BigDecimal price;
+    private Integer quantity;
 
-    // Helper method to recalc subtotal
-    public void calculateSubTotal() {
-        if (productId != null && quantity != null) {
-            this.subTotal = price.multiply(BigDecimal.valueOf(quantity));
-        }
+    @Column(name = "sub_total_minor", nullable = false)
+    private Money subTotal;
+
+    @Column(name = "price_minor", nullable = false)
+    private Money price;
+
+    /**
+     * Sets the unit price and quantity and returns how much the subtotal moved, for the cart total.
+     */
+    public Money reprice(Money price, int quantity) {
+        Money previous = subTotal == null ? Money.ZERO : subTotal;
+        this.price = price;
+        this.quantity = quantity;
+        this.subTotal = price.times(quantity);
+        return subTotal.minus(previous);
     }
 }
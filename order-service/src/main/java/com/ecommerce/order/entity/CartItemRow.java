@@ -0,0 +1,47 @@
+package com.ecommerce.order.entity;
+
+import com.ecommerce.common.libraray.money.Money;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * The {@code cart_item} table as the reactive profile sees it; see {@link CartRow}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("cart_item")
+public class CartItemRow {
+
+    @Id
+    private Long id;
+
+    private Long cartId;
+
+    private Long productId;
+
+    private String productName;
+
+    private Integer quantity;
+
+    @Column("sub_total_minor")
+    private Money subTotal;
+
+    @Column("price_minor")
+    private Money price;
+
+    /**
+     * Sets the unit price and quantity and returns how much the subtotal moved, for the cart total.
+     */
+    public Money reprice(Money price, int quantity) {
+        Money previous = subTotal == null ? Money.ZERO : subTotal;
+        this.price = price;
+        this.quantity = quantity;
+        this.subTotal = price.times(quantity);
+        return subTotal.minus(previous);
+    }
+}
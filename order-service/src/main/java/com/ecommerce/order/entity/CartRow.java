@@ -0,0 +1,45 @@
+package com.ecommerce.order.entity;
+
+import com.ecommerce.common.libraray.money.Money;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * The {@code cart} table as the reactive profile sees it through R2DBC, which has no associations:
+ * items are read and written separately as {@link CartItemRow}. Same table, sequence and version
+ * column as {@link Cart}, so both stacks can serve the same data.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("cart")
+public class CartRow {
+
+    @Id
+    private Long id;
+
+    private Long userId;
+
+    @Column("total_price_minor")
+    private Money totalPrice;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    // Same optimistic check as Cart.version: an update of a stale row fails instead of losing a write
+    @Version
+    private Long version;
+
+    public void adjustTotalPrice(Money delta) {
+        this.totalPrice = totalPrice.plus(delta);
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Outcome of a write request sent with an {@code Idempotency-Key}. A row without a status code is a
+ * claim: the request is still being executed by some instance.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord implements Persistable<String> {
+
+    // "<userId>:<Idempotency-Key>", the header being at most 128 characters
+    @Id
+    @Column(length = 160)
+    private String idempotencyKey;
+
+    // SHA-256 of method, path and body; a key may only be replayed for the same request
+    @Column(nullable = false, length = 64)
+    private String requestFingerprint;
+
+    private Integer statusCode;
+
+    private String contentType;
+
+    private String eTag;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String body;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // Claims are always inserted, never merged, so a duplicate key fails on the primary key at once
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -3,12 +3,16 @@ package com.ecommerce.order.exception;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 //import org.springframework.security.access.AccessDeniedException;
 //import org.springframework.security.core.AuthenticationException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -138,6 +142,26 @@ public class GlobalExceptionHandler {
         return buildResponse("Conflict: data integrity violation", HttpStatus.CONFLICT);
     }
 
+    // 409 – concurrent modification that kept conflicting after the service retried it
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        return buildResponse("Conflict: the resource was modified concurrently, please retry", HttpStatus.CONFLICT);
+    }
+
+    // 502 – an upstream response we could not read, e.g. a price finer than a cent from product-service
+    @ExceptionHandler(DecodingException.class)
+    public ResponseEntity<Map<String, Object>> handleUpstreamDecoding(DecodingException ex) {
+        log.error("Unreadable response from an upstream service", ex);
+        return buildResponse("Bad data from an upstream service", HttpStatus.BAD_GATEWAY);
+    }
+
+    // 503 – no database connection became free in time (Hikari connection-timeout, R2DBC pool max-acquire-time)
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String, Object>> handleNoConnection(RuntimeException ex) {
+        log.warn("No database connection available: {}", ex.getMessage());
+        return buildResponse("Service busy, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // 500 – everything else
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
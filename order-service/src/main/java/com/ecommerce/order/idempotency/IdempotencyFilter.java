@@ -0,0 +1,198 @@
+package com.ecommerce.order.idempotency;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Makes cart writes safe to retry: a POST or DELETE under {@code /api/cart} that carries an
+ * {@code Idempotency-Key} header runs at most once per key, and repeats get the original status,
+ * ETag and body back with {@code Idempotent-Replayed: true}. Requests without the header are untouched.
+ * <p>
+ * Keys are scoped per user: the user id from the path ({@code DELETE .../{userId}}) or from the
+ * {@code userId} of the JSON body is part of the stored key, so two users can never collide on one.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    // Errors raised here are rendered by GlobalExceptionHandler like those of the controllers
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String method = request.getMethod();
+        boolean write = HttpMethod.POST.matches(method) || HttpMethod.DELETE.matches(method) || HttpMethod.PUT.matches(method);
+        return !write || !request.getRequestURI().startsWith("/api/cart") || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        try {
+            if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            }
+            String fingerprint = fingerprint(cachedRequest);
+            StoredResponse result = store.execute(userOf(cachedRequest) + ":" + key, fingerprint, () -> {
+                ContentCachingResponseWrapper capturing = new ContentCachingResponseWrapper(response);
+                filterChain.doFilter(cachedRequest, capturing);
+                StoredResponse executed = new StoredResponse(fingerprint, capturing.getStatus(),
+                        capturing.getContentType(), capturing.getHeader(HttpHeaders.ETAG), capturing.getContentAsByteArray());
+                capturing.copyBodyToResponse();
+                return executed;
+            });
+            if (!response.isCommitted()) {
+                replay(result, response);
+            }
+        } catch (ResponseStatusException ex) {
+            exceptionResolver.resolveException(cachedRequest, response, null, ex);
+        } catch (IOException | ServletException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ServletException(ex);
+        }
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.statusCode());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, stored.eTag());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+        response.flushBuffer();
+    }
+
+    // The user a cart write is for, or an empty string for a request that names none (which then fails validation)
+    private String userOf(CachedBodyRequest request) {
+        String uri = request.getRequestURI();
+        String last = uri.substring(uri.lastIndexOf('/') + 1);
+        if (HttpMethod.DELETE.matches(request.getMethod())) {
+            return last.chars().allMatch(Character::isDigit) ? last : "";
+        }
+        try {
+            JsonNode userId = request.body.length == 0 ? null : objectMapper.readTree(request.body).path("userId");
+            return userId != null && userId.isIntegralNumber() ? userId.asText() : "";
+        } catch (IOException ex) {
+            // Not JSON; the controller rejects it
+            return "";
+        }
+    }
+
+    private static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // The body is needed for the fingerprint before the controller reads it, so it is buffered once
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is in memory, so it is available at once and then read completely
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException ex) {
+                        listener.onError(ex);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.ecommerce.order.idempotency;
+
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.entity.IdempotencyRecord;
+import com.ecommerce.order.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Dedupe store behind the {@code Idempotency-Key} header.
+ * <p>
+ * The first request with a key claims it by inserting a row, executes, and then stores its response
+ * in that row and in a bounded in-memory cache. A duplicate is answered from memory, or from the
+ * row after a restart or when it lands on another instance. A duplicate that arrives while the first
+ * request is still running waits for it: on a future within this instance, by polling the row across
+ * instances. Responses are kept for {@code ttl}; expired rows are purged periodically.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyStore implements DisposableBean {
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartProperties.Idempotency config;
+
+    private final Cache<String, StoredResponse> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("idempotency-purge").daemon().factory());
+
+    private final Counter memoryReplays;
+    private final Counter databaseReplays;
+    private final Counter waits;
+
+    public IdempotencyStore(IdempotencyRecordRepository repository, TransactionTemplate transactionTemplate,
+                            CartProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.config = properties.getIdempotency();
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(config.getTtl())
+                .build();
+
+        this.memoryReplays = Counter.builder("cart.idempotency.replays").tag("source", "memory")
+                .description("Duplicate requests answered with a stored response")
+                .register(meterRegistry);
+        this.databaseReplays = Counter.builder("cart.idempotency.replays").tag("source", "database")
+                .description("Duplicate requests answered with a stored response")
+                .register(meterRegistry);
+        this.waits = Counter.builder("cart.idempotency.waits")
+                .description("Duplicate requests that waited for the first execution")
+                .register(meterRegistry);
+
+        long purgeEvery = config.getPurgeInterval().toMillis();
+        purger.scheduleWithFixedDelay(this::purgeExpired, purgeEvery, purgeEvery, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes {@code action} once per key and returns its response, or the stored response of an
+     * earlier execution with the same key.
+     *
+     * @throws ResponseStatusException 422 if the key was used for a different request, 409 if the
+     *                                 first execution is still running after {@code waitTimeout}
+     */
+    public StoredResponse execute(String key, String fingerprint, Callable<StoredResponse> action) throws Exception {
+        StoredResponse cached = completed.getIfPresent(key);
+        if (cached != null) {
+            memoryReplays.increment();
+            return checkedReplay(cached, fingerprint);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            waits.increment();
+            return checkedReplay(await(running), fingerprint);
+        }
+
+        try {
+            Optional<StoredResponse> earlier = claimOrAwait(key, fingerprint);
+            if (earlier.isPresent()) {
+                databaseReplays.increment();
+                remember(key, earlier.get());
+                mine.complete(earlier.get());
+                return checkedReplay(earlier.get(), fingerprint);
+            }
+
+            StoredResponse response;
+            try {
+                response = action.call();
+            } catch (Exception | Error ex) {
+                release(key);
+                throw ex;
+            }
+            if (response.isReplayable()) {
+                try {
+                    if (!store(key, response)) {
+                        log.warn("Idempotency-Key {} was taken over by another request after its claim expired; "
+                                + "its response is only kept in memory", key);
+                    }
+                } catch (RuntimeException ex) {
+                    // Already sent, so it cannot fail any more; a retry here is replayed from memory, one
+                    // elsewhere runs again instead of waiting for a claim that never completes
+                    log.warn("Could not store the response for Idempotency-Key {}; releasing the claim", key, ex);
+                    release(key);
+                }
+                remember(key, response);
+            } else {
+                release(key);
+            }
+            mine.complete(response);
+            return response;
+        } catch (Throwable ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // Empty once this call owns the key; otherwise the response of whoever executed it first
+    private Optional<StoredResponse> claimOrAwait(String key, String fingerprint) throws InterruptedException {
+        long deadline = System.nanoTime() + config.getWaitTimeout().toNanos();
+        while (true) {
+            try {
+                Instant now = Instant.now();
+                transactionTemplate.executeWithoutResult(status -> repository.saveAndFlush(IdempotencyRecord.builder()
+                        .idempotencyKey(key)
+                        .requestFingerprint(fingerprint)
+                        .createdAt(now)
+                        .expiresAt(now.plus(config.getClaimTimeout()))
+                        .build()));
+                return Optional.empty();
+            } catch (DataIntegrityViolationException taken) {
+                Optional<IdempotencyRecord> existing = repository.findById(key);
+                if (existing.isPresent() && existing.get().getStatusCode() != null) {
+                    return Optional.of(toResponse(existing.get()));
+                }
+                if (existing.isPresent() && existing.get().getExpiresAt().isBefore(Instant.now())) {
+                    // Completed long ago, or claimed by an instance that died; start over
+                    transactionTemplate.executeWithoutResult(status -> repository.deleteIfExpired(key, Instant.now()));
+                    continue;
+                }
+                if (existing.isEmpty()) {
+                    continue;
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+            }
+            waits.increment();
+            Thread.sleep(config.getPollInterval().toMillis());
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) throws InterruptedException {
+        try {
+            return running.get(config.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The first request with this Idempotency-Key failed; retry it");
+        }
+    }
+
+    private StoredResponse checkedReplay(StoredResponse response, String fingerprint) {
+        if (!response.requestFingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+        return response;
+    }
+
+    /**
+     * Completes this request's claim with its response. A claim that outlived {@code claimTimeout} may
+     * have been purged or taken over meanwhile; the response is then written as a new record, unless
+     * another request holds the key again, in which case nothing is stored and {@code false} returned.
+     */
+    private boolean store(String key, StoredResponse response) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(config.getTtl());
+        String body = new String(response.body(), StandardCharsets.UTF_8);
+        Integer updated = transactionTemplate.execute(status -> repository.complete(key, response.requestFingerprint(),
+                response.statusCode(), response.contentType(), response.eTag(), body, expiresAt));
+        if (updated != null && updated > 0) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.saveAndFlush(IdempotencyRecord.builder()
+                    .idempotencyKey(key)
+                    .requestFingerprint(response.requestFingerprint())
+                    .statusCode(response.statusCode())
+                    .contentType(response.contentType())
+                    .eTag(response.eTag())
+                    .body(body)
+                    .createdAt(now)
+                    .expiresAt(expiresAt)
+                    .build()));
+            return true;
+        } catch (DataIntegrityViolationException taken) {
+            return false;
+        }
+    }
+
+    private void release(String key) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.release(key));
+        } catch (RuntimeException ex) {
+            // The claim then simply expires after claimTimeout
+            log.warn("Could not release Idempotency-Key claim {}", key, ex);
+        }
+    }
+
+    private void remember(String key, StoredResponse response) {
+        if (response.body().length <= config.getMaxCachedBodyBytes()) {
+            completed.put(key, response);
+        }
+    }
+
+    private static StoredResponse toResponse(IdempotencyRecord record) {
+        byte[] body = record.getBody() == null ? new byte[0] : record.getBody().getBytes(StandardCharsets.UTF_8);
+        return new StoredResponse(record.getRequestFingerprint(), record.getStatusCode(), record.getContentType(),
+                record.getETag(), body);
+    }
+
+    private void purgeExpired() {
+        try {
+            Integer purged = transactionTemplate.execute(status -> repository.deleteExpired(Instant.now()));
+            log.debug("Purged {} expired idempotency records", purged);
+        } catch (RuntimeException ex) {
+            log.warn("Purging expired idempotency records failed", ex);
+        }
+    }
+
+    // Drops the in-memory tier only, as a restart would
+    void clearMemory() {
+        completed.invalidateAll();
+    }
+
+    @Override
+    public void destroy() {
+        purger.shutdownNow();
+    }
+}
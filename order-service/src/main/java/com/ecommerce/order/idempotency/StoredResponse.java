@@ -0,0 +1,12 @@
+package com.ecommerce.order.idempotency;
+
+/**
+ * A response kept for replay. The body is the exact bytes that were sent (UTF-8 JSON or text).
+ */
+public record StoredResponse(String requestFingerprint, int statusCode, String contentType, String eTag, byte[] body) {
+
+    // Server errors and conflicts are transient, so a retry should run the request again
+    public boolean isReplayable() {
+        return statusCode < 500 && statusCode != 409;
+    }
+}
@@ -1,11 +1,22 @@
 package com.ecommerce.order.mapper;
 
+import com.ecommerce.order.dto.BulkAddToCartResponseDTO;
 import com.ecommerce.order.dto.CartItemResponseDTO;
+import com.ecommerce.order.dto.CartLineResultDTO;
 import com.ecommerce.order.dto.CartResponseDTO;
 import com.ecommerce.order.entity.Cart;
 import com.ecommerce.order.entity.CartItem;
+import com.ecommerce.order.entity.CartItemRow;
+import com.ecommerce.order.repository.CartLineRow;
+import com.ecommerce.order.repository.CartTotalsView;
+import com.ecommerce.order.service.BulkAddResult;
+import com.ecommerce.order.service.CartLineResult;
+import com.ecommerce.order.service.CartRows;
+import com.ecommerce.order.service.RefreshedCart;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
@@ -26,12 +37,105 @@ public class CartMapper {
         return dto;
     }
 
+    public CartResponseDTO toResponseDTO(RefreshedCart refreshedCart) {
+        if (refreshedCart == null) return null;
+
+        CartResponseDTO dto = toResponseDTO(refreshedCart.cart());
+        dto.setUnavailableProductIds(refreshedCart.unavailableProductIds());
+        return dto;
+    }
+
+    public BulkAddToCartResponseDTO toResponseDTO(BulkAddResult result) {
+        if (result == null) return null;
+
+        BulkAddToCartResponseDTO dto = new BulkAddToCartResponseDTO();
+        dto.setCart(toResponseDTO(result.cart()));
+        dto.setResults(result.results().stream()
+                .map(this::toLineResultDTO)
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    // Rows come from CartRepository.findCartLinesByUserId and all belong to the same cart
+    public CartResponseDTO toResponseDTO(List<CartLineRow> rows) {
+        if (rows == null || rows.isEmpty()) return null;
+
+        CartLineRow header = rows.getFirst();
+        CartResponseDTO dto = new CartResponseDTO();
+        dto.setId(header.cartId());
+        dto.setUserId(header.userId());
+        dto.setTotalPrice(header.totalPrice());
+
+        List<CartItemResponseDTO> items = new ArrayList<>(rows.size());
+        for (CartLineRow row : rows) {
+            if (row.itemId() == null) continue;
+
+            CartItemResponseDTO item = new CartItemResponseDTO();
+            item.setId(row.itemId());
+            item.setProductId(row.productId());
+            item.setProductName(row.productName());
+            item.setQuantity(row.quantity());
+            item.setPrice(row.price());
+            item.setSubTotal(row.subTotal());
+            items.add(item);
+        }
+        dto.setItems(items);
+        return dto;
+    }
+
+    // Header-only view: items are left null because they were deliberately not loaded
+    public CartResponseDTO toSummaryDTO(CartTotalsView totals) {
+        if (totals == null) return null;
+
+        CartResponseDTO dto = new CartResponseDTO();
+        dto.setId(totals.getId());
+        dto.setUserId(totals.getUserId());
+        dto.setTotalPrice(totals.getTotalPrice());
+        return dto;
+    }
+
+    // Reactive profile; items stay null when they were deliberately not loaded
+    public CartResponseDTO toResponseDTO(CartRows rows) {
+        if (rows == null) return null;
+
+        CartResponseDTO dto = new CartResponseDTO();
+        dto.setId(rows.cart().getId());
+        dto.setUserId(rows.cart().getUserId());
+        dto.setTotalPrice(rows.cart().getTotalPrice());
+        if (rows.items() != null) {
+            dto.setItems(rows.items().stream()
+                    .map(this::toItemResponseDTO)
+                    .collect(Collectors.toList()));
+        }
+        return dto;
+    }
+
+    private CartLineResultDTO toLineResultDTO(CartLineResult result) {
+        CartLineResultDTO dto = new CartLineResultDTO();
+        dto.setProductId(result.productId());
+        dto.setQuantity(result.quantity());
+        dto.setStatus(result.status().name());
+        return dto;
+    }
+
     private CartItemResponseDTO toItemResponseDTO(CartItem item) {
         CartItemResponseDTO dto = new CartItemResponseDTO();
         dto.setId(item.getId());
         dto.setProductId(item.getProductId());
-//        dto.setProductName(item.getProduct().getName());
+        dto.setProductName(item.getProductName());
+        dto.setQuantity(item.getQuantity());
+        dto.setPrice(item.getPrice());
+        dto.setSubTotal(item.getSubTotal());
+        return dto;
+    }
+
+    private CartItemResponseDTO toItemResponseDTO(CartItemRow item) {
+        CartItemResponseDTO dto = new CartItemResponseDTO();
+        dto.setId(item.getId());
+        dto.setProductId(item.getProductId());
+        dto.setProductName(item.getProductName());
         dto.setQuantity(item.getQuantity());
+        dto.setPrice(item.getPrice());
         dto.setSubTotal(item.getSubTotal());
         return dto;
     }
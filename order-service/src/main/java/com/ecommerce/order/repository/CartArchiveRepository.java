@@ -0,0 +1,105 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.ArchivedCart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves carts between {@code cart}/{@code cart_item} and their archive tables, set-wise in SQL so no
+ * entity is loaded on either side.
+ */
+public interface CartArchiveRepository extends JpaRepository<ArchivedCart, Long> {
+
+    // Served by idx_cart_archive_user; lets reads that find no cart skip the restore
+    boolean existsByUserId(Long userId);
+
+    // Last id of the next window of at most batchSize carts after afterId; empty once the table is exhausted
+    @Query(nativeQuery = true, value = """
+            SELECT max(id) FROM (SELECT id FROM cart WHERE id > :afterId ORDER BY id LIMIT :batchSize) w
+            """)
+    Optional<Long> findWindowEnd(long afterId, int batchSize);
+
+    // Idle carts of one window, locked; carts a writer holds right now are left for the next run
+    @Query(nativeQuery = true, value = """
+            SELECT id FROM cart
+            WHERE id > :afterId AND id <= :windowEnd AND updated_at < :idleSince
+            ORDER BY id
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<Long> lockIdleCarts(long afterId, long windowEnd, LocalDateTime idleSince);
+
+    // Same as lockIdleCarts without taking locks, for dry runs
+    @Query(nativeQuery = true, value = """
+            SELECT id FROM cart
+            WHERE id > :afterId AND id <= :windowEnd AND updated_at < :idleSince
+            ORDER BY id
+            """)
+    List<Long> findIdleCarts(long afterId, long windowEnd, LocalDateTime idleSince);
+
+    @Query(nativeQuery = true, value = "SELECT count(*) FROM cart_item WHERE cart_id IN (:cartIds)")
+    long countItemsOf(Collection<Long> cartIds);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO cart_archive (id, user_id, total_price_minor, created_at, updated_at, version, archived_at)
+            SELECT id, user_id, total_price_minor, created_at, updated_at, version, :archivedAt FROM cart WHERE id IN (:cartIds)
+            """)
+    int archiveCarts(Collection<Long> cartIds, LocalDateTime archivedAt);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO cart_item_archive (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+            SELECT id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor FROM cart_item WHERE cart_id IN (:cartIds)
+            """)
+    int archiveItems(Collection<Long> cartIds);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM cart_item WHERE cart_id IN (:cartIds)")
+    int deleteItemsOf(Collection<Long> cartIds);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM cart WHERE id IN (:cartIds)")
+    int deleteCarts(Collection<Long> cartIds);
+
+    /**
+     * Puts the user's most recently archived cart back into {@code cart}, with {@code updated_at} set to
+     * {@code now} so it is not swept again right away. Returns 0 if there is none, or if a concurrent
+     * restore (or a new cart) got there first.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO cart (id, user_id, total_price_minor, created_at, updated_at, version)
+            SELECT id, user_id, total_price_minor, created_at, :now, version FROM cart_archive
+            WHERE user_id = :userId
+            ORDER BY archived_at DESC, id DESC
+            LIMIT 1
+            ON CONFLICT DO NOTHING
+            """)
+    int restoreCart(Long userId, LocalDateTime now);
+
+    // Lines of the archived cart that restoreCart put back under the user
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO cart_item (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+            SELECT id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor FROM cart_item_archive
+            WHERE cart_id = (SELECT id FROM cart WHERE user_id = :userId)
+            ON CONFLICT DO NOTHING
+            """)
+    int restoreItems(Long userId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM cart_item_archive WHERE cart_id IN (SELECT id FROM cart_archive WHERE user_id = :userId)
+            """)
+    int deleteArchivedItemsOf(Long userId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM cart_archive WHERE user_id = :userId")
+    int deleteArchivedCartsOf(Long userId);
+}
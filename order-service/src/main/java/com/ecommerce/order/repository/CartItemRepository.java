@@ -2,6 +2,58 @@ package com.ecommerce.order.repository;
 
 import com.ecommerce.order.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    // The cart id comes from a subquery rather than a join, so Postgres can prune cart_item partitions by it
+    @Query("select i.productId from CartItem i where i.cartId = (select c.id from Cart c where c.userId = :userId)")
+    List<Long> findProductIdsByUserId(Long userId);
+
+    /**
+     * Adds {@code quantity} of a product to the user's cart in one PostgreSQL statement: the line is
+     * inserted, or its quantity incremented on conflict, and the cart total moves by the line's delta.
+     * <p>
+     * The cart row is only updated if its version is still the one seen when the statement started.
+     * An empty result therefore means either that the user has no cart yet or that another writer
+     * changed it concurrently; the caller must roll back in that case, because the line may already
+     * have been written.
+     * <p>
+     * The line id is drawn with {@code nextval} directly. The pooled optimizer only hands out ids at or
+     * below values it fetched itself, so the two never collide.
+     * <p>
+     * Every table is addressed by its partition key ({@code user_id}, or {@code cart_id} from a
+     * subquery), so on the partitioned schema the statement touches one partition of each.
+     * <p>
+     * The cart row is read {@code FOR KEY SHARE}, which stands in for the foreign key the partitioned
+     * schema cannot have: a sweep that deletes the cart either waits for this statement's transaction,
+     * or has already deleted it, and then no line is written.
+     */
+    @Query(nativeQuery = true, value = """
+            WITH c AS (
+                SELECT id, version FROM cart WHERE user_id = :userId FOR KEY SHARE
+            ), old AS (
+                SELECT sub_total_minor FROM cart_item WHERE cart_id = (SELECT id FROM c) AND product_id = :productId
+            ), line AS (
+                INSERT INTO cart_item (id, cart_id, product_id, product_name, price_minor, quantity, sub_total_minor)
+                SELECT nextval('cart_item_seq'), c.id, :productId, :productName, :priceMinor, :quantity, :priceMinor * :quantity FROM c
+                ON CONFLICT (cart_id, product_id) DO UPDATE
+                    SET quantity = cart_item.quantity + EXCLUDED.quantity,
+                        product_name = EXCLUDED.product_name,
+                        price_minor = EXCLUDED.price_minor,
+                        sub_total_minor = EXCLUDED.price_minor * (cart_item.quantity + EXCLUDED.quantity)
+                RETURNING sub_total_minor
+            )
+            UPDATE cart
+            SET total_price_minor = cart.total_price_minor + (SELECT sub_total_minor FROM line) - COALESCE((SELECT sub_total_minor FROM old), 0),
+                version = cart.version + 1,
+                updated_at = now()
+            FROM c
+            WHERE cart.user_id = :userId AND cart.id = c.id AND cart.version = c.version
+            RETURNING cart.id AS "id", cart.user_id AS "userId", cart.total_price_minor AS "totalPriceMinor", cart.version AS "version"
+            """)
+    Optional<CartTotalsView> upsertItem(Long userId, Long productId, String productName, long priceMinor, int quantity);
 }
@@ -0,0 +1,20 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.CartItemRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Reactive profile only
+public interface CartItemRowRepository extends R2dbcRepository<CartItemRow, Long> {
+
+    Flux<CartItemRow> findByCartIdOrderById(Long cartId);
+
+    Mono<CartItemRow> findByCartIdAndProductId(Long cartId, Long productId);
+
+    @Modifying
+    @Query("DELETE FROM cart_item WHERE cart_id = :cartId")
+    Mono<Integer> deleteByCartId(Long cartId);
+}
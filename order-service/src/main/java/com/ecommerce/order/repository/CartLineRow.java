@@ -0,0 +1,19 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.common.libraray.money.Money;
+
+/**
+ * One row of the cart read query: the cart header repeated on every line. A cart without items
+ * yields a single row whose item columns are all null.
+ */
+public record CartLineRow(Long cartId,
+                          Long userId,
+                          Money totalPrice,
+                          Long version,
+                          Long itemId,
+                          Long productId,
+                          String productName,
+                          Integer quantity,
+                          Money price,
+                          Money subTotal) {
+}
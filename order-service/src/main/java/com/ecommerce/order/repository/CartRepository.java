@@ -1,10 +1,42 @@
 package com.ecommerce.order.repository;
 
 import com.ecommerce.order.entity.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
+    // Items are fetched with the cart, so callers may use them outside the transaction
+    @EntityGraph(attributePaths = "items")
     Optional<Cart> findByUserId(Long userId);
+
+    /**
+     * Read path for the cart view: header and lines in one SQL statement, without managed entities.
+     */
+    @Query("""
+            select new com.ecommerce.order.repository.CartLineRow(
+                c.id, c.userId, c.totalPrice, c.version, i.id, i.productId, i.productName, i.quantity, i.price, i.subTotal)
+            from Cart c left join c.items i
+            where c.userId = :userId
+            order by i.id
+            """)
+    List<CartLineRow> findCartLinesByUserId(Long userId);
+
+    boolean existsByUserId(Long userId);
+
+    // Cheap If-None-Match check: two columns of the cart row, items are not touched
+    Optional<CartVersionView> findVersionByUserId(Long userId);
+
+    @EntityGraph(attributePaths = "items")
+    List<Cart> findAllByUserIdIn(Collection<Long> userIds);
+
+    @Query(nativeQuery = true, value = """
+            SELECT id AS "id", user_id AS "userId", total_price_minor AS "totalPriceMinor", version AS "version"
+            FROM cart WHERE user_id = :userId
+            """)
+    Optional<CartTotalsView> findTotalsByUserId(Long userId);
 }
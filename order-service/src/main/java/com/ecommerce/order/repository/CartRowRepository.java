@@ -0,0 +1,11 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.CartRow;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Mono;
+
+// Reactive profile only
+public interface CartRowRepository extends R2dbcRepository<CartRow, Long> {
+
+    Mono<CartRow> findByUserId(Long userId);
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.common.libraray.money.Money;
+
+/**
+ * Cart header as returned by the single-statement add path, without items.
+ */
+public interface CartTotalsView {
+    Long getId();
+    Long getUserId();
+    long getTotalPriceMinor();
+    Long getVersion();
+
+    default Money getTotalPrice() {
+        return Money.ofMinor(getTotalPriceMinor());
+    }
+}
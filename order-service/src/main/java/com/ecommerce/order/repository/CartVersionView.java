@@ -0,0 +1,9 @@
+package com.ecommerce.order.repository;
+
+/**
+ * Just enough of a cart to tell whether a client's copy is current.
+ */
+public interface CartVersionView {
+    Long getId();
+    Long getVersion();
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Turns a claim for this request into a completed record; returns 0 if that claim is gone
+    @Modifying
+    @Query("""
+            update IdempotencyRecord r
+            set r.statusCode = :statusCode, r.contentType = :contentType, r.eTag = :eTag, r.body = :body, r.expiresAt = :expiresAt
+            where r.idempotencyKey = :key and r.requestFingerprint = :fingerprint and r.statusCode is null
+            """)
+    int complete(String key, String fingerprint, int statusCode, String contentType, String eTag, String body,
+                 Instant expiresAt);
+
+    // Gives up a claim so that a retry executes the request again
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.statusCode is null")
+    int release(String key);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.expiresAt < :now")
+    int deleteIfExpired(String key, Instant now);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
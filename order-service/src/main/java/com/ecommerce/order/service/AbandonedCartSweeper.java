@@ -0,0 +1,198 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.repository.CartArchiveRepository;
+import com.ecommerce.order.sharding.CartShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves carts nobody updated for {@code cart.sweeper.max-idle} from {@code cart}/{@code cart_item}
+ * into {@code cart_archive}/{@code cart_item_archive}, so the live tables and their indexes only hold
+ * carts in use. {@link CartService} moves an archived cart back on the user's next visit.
+ * <p>
+ * A sweep walks {@code cart} in primary-key order, one window of {@code batchSize} rows per
+ * transaction, each window starting after the last id of the previous one; no statement scans the
+ * whole table and no transaction locks more than one window. Idle carts are locked with
+ * {@code SKIP LOCKED}, so a cart that is being written right now is left for the next sweep. The
+ * sweep pauses {@code pauseBetweenBatches} after every window. With {@code dryRun} nothing is
+ * moved or locked, only counted. With sharding, each shard is swept in turn into its own archive tables.
+ * <p>
+ * Sweeps are scheduled once the application is ready, never while the context is still starting. On
+ * shutdown a running sweep finishes its current window and stops at the next pause.
+ * <p>
+ * Meters: {@code cart.sweeper.carts} and {@code cart.sweeper.items} (tagged {@code mode=archive|dry-run}),
+ * {@code cart.sweeper.batch} (time per window) and {@code cart.sweeper.position} (last cart id
+ * covered by the running sweep on the current shard, 0 between sweeps).
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.sweeper", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AbandonedCartSweeper implements DisposableBean {
+
+    private final CartArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartShards cartShards;
+    private final CartProperties.Sweeper config;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cart-sweeper").daemon().factory());
+    // Scheduled and manual sweeps never overlap
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final CountDownLatch stopping = new CountDownLatch(1);
+    private final AtomicLong position = new AtomicLong();
+
+    private final MeterRegistry meterRegistry;
+    private final Timer batchTimer;
+
+    public AbandonedCartSweeper(CartArchiveRepository archiveRepository, TransactionTemplate transactionTemplate,
+                                CartShards cartShards, CartProperties properties, MeterRegistry meterRegistry) {
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cartShards = cartShards;
+        this.config = properties.getSweeper();
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("cart.sweeper.position", position, AtomicLong::get)
+                .description("Last cart id covered by the running sweep")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.sweeper.batch")
+                .description("Time to sweep one window of carts")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = config.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one sweep over all carts, waiting for a sweep already in progress to finish first.
+     */
+    public SweepResult sweep() {
+        sweepLock.lock();
+        try {
+            boolean dryRun = config.isDryRun();
+            LocalDateTime idleSince = LocalDateTime.now().minus(config.getMaxIdle());
+            String mode = dryRun ? "dry-run" : "archive";
+            Counter cartCounter = counter("cart.sweeper.carts", "Carts archived by the sweeper", mode);
+            Counter itemCounter = counter("cart.sweeper.items", "Cart items archived by the sweeper", mode);
+
+            long carts = 0;
+            long items = 0;
+            int batches = 0;
+            shards:
+            for (String shard : cartShards.shards()) {
+                long afterId = 0;
+                position.set(0);
+                while (true) {
+                    long start = System.nanoTime();
+                    long windowStart = afterId;
+                    Window window = cartShards.onShard(shard,
+                            () -> transactionTemplate.execute(status -> sweepWindow(windowStart, idleSince, dryRun)));
+                    batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (window == null) {
+                        break;
+                    }
+                    batches++;
+                    carts += window.carts();
+                    items += window.items();
+                    cartCounter.increment(window.carts());
+                    itemCounter.increment(window.items());
+                    afterId = window.end();
+                    position.set(afterId);
+                    if (!pause()) {
+                        break shards;
+                    }
+                }
+            }
+            log.info("Cart sweep {}: {} carts with {} items idle since {}, {} batches",
+                    dryRun ? "(dry run) found" : "archived", carts, items, idleSince, batches);
+            return new SweepResult(carts, items, batches, dryRun);
+        } finally {
+            position.set(0);
+            sweepLock.unlock();
+        }
+    }
+
+    // Null once there are no carts after afterId
+    private Window sweepWindow(long afterId, LocalDateTime idleSince, boolean dryRun) {
+        Optional<Long> end = archiveRepository.findWindowEnd(afterId, config.getBatchSize());
+        if (end.isEmpty()) {
+            return null;
+        }
+        if (dryRun) {
+            List<Long> idle = archiveRepository.findIdleCarts(afterId, end.get(), idleSince);
+            return new Window(end.get(), idle.size(), idle.isEmpty() ? 0 : archiveRepository.countItemsOf(idle));
+        }
+        List<Long> idle = archiveRepository.lockIdleCarts(afterId, end.get(), idleSince);
+        if (idle.isEmpty()) {
+            return new Window(end.get(), 0, 0);
+        }
+        archiveRepository.archiveCarts(idle, LocalDateTime.now());
+        int items = archiveRepository.archiveItems(idle);
+        archiveRepository.deleteItemsOf(idle);
+        archiveRepository.deleteCarts(idle);
+        return new Window(end.get(), idle.size(), items);
+    }
+
+    // False if the sweep should stop because the application is shutting down
+    private boolean pause() {
+        try {
+            return !stopping.await(config.getPauseBetweenBatches().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter counter(String name, String description, String mode) {
+        return Counter.builder(name).tag("mode", mode)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException ex) {
+            log.error("Cart sweep failed", ex);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        stopping.countDown();
+        scheduler.shutdown();
+        // A window commits or rolls back in well under this; interrupting it would only break its connection
+        if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Cart sweep did not stop within 30s, interrupting it");
+            scheduler.shutdownNow();
+        }
+    }
+
+    private record Window(long end, int carts, long items) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.entity.Cart;
+
+import java.util.List;
+
+/**
+ * The cart after a multi-item add, with one result per requested line in request order.
+ * The cart is null when no line was accepted and the user had no cart.
+ */
+public record BulkAddResult(Cart cart, List<CartLineResult> results) {
+
+    public boolean anyAdded() {
+        return results.stream().anyMatch(result -> result.status() == CartLineResult.Status.ADDED);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ecommerce.order.service;
+
+/**
+ * One requested line of a multi-item cart mutation.
+ */
+public record CartLine(Long productId, int quantity) {
+}
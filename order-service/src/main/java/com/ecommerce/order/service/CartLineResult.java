@@ -0,0 +1,14 @@
+package com.ecommerce.order.service;
+
+/**
+ * Outcome of one requested line of a multi-item cart mutation.
+ */
+public record CartLineResult(Long productId, int quantity, Status status) {
+
+    public enum Status {
+        ADDED,
+        INVALID_QUANTITY,
+        PRODUCT_NOT_FOUND,
+        PRODUCT_INACTIVE
+    }
+}
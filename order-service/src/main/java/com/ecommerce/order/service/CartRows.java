@@ -0,0 +1,12 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.entity.CartItemRow;
+import com.ecommerce.order.entity.CartRow;
+
+import java.util.List;
+
+/**
+ * A cart as read by the reactive profile; {@code items} is null when they were deliberately not loaded.
+ */
+public record CartRows(CartRow cart, List<CartItemRow> items) {
+}
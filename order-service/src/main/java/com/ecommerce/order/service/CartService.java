@@ -1,39 +1,86 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
 import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.cache.CartResponseCache;
+import com.ecommerce.order.cache.ProductNearCache;
 import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.config.CartProperties;
 import com.ecommerce.order.entity.*;
 import com.ecommerce.order.repository.*;
-import jakarta.transaction.Transactional;
+import com.ecommerce.order.sharding.CartShardMover;
+import com.ecommerce.order.sharding.CartShards;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
+@Slf4j
 @Service
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class CartService {
 
+    // SQL state of a unique-key violation, in Postgres and H2 alike
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final CartArchiveRepository cartArchiveRepository;
     private final ProductClient productClient;
+    private final ProductNearCache productNearCache;
+    private final TransactionTemplate transactionTemplate;
+    private final CartProperties cartProperties;
+    private final CartShards cartShards;
+    private final CartShardMover cartShardMover;
+    // Mutations below update it only after their transaction has committed
+    private final CartResponseCache cartResponseCache;
 
-
-    @Transactional
     public Cart addToCart(Long userId, Long productId, int quantity) {
+        Cart cart = onShardOf(userId, () -> doAddToCart(userId, productId, quantity));
+        cartResponseCache.put(cart);
+        return cart;
+    }
 
-        // Retrieve product safely
+    private Cart doAddToCart(Long userId, Long productId, int quantity) {
+        if (cartProperties.isUpsertFastPath()) {
+            doAddItem(userId, productId, quantity);
+            return getCartOf(userId);
+        }
+
+        // Retrieve product safely (outside the transaction, nothing to retry there)
         ProductResponseDTO product = fetchProductOrThrow(productId);
 
-        // Retrieve or create cart
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseGet(() -> createNewCart(userId));
+        return inTransactionWithRetry(() -> {
+            // Retrieve or create cart
+            Cart cart = findCartOf(userId)
+                    .orElseGet(() -> createNewCart(userId));
 
-        // Find or create item (thread-safe with synchronized block on cart)
-        synchronized (cart) {
             CartItem item = cart.getItems().stream()
                     .filter(i -> i.getProductId().equals(productId))
                     .findFirst()
@@ -41,27 +88,236 @@ public class CartService {
 
             // Always refresh product info to reflect current data
             item.setProductName(product.getName());
-            item.setPrice(product.getPrice());
-            item.setQuantity(item.getQuantity() + quantity);
-            item.calculateSubTotal();
+            cart.adjustTotalPrice(item.reprice(product.getPrice(), item.getQuantity() + quantity));
 
-            cart.calculateTotalPrice();
+            // Persist changes (cascade should handle items); the version check happens on flush
+            return cartRepository.saveAndFlush(cart);
+        });
+    }
+
+    /**
+     * Hot path of add-to-cart: O(1) database work regardless of cart size and no items loaded.
+     * Returns only the updated cart header; callers that need the items read the cart afterwards.
+     */
+    public CartTotalsView addItem(Long userId, Long productId, int quantity) {
+        CartTotalsView totals = onShardOf(userId, () -> doAddItem(userId, productId, quantity));
+        cartResponseCache.fence(userId, totals.getId(), totals.getVersion());
+        return totals;
+    }
+
+    private CartTotalsView doAddItem(Long userId, Long productId, int quantity) {
+        if (!cartProperties.isUpsertFastPath()) {
+            doAddToCart(userId, productId, quantity);
+            return cartRepository.findTotalsByUserId(userId).orElseThrow();
         }
 
-        // Persist changes (cascade should handle items)
-        return cartRepository.saveAndFlush(cart);
+        ProductResponseDTO product = fetchProductOrThrow(productId);
+
+        return inTransactionWithRetry(() -> upsertItem(userId, product, quantity)
+                .or(() -> {
+                    // Either there is no cart yet, or it changed under us (then the insert below conflicts too)
+                    if (cartRepository.existsByUserId(userId)) {
+                        throw new ObjectOptimisticLockingFailureException(Cart.class, userId);
+                    }
+                    if (!restoreArchivedCart(userId)) {
+                        createNewCart(userId);
+                    }
+                    return upsertItem(userId, product, quantity);
+                })
+                .orElseThrow(() -> new ObjectOptimisticLockingFailureException(Cart.class, userId)));
+    }
+
+    /**
+     * Adds many lines in one transaction after resolving all their products with one batched call.
+     * Lines that fail validation are reported and skipped; the others are applied together, and new
+     * items go out as one JDBC insert batch.
+     */
+    public BulkAddResult addItems(Long userId, List<CartLine> lines) {
+        BulkAddResult result = onShardOf(userId, () -> doAddItems(userId, lines));
+        cartResponseCache.put(result.cart());
+        return result;
+    }
+
+    private BulkAddResult doAddItems(Long userId, List<CartLine> lines) {
+        ResolvedLines resolved = resolveLines(lines);
+        if (resolved.accepted().isEmpty()) {
+            return new BulkAddResult(findCartOf(userId).orElse(null), resolved.results());
+        }
+
+        Cart updated = inTransactionWithRetry(() -> {
+            Cart cart = findCartOf(userId)
+                    .orElseGet(() -> createNewCart(userId));
+
+            Map<Long, CartItem> itemsByProduct = new HashMap<>();
+            cart.getItems().forEach(item -> itemsByProduct.put(item.getProductId(), item));
+
+            for (AcceptedLine line : resolved.accepted()) {
+                CartItem item = itemsByProduct.computeIfAbsent(line.product().getId(), id -> createNewItem(cart, line.product()));
+                item.setProductName(line.product().getName());
+                cart.adjustTotalPrice(item.reprice(line.product().getPrice(), item.getQuantity() + line.quantity()));
+            }
+            return cartRepository.saveAndFlush(cart);
+        });
+        return new BulkAddResult(updated, resolved.results());
+    }
+
+    // Validates every line against product data fetched in one batched call
+    ResolvedLines resolveLines(List<CartLine> lines) {
+        Map<Long, ProductResponseDTO> products = fetchProductsOrThrow(lines.stream()
+                .filter(line -> line.productId() != null && line.quantity() > 0)
+                .map(CartLine::productId)
+                .toList());
+
+        List<CartLineResult> results = new ArrayList<>(lines.size());
+        List<AcceptedLine> accepted = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            ProductResponseDTO product = line.productId() == null ? null : products.get(line.productId());
+            CartLineResult.Status status;
+            if (line.quantity() <= 0) {
+                status = CartLineResult.Status.INVALID_QUANTITY;
+            } else if (product == null) {
+                status = CartLineResult.Status.PRODUCT_NOT_FOUND;
+            } else if (!product.isActive()) {
+                status = CartLineResult.Status.PRODUCT_INACTIVE;
+            } else {
+                status = CartLineResult.Status.ADDED;
+                accepted.add(new AcceptedLine(product, line.quantity()));
+            }
+            results.add(new CartLineResult(line.productId(), line.quantity(), status));
+        }
+        return new ResolvedLines(results, accepted);
+    }
+
+    record AcceptedLine(ProductResponseDTO product, int quantity) {
+    }
+
+    record ResolvedLines(List<CartLineResult> results, List<AcceptedLine> accepted) {
+    }
+
+    private Optional<CartTotalsView> upsertItem(Long userId, ProductResponseDTO product, int quantity) {
+        return cartItemRepository.upsertItem(userId, product.getId(), product.getName(),
+                product.getPrice().minorUnits(), quantity);
+    }
+
+    /**
+     * Runs a call on the user's shard, after moving their cart there if a ring change left it on the
+     * previous owner. Every repository call and transaction inside then stays on that shard.
+     */
+    <T> T onShardOf(Long userId, Supplier<T> work) {
+        return cartShards.onShardOf(userId, () -> {
+            cartShardMover.moveToOwner(userId);
+            return work.get();
+        });
     }
 
-    private ProductResponseDTO fetchProductOrThrow(Long productId) {
+    /**
+     * Runs one cart mutation in its own transaction and replays it when another writer got there first:
+     * a stale {@code Cart.version}, a lock conflict or deadlock, or a concurrent insert of the same cart or cart line.
+     * Every attempt re-reads the cart, so nothing from a losing attempt leaks into the next one.
+     */
+    private <T> T inTransactionWithRetry(Supplier<T> work) {
+        CartProperties.Concurrency policy = cartProperties.getConcurrency();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException ex) {
+                if (!isWriteConflict(ex)) {
+                    throw ex;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    log.warn("Cart update still conflicting after {} attempts", attempt);
+                    throw ex;
+                }
+                backOff(policy, attempt, ex);
+            }
+        }
+    }
+
+    /**
+     * Whether a failed cart write lost a race and is worth replaying: a stale version, a lock conflict or
+     * deadlock, or a duplicate of the user's cart ({@code uk_cart_user}) or of a line
+     * ({@code uk_cart_item_product}), the only unique keys two writers can both be inserting. Not-null,
+     * foreign-key and length violations fail the same way on every attempt and are not retried.
+     */
+    static boolean isWriteConflict(Throwable ex) {
+        if (ex instanceof ConcurrencyFailureException || ex instanceof DuplicateKeyException) {
+            return true;
+        }
+        if (!(ex instanceof DataIntegrityViolationException)) {
+            return false;
+        }
+        // JPA reports duplicates as a plain DataIntegrityViolationException; the driver's SQL state tells them apart
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void backOff(CartProperties.Concurrency policy, int attempt, RuntimeException conflict) {
+        long base = policy.getBackoff().toMillis();
         try {
-            return productClient.getProductById(productId);
-        } catch (WebClientResponseException.NotFound ex) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for ID: " + productId);
+            Thread.sleep(base * attempt + ThreadLocalRandom.current().nextLong(base + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    ProductResponseDTO fetchProductOrThrow(Long productId) {
+        ProductResponseDTO product;
+        try {
+            // Served from the near-cache; misses are coalesced into batched calls
+            product = productNearCache.getProductById(productId);
         } catch (WebClientResponseException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to contact product service: " + ex.getStatusText());
+        } catch (CallNotPermittedException | BulkheadFullException | WebClientRequestException ex) {
+            throw productServiceUnavailable(ex);
+        } catch (DecodingException ex) {
+            // Product data we cannot represent, such as an off-scale price; GlobalExceptionHandler answers 502
+            throw ex;
         } catch (Exception ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error while fetching product", ex);
         }
+        if (product == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for ID: " + productId);
+        }
+        return product;
+    }
+
+    private Map<Long, ProductResponseDTO> fetchProductsOrThrow(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        Map<Long, ProductResponseDTO> products = new HashMap<>();
+        if (ids.isEmpty()) {
+            return products;
+        }
+        try {
+            for (int from = 0; from < ids.size(); from += ProductClient.MAX_BATCH_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + ProductClient.MAX_BATCH_SIZE, ids.size()));
+                ProductBatchResponseDTO batch = productClient.getProductsByIds(chunk);
+                batch.getProducts().forEach(p -> {
+                    products.put(p.getId(), p);
+                    productNearCache.put(p);
+                });
+            }
+            return products;
+        } catch (WebClientResponseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to contact product service: " + ex.getStatusText());
+        } catch (CallNotPermittedException | BulkheadFullException | WebClientRequestException ex) {
+            throw productServiceUnavailable(ex);
+        } catch (DecodingException ex) {
+            // Product data we cannot represent, such as an off-scale price; GlobalExceptionHandler answers 502
+            throw ex;
+        } catch (Exception ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error while fetching products", ex);
+        }
+    }
+
+    // Breaker open, bulkhead full, or no response in time: fail fast and let the client retry later
+    private ResponseStatusException productServiceUnavailable(RuntimeException cause) {
+        log.debug("Product service call not completed: {}", cause.toString());
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product service unavailable, try again later", cause);
     }
 
     private Cart createNewCart(Long userId) {
@@ -74,56 +330,144 @@ public class CartService {
     private CartItem createNewItem(Cart cart, ProductResponseDTO product) {
         CartItem item = CartItem.builder()
                 .cart(cart)
+                .cartId(cart.getId())
                 .productId(product.getId())
                 .productName(product.getName())
                 .price(product.getPrice())
                 .quantity(0)
+                .subTotal(Money.ZERO)
                 .build();
         cart.getItems().add(item);
         return item;
     }
 
     public Cart getCartOf(Long userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+        return onShardOf(userId, () -> findCartOf(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found")));
+    }
+
+    public Optional<CartVersionView> getCartVersionOf(Long userId) {
+        return onShardOf(userId, () -> cartRepository.findVersionByUserId(userId)
+                .or(() -> restoreArchivedCart(userId) ? cartRepository.findVersionByUserId(userId) : Optional.empty()));
     }
 
-    @Transactional
-    public void removeItemFromCart(Long userId, Long itemId) {
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart item not found"));
+    // Read-only view of the cart, built from a single query
+    public List<CartLineRow> getCartLinesOf(Long userId) {
+        return onShardOf(userId, () -> doGetCartLinesOf(userId));
+    }
 
-        // ownership check
-        if (!item.getCart().getId().equals(userId)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't modify another user's cart");
+    private List<CartLineRow> doGetCartLinesOf(Long userId) {
+        List<CartLineRow> rows = cartRepository.findCartLinesByUserId(userId);
+        if (rows.isEmpty() && restoreArchivedCart(userId)) {
+            rows = cartRepository.findCartLinesByUserId(userId);
+        }
+        if (rows.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found");
         }
+        return rows;
+    }
 
-        Cart cart = item.getCart();
-        cart.getItems().remove(item);
+    /**
+     * Re-prices every item of the user's cart with a single batched call to product-service.
+     * Items whose product is gone or inactive keep their last known data and are reported back.
+     */
+    public RefreshedCart refreshCartOf(Long userId) {
+        RefreshedCart refreshed = onShardOf(userId, () -> doRefreshCartOf(userId));
+        cartResponseCache.put(refreshed.cart());
+        return refreshed;
+    }
+
+    private RefreshedCart doRefreshCartOf(Long userId) {
+        // Ask product-service before opening the transaction
+        List<Long> productIds = cartItemRepository.findProductIdsByUserId(userId);
+        if (productIds.isEmpty() && restoreArchivedCart(userId)) {
+            productIds = cartItemRepository.findProductIdsByUserId(userId);
+        }
+        Map<Long, ProductResponseDTO> products = fetchProductsOrThrow(productIds);
+
+        return inTransactionWithRetry(() -> {
+            Cart cart = findCartOf(userId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+
+            List<Long> unavailableProductIds = new ArrayList<>();
+            for (CartItem item : cart.getItems()) {
+                ProductResponseDTO product = products.get(item.getProductId());
+                if (product == null || !product.isActive()) {
+                    unavailableProductIds.add(item.getProductId());
+                    continue;
+                }
+                item.setProductName(product.getName());
+                cart.adjustTotalPrice(item.reprice(product.getPrice(), item.getQuantity()));
+            }
+
+            return new RefreshedCart(cartRepository.saveAndFlush(cart), unavailableProductIds);
+        });
+    }
+
+    /**
+     * The user's cart, with its items. A cart the {@link AbandonedCartSweeper} archived is moved back
+     * first, so callers cannot tell it was ever gone.
+     */
+    Optional<Cart> findCartOf(Long userId) {
+        Optional<Cart> cart = cartRepository.findByUserId(userId);
+        if (cart.isPresent() || !restoreArchivedCart(userId)) {
+            return cart;
+        }
+        return cartRepository.findByUserId(userId);
+    }
+
+    /**
+     * Moves the user's archived cart back, in the caller's transaction if there is one. Users without
+     * an archived cart, the common case for a read that found no cart, cost one index lookup and no
+     * write transaction; a concurrent restore of the same cart turns this one into a no-op.
+     */
+    private boolean restoreArchivedCart(Long userId) {
+        if (!cartArchiveRepository.existsByUserId(userId)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (cartArchiveRepository.restoreCart(userId, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            cartArchiveRepository.restoreItems(userId);
+            cartArchiveRepository.deleteArchivedItemsOf(userId);
+            cartArchiveRepository.deleteArchivedCartsOf(userId);
+            log.debug("Restored archived cart of user {}", userId);
+            return true;
+        }));
+    }
+
+    public Cart removeItemFromCart(Long userId, Long itemId) {
+        Cart cart = onShardOf(userId, () -> inTransactionWithRetry(() -> doRemoveItemFromCart(userId, itemId)));
+        cartResponseCache.put(cart);
+        return cart;
+    }
+
+    private Cart doRemoveItemFromCart(Long userId, Long itemId) {
+        // Found through the user's cart, so both lookups carry their partition key
+        Optional<Cart> owned = findCartOf(userId);
+        CartItem item = owned.flatMap(cart -> cart.getItems().stream()
+                        .filter(candidate -> candidate.getId().equals(itemId))
+                        .findFirst())
+                // ownership check
+                .orElseThrow(() -> cartItemRepository.existsById(itemId)
+                        ? new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't modify another user's cart")
+                        : new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart item not found"));
+
+        Cart cart = owned.get();
+        cart.removeItem(item);
         cartItemRepository.delete(item);
-        cart.calculateTotalPrice();
-        cartRepository.save(cart);
-    }
-
-    @Transactional
-    public void clearCart(Long userId) {
-        Cart cart = getCartOf(userId);
-        cart.getItems().clear();
-        cart.setTotalPrice(java.math.BigDecimal.ZERO);
-        cartRepository.save(cart);
-    }
-
-//    private Mono<ProductResponseDTO> getProductById(Long productId) {
-//        return productWebClient
-//                .get()
-//                .uri("/products/{productId}", productId)
-//                .retrieve()
-//                .onStatus(HttpStatusCode::is4xxClientError, response ->
-//                        Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"))
-//                )
-//                .onStatus(HttpStatusCode::is5xxServerError, response ->
-//                        Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Product service unavailable"))
-//                )
-//                .bodyToMono(ProductResponseDTO.class);
-//    }
+        return cartRepository.saveAndFlush(cart);
+    }
+
+    public Cart clearCart(Long userId) {
+        Cart cleared = onShardOf(userId, () -> inTransactionWithRetry(() -> {
+            Cart cart = findCartOf(userId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+            cart.clearItems();
+            return cartRepository.saveAndFlush(cart);
+        }));
+        cartResponseCache.put(cleared);
+        return cleared;
+    }
 }
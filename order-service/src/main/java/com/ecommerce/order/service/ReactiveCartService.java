@@ -0,0 +1,171 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.client.ReactiveProductClient;
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.entity.CartItemRow;
+import com.ecommerce.order.entity.CartRow;
+import com.ecommerce.order.repository.CartItemRowRepository;
+import com.ecommerce.order.repository.CartRowRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Cart operations of the reactive profile: the same rules as {@link CartService}, on R2DBC and a
+ * non-blocking product client, so no thread ever waits for the database or product-service.
+ * <p>
+ * Mutations run in one transaction each and are replayed on the same conflicts as in
+ * {@code CartService} (stale version, concurrent insert of the cart or a line).
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveCartService {
+
+    private final CartRowRepository cartRepository;
+    private final CartItemRowRepository cartItemRepository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final DatabaseClient databaseClient;
+    private final ReactiveProductClient productClient;
+    private final TransactionalOperator transactionalOperator;
+    private final CartProperties cartProperties;
+
+    /**
+     * @param includeItems whether to read the items back; without them only the cart header is returned
+     */
+    public Mono<CartRows> addToCart(Long userId, Long productId, int quantity, boolean includeItems) {
+        // Ask product-service before opening the transaction
+        return fetchProductOrError(productId)
+                .flatMap(product -> inTransactionWithRetry(() -> cartRepository.findByUserId(userId)
+                        .switchIfEmpty(Mono.defer(() -> createNewCart(userId)))
+                        .flatMap(cart -> cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)
+                                .flatMap(item -> addQuantity(cart, item, product, quantity, false))
+                                .switchIfEmpty(Mono.defer(() -> addQuantity(cart, newItem(cart, product), product, quantity, true))))))
+                .flatMap(cart -> includeItems ? withItems(cart) : Mono.just(new CartRows(cart, null)));
+    }
+
+    public Mono<CartRow> getCartHeaderOf(Long userId) {
+        return cartRepository.findByUserId(userId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found")));
+    }
+
+    public Mono<CartRows> withItems(CartRow cart) {
+        return cartItemRepository.findByCartIdOrderById(cart.getId())
+                .collectList()
+                .map(items -> new CartRows(cart, items));
+    }
+
+    public Mono<CartRow> removeItemFromCart(Long userId, Long itemId) {
+        return inTransactionWithRetry(() -> cartItemRepository.findById(itemId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart item not found")))
+                .flatMap(item -> cartRepository.findById(item.getCartId())
+                        // ownership check
+                        .filter(cart -> cart.getUserId().equals(userId))
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't modify another user's cart")))
+                        .flatMap(cart -> {
+                            cart.adjustTotalPrice(Money.ZERO.minus(item.getSubTotal()));
+                            return cartItemRepository.delete(item).then(cartRepository.save(cart));
+                        })));
+    }
+
+    public Mono<CartRow> clearCart(Long userId) {
+        return inTransactionWithRetry(() -> getCartHeaderOf(userId)
+                .flatMap(cart -> {
+                    cart.setTotalPrice(Money.ZERO);
+                    cart.setUpdatedAt(LocalDateTime.now());
+                    return cartItemRepository.deleteByCartId(cart.getId()).then(cartRepository.save(cart));
+                }));
+    }
+
+    // The item is written first; saving the cart then fails if another writer moved its version meanwhile
+    private Mono<CartRow> addQuantity(CartRow cart, CartItemRow item, ProductResponseDTO product, int quantity, boolean isNew) {
+        item.setProductName(product.getName());
+        cart.adjustTotalPrice(item.reprice(product.getPrice(), item.getQuantity() + quantity));
+        Mono<CartItemRow> written = isNew
+                ? nextId("cart_item_seq").flatMap(id -> {
+                    item.setId(id);
+                    return entityTemplate.insert(item);
+                })
+                : cartItemRepository.save(item);
+        return written.then(cartRepository.save(cart));
+    }
+
+    private Mono<CartRow> createNewCart(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return nextId("cart_seq").flatMap(id -> entityTemplate.insert(CartRow.builder()
+                .id(id)
+                .userId(userId)
+                .totalPrice(Money.ZERO)
+                .createdAt(now)
+                .updatedAt(now)
+                .build()));
+    }
+
+    private CartItemRow newItem(CartRow cart, ProductResponseDTO product) {
+        return CartItemRow.builder()
+                .cartId(cart.getId())
+                .productId(product.getId())
+                .productName(product.getName())
+                .price(product.getPrice())
+                .quantity(0)
+                .subTotal(Money.ZERO)
+                .build();
+    }
+
+    /**
+     * Ids come from the sequences Hibernate uses, one {@code nextval} per row. The pooled optimizer
+     * only hands out ids at or below values it fetched itself, so the two stacks never collide.
+     */
+    private Mono<Long> nextId(String sequence) {
+        return databaseClient.sql("SELECT nextval('" + sequence + "')")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * Runs one cart mutation in its own transaction and replays it when another writer got there first,
+     * on the same lost races as {@link CartService#isWriteConflict}. Every attempt re-reads the cart, so
+     * nothing from a losing attempt leaks into the next one.
+     */
+    private <T> Mono<T> inTransactionWithRetry(Supplier<Mono<T>> work) {
+        CartProperties.Concurrency policy = cartProperties.getConcurrency();
+        return Mono.defer(() -> transactionalOperator.transactional(work.get()))
+                .retryWhen(Retry.backoff(policy.getMaxAttempts() - 1, policy.getBackoff())
+                        .filter(CartService::isWriteConflict)
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            log.warn("Cart update still conflicting after {} attempts", signal.totalRetries() + 1);
+                            return signal.failure();
+                        }));
+    }
+
+    private Mono<ProductResponseDTO> fetchProductOrError(Long productId) {
+        return productClient.getProductById(productId)
+                .onErrorMap(WebClientResponseException.NotFound.class,
+                        ex -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for ID: " + productId))
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to contact product service: " + ex.getStatusText()))
+                // Breaker open, bulkhead full, or no response in time: fail fast and let the client retry later
+                .onErrorMap(ex -> ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException
+                                || ex instanceof WebClientRequestException,
+                        ex -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product service unavailable, try again later", ex))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for ID: " + productId)));
+    }
+}
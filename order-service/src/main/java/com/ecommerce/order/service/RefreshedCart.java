@@ -0,0 +1,12 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.entity.Cart;
+
+import java.util.List;
+
+/**
+ * A cart whose items were re-priced against product-service, together with
+ * the product ids that could not be refreshed.
+ */
+public record RefreshedCart(Cart cart, List<Long> unavailableProductIds) {
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.order.service;
+
+/**
+ * Outcome of one {@link AbandonedCartSweeper} run: carts and items archived, or that would have been
+ * in a dry run, and the number of windows scanned.
+ */
+public record SweepResult(long carts, long items, int batches, boolean dryRun) {
+}
@@ -0,0 +1,554 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.entity.CartItem;
+import com.ecommerce.order.repository.CartRepository;
+import com.ecommerce.order.sharding.CartShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional high-throughput mode ({@code cart.write-behind.enabled=true}) in which active carts live
+ * in memory and are persisted asynchronously.
+ * <p>
+ * Every user's cart has a single writer: mutations take that cart's lock, are applied in memory and
+ * acknowledged right away. Dirty carts are written to Postgres on a timer or once
+ * {@code dirtyThreshold} carts are dirty; several mutations of one cart between flushes collapse
+ * into a single write, and carts are written {@code batchSize} per transaction. Clean carts are
+ * evicted least recently used first when more than {@code maxCarts} are resident, and everything
+ * dirty is flushed on graceful shutdown.
+ * <p>
+ * Mutations acknowledged since the last flush are lost if the process dies, and the mode assumes
+ * a user's requests are routed to one instance. Items added since the last flush have no id yet,
+ * so they can only be removed by id once flushed.
+ * Meters: {@code cart.writebehind.dirty} (queue depth), {@code cart.writebehind.flush.lag}
+ * (age of the oldest unflushed change), {@code cart.writebehind.resident},
+ * {@code cart.writebehind.flush} and {@code cart.writebehind.flush.failures}.
+ * <p>
+ * A cart that is evicted or replaced by a refresh is retired under its lock; a request that picked
+ * it up just before sees that once it holds the lock and starts over on the current one, so no
+ * acknowledged change lands on a cart that will never be flushed.
+ * <p>
+ * Carts handed out carry a store-wide version that moves on every mutation and never repeats
+ * within the process, unlike the database version which only moves per flush.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindCartStore implements DisposableBean {
+
+    private final CartService cartService;
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartShards cartShards;
+    private final CartProperties.WriteBehind config;
+
+    // Seeded from the clock so versions also differ from those of a previous run
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final Map<Long, CartState> carts = new ConcurrentHashMap<>();
+    private final AtomicInteger dirtyCarts = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cart-write-behind").daemon().factory());
+
+    private final Timer flushTimer;
+    private final Counter flushFailures;
+
+    public WriteBehindCartStore(CartService cartService, CartRepository cartRepository, TransactionTemplate transactionTemplate,
+                                CartShards cartShards, CartProperties properties, MeterRegistry meterRegistry) {
+        this.cartService = cartService;
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cartShards = cartShards;
+        this.config = properties.getWriteBehind();
+
+        Gauge.builder("cart.writebehind.dirty", dirtyCarts, AtomicInteger::get)
+                .description("Carts with changes not yet written to the database")
+                .register(meterRegistry);
+        Gauge.builder("cart.writebehind.flush.lag", this, WriteBehindCartStore::flushLagSeconds)
+                .description("Age of the oldest change not yet written to the database")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("cart.writebehind.resident", carts, Map::size)
+                .description("Carts currently held in memory")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("cart.writebehind.flush")
+                .description("Time to write one batch of dirty carts")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("cart.writebehind.flush.failures")
+                .description("Batches that failed to flush and stay dirty")
+                .register(meterRegistry);
+
+        long interval = config.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public Cart addToCart(Long userId, Long productId, int quantity) {
+        ProductResponseDTO product = cartService.fetchProductOrThrow(productId);
+        return mutate(userId, true, state -> {
+            Line line = state.lines.computeIfAbsent(productId, id -> new Line(null, id));
+            line.productName = product.getName();
+            state.totalPrice = state.totalPrice.plus(line.reprice(product.getPrice(), line.quantity + quantity));
+        });
+    }
+
+    public BulkAddResult addItems(Long userId, List<CartLine> lines) {
+        CartService.ResolvedLines resolved = cartService.resolveLines(lines);
+        if (resolved.accepted().isEmpty()) {
+            CartState state = lockedStateOf(userId);
+            try {
+                return new BulkAddResult(state.exists ? state.toCart() : null, resolved.results());
+            } finally {
+                state.lock.unlock();
+            }
+        }
+        Cart cart = mutate(userId, true, state -> {
+            for (CartService.AcceptedLine accepted : resolved.accepted()) {
+                ProductResponseDTO product = accepted.product();
+                Line line = state.lines.computeIfAbsent(product.getId(), id -> new Line(null, id));
+                line.productName = product.getName();
+                state.totalPrice = state.totalPrice.plus(line.reprice(product.getPrice(), line.quantity + accepted.quantity()));
+            }
+        });
+        return new BulkAddResult(cart, resolved.results());
+    }
+
+    // Version of the resident cart, for conditional requests; empty if the user has no cart
+    public Optional<Long> getCartVersionOf(Long userId) {
+        CartState state = lockedStateOf(userId);
+        try {
+            return state.exists ? Optional.of(state.version) : Optional.empty();
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    public Cart getCartOf(Long userId) {
+        CartState state = lockedStateOf(userId);
+        try {
+            if (!state.exists) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found");
+            }
+            return state.toCart();
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the user's pending changes, re-prices the cart in the database and reloads it, all while
+     * holding the cart's lock so no mutation slips in between.
+     */
+    public RefreshedCart refreshCartOf(Long userId) {
+        CartState state = lockedStateOf(userId);
+        try {
+            Snapshot snapshot = state.snapshotIfDirty();
+            if (snapshot != null) {
+                writeBatch(List.of(snapshot));
+            }
+            RefreshedCart refreshed = cartService.refreshCartOf(userId);
+            if (!state.isClean()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Cart could not be persisted, try again");
+            }
+            CartState reloaded = CartState.from(refreshed.cart());
+            state.retired = true;
+            carts.put(userId, reloaded);
+            return new RefreshedCart(reloaded.toCart(), refreshed.unavailableProductIds());
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    public Cart removeItemFromCart(Long userId, Long itemId) {
+        return mutate(userId, false, state -> {
+            Line line = state.lines.values().stream()
+                    .filter(candidate -> itemId.equals(candidate.itemId))
+                    .findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart item not found"));
+            state.lines.remove(line.productId);
+            state.totalPrice = state.totalPrice.minus(line.subTotal);
+        });
+    }
+
+    public Cart clearCart(Long userId) {
+        return mutate(userId, false, state -> {
+            state.lines.clear();
+            state.totalPrice = Money.ZERO;
+        });
+    }
+
+    private Cart mutate(Long userId, boolean createIfMissing, java.util.function.Consumer<CartState> change) {
+        CartState state = lockedStateOf(userId);
+        boolean becameDirty;
+        Cart result;
+        try {
+            if (!state.exists && !createIfMissing) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found");
+            }
+            change.accept(state);
+            state.exists = true;
+            becameDirty = state.markDirty();
+            result = state.toCart();
+        } finally {
+            state.lock.unlock();
+        }
+        if (becameDirty && dirtyCarts.incrementAndGet() >= config.getDirtyThreshold()) {
+            flusher.execute(this::flushQuietly);
+        }
+        return result;
+    }
+
+    // The user's current cart with its lock held; the caller unlocks
+    private CartState lockedStateOf(Long userId) {
+        while (true) {
+            CartState state = stateOf(userId);
+            state.lock.lock();
+            if (!state.retired) {
+                return state;
+            }
+            state.lock.unlock();
+        }
+    }
+
+    private CartState stateOf(Long userId) {
+        CartState state = carts.get(userId);
+        if (state == null) {
+            // Loaded outside of any map lock; a racing loader simply loses the putIfAbsent
+            CartState loaded = cartService.onShardOf(userId, () -> transactionTemplate.execute(status ->
+                    cartService.findCartOf(userId)
+                            .map(CartState::from)
+                            .orElseGet(() -> new CartState(userId))));
+            state = carts.putIfAbsent(userId, loaded);
+            if (state == null) {
+                state = loaded;
+            }
+        }
+        state.lastAccess = System.nanoTime();
+        return state;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.error("Write-behind flush failed", ex);
+        }
+    }
+
+    /**
+     * Writes every dirty cart, {@code batchSize} carts of one shard per transaction. A failed batch
+     * stays dirty and is retried on the next flush.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, List<Snapshot>> dirtyByShard = new LinkedHashMap<>();
+            for (CartState state : carts.values()) {
+                Snapshot snapshot = state.snapshotIfDirty();
+                if (snapshot != null) {
+                    dirtyByShard.computeIfAbsent(cartShards.shardOf(snapshot.userId()), shard -> new ArrayList<>()).add(snapshot);
+                }
+            }
+            for (List<Snapshot> dirty : dirtyByShard.values()) {
+                for (int from = 0; from < dirty.size(); from += config.getBatchSize()) {
+                    writeBatch(dirty.subList(from, Math.min(from + config.getBatchSize(), dirty.size())));
+                }
+            }
+            evictCleanCarts();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // All carts of a batch belong to the same shard
+    private void writeBatch(List<Snapshot> batch) {
+        long start = System.nanoTime();
+        Map<Long, Map<Long, Long>> itemIdsByUser;
+        Map<Long, Long> cartIdsByUser = new HashMap<>();
+        try {
+            itemIdsByUser = cartShards.onShardOf(batch.getFirst().userId(), () -> transactionTemplate.execute(status -> {
+                Map<Long, Cart> existing = new HashMap<>();
+                cartRepository.findAllByUserIdIn(batch.stream().map(Snapshot::userId).toList())
+                        .forEach(cart -> existing.put(cart.getUserId(), cart));
+
+                List<Cart> toSave = new ArrayList<>(batch.size());
+                for (Snapshot snapshot : batch) {
+                    Cart cart = existing.computeIfAbsent(snapshot.userId(), userId -> {
+                        Cart created = new Cart();
+                        created.setUserId(userId);
+                        created.setItems(new ArrayList<>());
+                        return created;
+                    });
+                    snapshot.applyTo(cart);
+                    toSave.add(cart);
+                }
+                cartRepository.saveAllAndFlush(toSave);
+
+                Map<Long, Map<Long, Long>> ids = new HashMap<>();
+                for (Cart cart : toSave) {
+                    cartIdsByUser.put(cart.getUserId(), cart.getId());
+                    Map<Long, Long> itemIds = new HashMap<>();
+                    cart.getItems().forEach(item -> itemIds.put(item.getProductId(), item.getId()));
+                    ids.put(cart.getUserId(), itemIds);
+                }
+                return ids;
+            }));
+        } catch (RuntimeException ex) {
+            flushFailures.increment();
+            log.warn("Failed to flush {} carts; they stay dirty", batch.size(), ex);
+            return;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        for (Snapshot snapshot : batch) {
+            CartState state = carts.get(snapshot.userId());
+            if (state != null && state.markFlushed(snapshot, cartIdsByUser.get(snapshot.userId()),
+                    itemIdsByUser.get(snapshot.userId()))) {
+                dirtyCarts.decrementAndGet();
+            }
+        }
+    }
+
+    private void evictCleanCarts() {
+        int excess = carts.size() - config.getMaxCarts();
+        if (excess <= 0) {
+            return;
+        }
+        carts.values().stream()
+                .filter(CartState::isClean)
+                .sorted(Comparator.comparingLong(state -> state.lastAccess))
+                .limit(excess)
+                .forEach(this::evict);
+    }
+
+    // Only if still clean once locked: a write may have come in since it was picked
+    private void evict(CartState state) {
+        state.lock.lock();
+        try {
+            if (state.mutations == state.flushedMutations && carts.remove(state.userId, state)) {
+                state.retired = true;
+            }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private double flushLagSeconds() {
+        long oldest = Long.MAX_VALUE;
+        for (CartState state : carts.values()) {
+            long since = state.dirtySince;
+            if (since != 0 && since < oldest) {
+                oldest = since;
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : (System.nanoTime() - oldest) / 1e9;
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        log.info("Flushing {} dirty carts before shutdown", dirtyCarts.get());
+        flush();
+    }
+
+    private static final class Line {
+        Long itemId;
+        final Long productId;
+        String productName;
+        Money price = Money.ZERO;
+        int quantity;
+        Money subTotal = Money.ZERO;
+
+        Line(Long itemId, Long productId) {
+            this.itemId = itemId;
+            this.productId = productId;
+        }
+
+        Line copy() {
+            Line copy = new Line(itemId, productId);
+            copy.productName = productName;
+            copy.price = price;
+            copy.quantity = quantity;
+            copy.subTotal = subTotal;
+            return copy;
+        }
+
+        // Same contract as CartItem.reprice: returns the change of the subtotal
+        Money reprice(Money newPrice, int newQuantity) {
+            Money previous = subTotal;
+            price = newPrice;
+            quantity = newQuantity;
+            subTotal = newPrice.times(newQuantity);
+            return subTotal.minus(previous);
+        }
+    }
+
+    private record Snapshot(Long userId, long mutation, List<Line> lines, Money totalPrice) {
+
+        void applyTo(Cart cart) {
+            Map<Long, Line> wanted = new LinkedHashMap<>();
+            lines.forEach(line -> wanted.put(line.productId, line));
+
+            // The snapshot's total is authoritative, so lines are written as they are and the total set once
+            cart.getItems().removeIf(item -> !wanted.containsKey(item.getProductId()));
+            Map<Long, CartItem> current = new HashMap<>();
+            cart.getItems().forEach(item -> current.put(item.getProductId(), item));
+
+            for (Line line : wanted.values()) {
+                CartItem item = current.get(line.productId);
+                if (item == null) {
+                    item = CartItem.builder().cart(cart).cartId(cart.getId()).productId(line.productId).build();
+                    cart.getItems().add(item);
+                }
+                item.setProductName(line.productName);
+                item.reprice(line.price, line.quantity);
+            }
+            cart.setTotalPrice(totalPrice);
+        }
+    }
+
+    private static final class CartState {
+        final Long userId;
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        Long cartId;
+        boolean exists;
+        Money totalPrice = Money.ZERO;
+        // Monotonic change counter and the last value known to be in the database
+        long mutations;
+        long flushedMutations;
+        long version = VERSIONS.incrementAndGet();
+        volatile long dirtySince;
+        volatile long lastAccess;
+        // Set under the lock once the cart is no longer in the map; nothing may change it after that
+        boolean retired;
+
+        CartState(Long userId) {
+            this.userId = userId;
+        }
+
+        static CartState from(Cart cart) {
+            CartState state = new CartState(cart.getUserId());
+            state.cartId = cart.getId();
+            state.exists = true;
+            for (CartItem item : cart.getItems()) {
+                Line line = new Line(item.getId(), item.getProductId());
+                line.productName = item.getProductName();
+                line.price = item.getPrice();
+                line.quantity = item.getQuantity();
+                line.subTotal = item.getSubTotal();
+                state.lines.put(item.getProductId(), line);
+            }
+            state.totalPrice = cart.getTotalPrice();
+            return state;
+        }
+
+        // Returns true if the cart went from clean to dirty
+        boolean markDirty() {
+            boolean wasClean = mutations == flushedMutations;
+            mutations++;
+            version = VERSIONS.incrementAndGet();
+            if (wasClean) {
+                dirtySince = System.nanoTime();
+            }
+            return wasClean;
+        }
+
+        boolean isClean() {
+            lock.lock();
+            try {
+                return mutations == flushedMutations;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Snapshot snapshotIfDirty() {
+            lock.lock();
+            try {
+                if (mutations == flushedMutations) {
+                    return null;
+                }
+                return new Snapshot(userId, mutations, lines.values().stream().map(Line::copy).toList(), totalPrice);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns true if the cart is clean after this flush
+        boolean markFlushed(Snapshot snapshot, Long persistedCartId, Map<Long, Long> itemIds) {
+            lock.lock();
+            try {
+                cartId = persistedCartId;
+                if (itemIds != null) {
+                    lines.values().forEach(line -> line.itemId = itemIds.get(line.productId));
+                }
+                if (snapshot.mutation() <= flushedMutations) {
+                    return false;
+                }
+                flushedMutations = snapshot.mutation();
+                if (mutations == flushedMutations) {
+                    dirtySince = 0;
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Cart toCart() {
+            Cart cart = new Cart();
+            cart.setId(cartId);
+            cart.setUserId(userId);
+            cart.setTotalPrice(totalPrice);
+            cart.setVersion(version);
+            List<CartItem> items = new ArrayList<>(lines.size());
+            for (Line line : lines.values()) {
+                items.add(CartItem.builder()
+                        .id(line.itemId)
+                        .cart(cart)
+                        .cartId(cartId)
+                        .productId(line.productId)
+                        .productName(line.productName)
+                        .price(line.price)
+                        .quantity(line.quantity)
+                        .subTotal(line.subTotal)
+                        .build());
+            }
+            cart.setItems(items);
+            return cart;
+        }
+    }
+}
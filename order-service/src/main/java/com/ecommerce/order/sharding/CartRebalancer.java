@@ -0,0 +1,134 @@
+package com.ecommerce.order.sharding;
+
+import com.ecommerce.order.config.CartProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves every cart that sits on a shard which no longer owns its user, so a ring change completes
+ * without waiting for each user to come back. {@link CartShardMover} moves the carts of users who
+ * visit in the meantime.
+ * <p>
+ * While {@code cart.sharding.previous-ring} is set, a pass runs every {@code rebalance.interval}. It walks
+ * {@code cart} and {@code cart_archive} of each shard in primary-key order, {@code batchSize} rows per
+ * window, pausing {@code pauseBetweenBatches} after each. A pass that moves nothing means the
+ * rebalance is complete and {@code previous-ring} can be cleared. Meter: {@code cart.sharding.rebalance.batch}.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+public class CartRebalancer implements DisposableBean {
+
+    private static final List<String> TABLES = List.of("cart", "cart_archive");
+
+    private final CartShards cartShards;
+    private final CartShardMover mover;
+    private final CartProperties.Rebalance config;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cart-rebalancer").daemon().factory());
+    // Scheduled and manual passes never overlap
+    private final ReentrantLock passLock = new ReentrantLock();
+    private final Timer batchTimer;
+
+    public CartRebalancer(CartShards cartShards, CartShardMover mover, CartProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.cartShards = cartShards;
+        this.mover = mover;
+        this.config = properties.getSharding().getRebalance();
+        this.batchTimer = Timer.builder("cart.sharding.rebalance.batch")
+                .description("Time to check, and move the misplaced carts of, one window of a shard")
+                .register(meterRegistry);
+
+        long interval = config.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::rebalanceQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one pass over all shards, waiting for a pass already in progress to finish first.
+     */
+    public RebalanceResult rebalance() {
+        passLock.lock();
+        try {
+            long scanned = 0;
+            long moved = 0;
+            int batches = 0;
+            for (String shard : cartShards.shards()) {
+                JdbcTemplate jdbc = new JdbcTemplate(cartShards.dataSourceOf(shard));
+                for (String table : TABLES) {
+                    long afterId = 0;
+                    while (true) {
+                        long start = System.nanoTime();
+                        List<long[]> window = jdbc.query(
+                                "SELECT id, user_id FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?",
+                                (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)}, afterId, config.getBatchSize());
+                        if (window.isEmpty()) {
+                            break;
+                        }
+                        for (long[] row : window) {
+                            String owner = cartShards.shardOf(row[1]);
+                            if (!owner.equals(shard) && mover.move(row[1], shard, owner, "rebalance")) {
+                                moved++;
+                            }
+                        }
+                        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        batches++;
+                        scanned += window.size();
+                        afterId = window.getLast()[0];
+                        if (!pause()) {
+                            return new RebalanceResult(scanned, moved, batches);
+                        }
+                    }
+                }
+            }
+            if (moved == 0 && cartShards.isRebalancing()) {
+                log.info("Cart rebalance complete: every cart is on its owner; cart.sharding.previous-ring can be cleared");
+            } else {
+                log.info("Cart rebalance pass: moved the carts of {} users, {} rows scanned in {} batches", moved, scanned, batches);
+            }
+            return new RebalanceResult(scanned, moved, batches);
+        } finally {
+            passLock.unlock();
+        }
+    }
+
+    // False if the pass should stop because the application is shutting down
+    private boolean pause() {
+        try {
+            Thread.sleep(config.getPauseBetweenBatches().toMillis());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void rebalanceQuietly() {
+        if (!cartShards.isRebalancing()) {
+            return;
+        }
+        try {
+            rebalance();
+        } catch (RuntimeException ex) {
+            log.error("Cart rebalance failed", ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,191 @@
+package com.ecommerce.order.sharding;
+
+import com.ecommerce.order.cache.CartChangePublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves a user's carts, live and archived, from one shard to another after a change of the ring.
+ * <p>
+ * The source rows are locked for the whole move, so two movers of the same user queue up and the
+ * second finds nothing left. The copy is committed on the target before the source rows are deleted.
+ * <p>
+ * The target may already hold a cart of the user: left by a move that died between the two commits,
+ * or written through an instance that saw the new ring before this one. The source lines are then
+ * merged into it, each product keeping the larger of the two quantities, and the merged cart gets a
+ * new version. Merging the same lines twice changes nothing, so a repeated move never adds up
+ * quantities; an item removed on only one side comes back. Archived carts the target already has
+ * are not copied again. Rows get new ids from the target's sequences, since ids are only unique per
+ * shard; copied carts keep their version and timestamps.
+ * <p>
+ * Works on each shard's own pool with plain JDBC transactions, never through the routing DataSource,
+ * so it can run while the caller is bound to a shard. Meter: {@code cart.sharding.moves}
+ * (tagged {@code trigger=visit|rebalance}).
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class CartShardMover {
+
+    private final CartShards cartShards;
+    private final CartChangePublisher cartChangePublisher;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, JdbcTemplate> jdbc = new HashMap<>();
+    private final Map<String, TransactionTemplate> transactions = new HashMap<>();
+
+    public CartShardMover(CartShards cartShards, CartChangePublisher cartChangePublisher, MeterRegistry meterRegistry) {
+        this.cartShards = cartShards;
+        this.cartChangePublisher = cartChangePublisher;
+        this.meterRegistry = meterRegistry;
+        for (String shard : cartShards.shards()) {
+            jdbc.put(shard, new JdbcTemplate(cartShards.dataSourceOf(shard)));
+            transactions.put(shard, new TransactionTemplate(new DataSourceTransactionManager(cartShards.dataSourceOf(shard))));
+        }
+    }
+
+    /**
+     * Brings the user's carts to their owner if a ring change left them on the previous one. Costs
+     * nothing outside of a rebalance, and one lookup on the owner for users whose owner changed.
+     */
+    public boolean moveToOwner(Long userId) {
+        return cartShards.previousShardOf(userId)
+                .filter(previous -> !hasCart(cartShards.shardOf(userId), userId))
+                .map(previous -> move(userId, previous, cartShards.shardOf(userId), "visit"))
+                .orElse(false);
+    }
+
+    /**
+     * Moves every cart of the user from one shard to the other. Returns false if the source had none.
+     */
+    public boolean move(Long userId, String from, String to, String trigger) {
+        JdbcTemplate source = jdbc.get(from);
+        JdbcTemplate target = jdbc.get(to);
+        boolean moved = Boolean.TRUE.equals(transactions.get(from).execute(status -> {
+            List<Map<String, Object>> carts = source.queryForList("""
+                    SELECT id, user_id, total_price_minor, created_at, updated_at, version FROM cart
+                    WHERE user_id = ? FOR UPDATE
+                    """, userId);
+            List<Map<String, Object>> archived = source.queryForList("""
+                    SELECT id, user_id, total_price_minor, created_at, updated_at, version, archived_at FROM cart_archive
+                    WHERE user_id = ? FOR UPDATE
+                    """, userId);
+            if (carts.isEmpty() && archived.isEmpty()) {
+                return false;
+            }
+            transactions.get(to).executeWithoutResult(inner -> {
+                if (!carts.isEmpty() && !copyCart(source, target, carts.getFirst())) {
+                    log.warn("Shard {} already holds a cart of user {}; merging the one on shard {} into it", to, userId, from);
+                    mergeCart(source, target, carts.getFirst());
+                }
+                archived.forEach(cart -> copyArchivedCart(source, target, cart));
+            });
+            source.update("DELETE FROM cart_item WHERE cart_id IN (SELECT id FROM cart WHERE user_id = ?)", userId);
+            source.update("DELETE FROM cart WHERE user_id = ?", userId);
+            source.update("DELETE FROM cart_item_archive WHERE cart_id IN (SELECT id FROM cart_archive WHERE user_id = ?)", userId);
+            source.update("DELETE FROM cart_archive WHERE user_id = ?", userId);
+            return true;
+        }));
+        if (moved) {
+            // Moved carts keep their version but not their ids; every instance may have cached the old ones
+            cartChangePublisher.publish(userId, null, null);
+            Counter.builder("cart.sharding.moves").tag("trigger", trigger)
+                    .description("Users whose carts were moved to another shard")
+                    .register(meterRegistry)
+                    .increment();
+            log.debug("Moved carts of user {} from shard {} to shard {}", userId, from, to);
+        }
+        return moved;
+    }
+
+    // False if the target already has a cart for the user
+    private boolean copyCart(JdbcTemplate source, JdbcTemplate target, Map<String, Object> cart) {
+        Long id = target.queryForObject("SELECT nextval('cart_seq')", Long.class);
+        int inserted = target.update("""
+                        INSERT INTO cart (id, user_id, total_price_minor, created_at, updated_at, version)
+                        VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING
+                        """,
+                id, cart.get("user_id"), cart.get("total_price_minor"), cart.get("created_at"), cart.get("updated_at"),
+                cart.get("version"));
+        if (inserted == 0) {
+            return false;
+        }
+        copyItems(source.queryForList("""
+                SELECT product_id, product_name, quantity, sub_total_minor, price_minor FROM cart_item WHERE cart_id = ?
+                """, cart.get("id")), target, "cart_item", id);
+        return true;
+    }
+
+    // Lines of the source cart into the target's cart of the same user, locked for the merge
+    private void mergeCart(JdbcTemplate source, JdbcTemplate target, Map<String, Object> cart) {
+        Long id = target.queryForObject("SELECT id FROM cart WHERE user_id = ? FOR UPDATE", Long.class, cart.get("user_id"));
+        List<Map<String, Object>> added = new ArrayList<>();
+        for (Map<String, Object> item : source.queryForList("""
+                SELECT product_id, product_name, quantity, sub_total_minor, price_minor FROM cart_item WHERE cart_id = ?
+                """, cart.get("id"))) {
+            // A line both carts have keeps the target's price, the one its owner saw last
+            int updated = target.update("""
+                            UPDATE cart_item SET quantity = GREATEST(quantity, ?), sub_total_minor = price_minor * GREATEST(quantity, ?)
+                            WHERE cart_id = ? AND product_id = ?
+                            """,
+                    item.get("quantity"), item.get("quantity"), id, item.get("product_id"));
+            if (updated == 0) {
+                added.add(item);
+            }
+        }
+        copyItems(added, target, "cart_item", id);
+        target.update("""
+                        UPDATE cart SET total_price_minor = (SELECT COALESCE(SUM(sub_total_minor), 0) FROM cart_item WHERE cart_id = ?),
+                            updated_at = GREATEST(updated_at, ?), version = version + 1
+                        WHERE id = ?
+                        """,
+                id, cart.get("updated_at"), id);
+    }
+
+    private void copyArchivedCart(JdbcTemplate source, JdbcTemplate target, Map<String, Object> cart) {
+        if (Boolean.TRUE.equals(target.queryForObject("""
+                        SELECT EXISTS (SELECT 1 FROM cart_archive WHERE user_id = ? AND archived_at = ? AND version = ?)
+                        """, Boolean.class, cart.get("user_id"), cart.get("archived_at"), cart.get("version")))) {
+            // Copied by a move that died before deleting the source
+            return;
+        }
+        // Archived carts go back into cart with their id, so it is taken from the same sequence
+        Long id = target.queryForObject("SELECT nextval('cart_seq')", Long.class);
+        target.update("""
+                        INSERT INTO cart_archive (id, user_id, total_price_minor, created_at, updated_at, version, archived_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)
+                        """,
+                id, cart.get("user_id"), cart.get("total_price_minor"), cart.get("created_at"), cart.get("updated_at"),
+                cart.get("version"), cart.get("archived_at"));
+        copyItems(source.queryForList("""
+                SELECT product_id, product_name, quantity, sub_total_minor, price_minor FROM cart_item_archive WHERE cart_id = ?
+                """, cart.get("id")), target, "cart_item_archive", id);
+    }
+
+    private void copyItems(List<Map<String, Object>> items, JdbcTemplate target, String table, Long cartId) {
+        if (items.isEmpty()) {
+            return;
+        }
+        target.batchUpdate("""
+                        INSERT INTO %s (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+                        VALUES (nextval('cart_item_seq'), ?, ?, ?, ?, ?, ?)
+                        """.formatted(table),
+                items.stream().map(item -> new Object[]{cartId, item.get("product_id"), item.get("product_name"),
+                        item.get("quantity"), item.get("sub_total_minor"), item.get("price_minor")}).toList());
+    }
+
+    private boolean hasCart(String shard, Long userId) {
+        return Boolean.TRUE.equals(jdbc.get(shard).queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM cart WHERE user_id = ?)", Boolean.class, userId));
+    }
+}
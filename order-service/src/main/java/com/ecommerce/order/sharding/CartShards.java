@@ -0,0 +1,146 @@
+package com.ecommerce.order.sharding;
+
+import com.ecommerce.order.config.CartProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Which database holds a user's cart, and the means to work there.
+ * <p>
+ * With {@code cart.sharding.enabled} the application's {@code DataSource} is a
+ * {@link ShardRoutingDataSource}; {@link #onShardOf} binds the user's shard to the calling thread, so
+ * every repository call and transaction inside it runs on that shard. Starting work on another shard
+ * while a transaction is open is refused rather than silently split across databases.
+ * <p>
+ * Without sharding there is a single shard named {@value #SINGLE_SHARD} and binding it changes nothing.
+ * The ring follows {@code cart.sharding.ring} and {@code previous-ring} as they are refreshed.
+ */
+@Component
+@Profile("!reactive")
+public class CartShards {
+
+    public static final String SINGLE_SHARD = "default";
+
+    private final CartProperties.Sharding config;
+    private final Map<String, DataSource> dataSources;
+    private final String defaultShard;
+
+    private volatile Rings rings;
+
+    public CartShards(CartProperties properties, DataSource dataSource) {
+        this.config = properties.getSharding();
+        if (dataSource instanceof ShardRoutingDataSource routing) {
+            this.dataSources = Map.copyOf(routing.shards());
+            this.defaultShard = routing.defaultShard();
+        } else {
+            this.dataSources = Map.of(SINGLE_SHARD, dataSource);
+            this.defaultShard = SINGLE_SHARD;
+        }
+        // Fail on startup, not on the first request, if the ring names an unknown shard
+        rings();
+    }
+
+    public String shardOf(Long userId) {
+        return rings().current().shardOf(userId);
+    }
+
+    /**
+     * The shard that owned the user before the last ring change, if that was another one. Their cart
+     * may still be there until it is moved.
+     */
+    public Optional<String> previousShardOf(Long userId) {
+        Rings current = rings();
+        if (current.previous() == null) {
+            return Optional.empty();
+        }
+        String previous = current.previous().shardOf(userId);
+        return previous.equals(current.current().shardOf(userId)) ? Optional.empty() : Optional.of(previous);
+    }
+
+    public boolean isRebalancing() {
+        return rings().previous() != null;
+    }
+
+    // Every configured shard, in or out of the ring, the default one first
+    public List<String> shards() {
+        return dataSources.keySet().stream()
+                .sorted((a, b) -> a.equals(defaultShard) ? -1 : b.equals(defaultShard) ? 1 : a.compareTo(b))
+                .toList();
+    }
+
+    // The shard's own pool, for work that must not go through the routing DataSource
+    public DataSource dataSourceOf(String shard) {
+        DataSource dataSource = dataSources.get(shard);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+        return dataSource;
+    }
+
+    public <T> T onShardOf(Long userId, Supplier<T> work) {
+        return onShard(shardOf(userId), work);
+    }
+
+    public <T> T onShard(String shard, Supplier<T> work) {
+        String bound = ShardRoutingDataSource.currentShard();
+        String effective = bound != null ? bound : defaultShard;
+        if (!shard.equals(effective) && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A transaction on shard " + effective + " cannot continue on shard " + shard);
+        }
+        ShardRoutingDataSource.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardRoutingDataSource.bind(bound);
+        }
+    }
+
+    private Rings rings() {
+        Rings current = rings;
+        if (current == null || !current.matches(config)) {
+            current = buildRings();
+            rings = current;
+        }
+        return current;
+    }
+
+    private synchronized Rings buildRings() {
+        if (!config.isEnabled()) {
+            return new Rings(false, new ShardRing(List.of(SINGLE_SHARD), 1), null, List.of(), List.of(), 1);
+        }
+        List<String> ring = List.copyOf(config.getRing());
+        List<String> previousRing = List.copyOf(config.getPreviousRing());
+        int virtualNodes = config.getVirtualNodes();
+        return new Rings(true,
+                new ShardRing(ring.isEmpty() ? shards() : validated(ring), virtualNodes),
+                previousRing.isEmpty() ? null : new ShardRing(validated(previousRing), virtualNodes),
+                ring, previousRing, virtualNodes);
+    }
+
+    private List<String> validated(List<String> ring) {
+        for (String shard : ring) {
+            if (!dataSources.containsKey(shard)) {
+                throw new IllegalStateException("cart.sharding ring names shard " + shard
+                        + ", which is not under cart.sharding.shards");
+            }
+        }
+        return ring;
+    }
+
+    // The rings built from one state of the configuration; previous is null outside of a rebalance
+    private record Rings(boolean enabled, ShardRing current, ShardRing previous, List<String> ring,
+                         List<String> previousRing, int virtualNodes) {
+
+        boolean matches(CartProperties.Sharding config) {
+            return enabled == config.isEnabled() && (!enabled || ring.equals(config.getRing())
+                    && previousRing.equals(config.getPreviousRing()) && virtualNodes == config.getVirtualNodes());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecommerce.order.sharding;
+
+/**
+ * Outcome of one {@link CartRebalancer} pass over every shard.
+ *
+ * @param scanned rows of {@code cart} and {@code cart_archive} looked at
+ * @param moved   users whose carts were moved to their owner
+ * @param batches windows read
+ */
+public record RebalanceResult(long scanned, long moved, int batches) {
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.order.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring: every shard is placed at {@code virtualNodes} points, and a user belongs to
+ * the first point at or after the hash of their id. Adding a shard only takes users from the points
+ * it lands next to, so roughly 1/N of all users change owner and none move between the old shards.
+ * <p>
+ * Hashes are fixed functions of the shard name and user id, so every instance computes the same ring.
+ */
+public final class ShardRing {
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final List<String> shards;
+
+    public ShardRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("A shard ring needs at least one shard");
+        }
+        this.shards = List.copyOf(shards);
+        for (String shard : this.shards) {
+            long seed = fnv1a(shard);
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(mix(seed + i * 0x9E3779B97F4A7C15L), shard);
+            }
+        }
+    }
+
+    public String shardOf(long userId) {
+        Map.Entry<Long, String> point = points.ceilingEntry(mix(userId));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    // MurmurHash3's 64-bit finalizer: spreads consecutive ids over the whole ring
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static long fnv1a(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ecommerce.order.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The application's {@code DataSource} in sharded mode: hands out connections of the shard bound to
+ * the calling thread by {@link CartShards}, or of the default shard when none is bound. A
+ * transaction keeps the connection it started with, so the binding must be in place before it begins.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final ThreadLocal<String> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final Map<String, HikariDataSource> shards;
+    private final String defaultShard;
+
+    public ShardRoutingDataSource(Map<String, HikariDataSource> shards, String defaultShard) {
+        if (!shards.containsKey(defaultShard)) {
+            throw new IllegalArgumentException("Default shard " + defaultShard + " is not configured");
+        }
+        this.shards = Map.copyOf(shards);
+        this.defaultShard = defaultShard;
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(defaultShard));
+        // A typo in a shard name fails instead of silently using the default shard
+        setLenientFallback(false);
+    }
+
+    public Map<String, HikariDataSource> shards() {
+        return shards;
+    }
+
+    public String defaultShard() {
+        return defaultShard;
+    }
+
+    // Null when no shard is bound
+    static String currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    static void bind(String shard) {
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT_SHARD.get();
+    }
+
+    @Override
+    public void destroy() {
+        shards.values().forEach(HikariDataSource::close);
+    }
+}
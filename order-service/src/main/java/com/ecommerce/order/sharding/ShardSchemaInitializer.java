@@ -0,0 +1,61 @@
+package com.ecommerce.order.sharding;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Hibernate only manages the schema of the default shard, the one it connects to on startup. When it
+ * manages the schema at all ({@code ddl-auto} create, create-drop or update), this gives the other
+ * shards the same tables: recreated for create and create-drop, created on an empty shard for update.
+ * Tables of a shard that already has them are left to whoever migrates the schema.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+public class ShardSchemaInitializer {
+
+    private static final Set<String> RECREATE = Set.of("create", "create-drop");
+
+    public ShardSchemaInitializer(EntityManagerFactory entityManagerFactory, CartShards cartShards) {
+        Object action = entityManagerFactory.getProperties().get(AvailableSettings.HBM2DDL_AUTO);
+        String ddlAuto = action == null ? "none" : action.toString().toLowerCase();
+        if (!RECREATE.contains(ddlAuto) && !ddlAuto.equals("update")) {
+            return;
+        }
+        var schemaManager = entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager();
+        for (String shard : cartShards.shards().subList(1, cartShards.shards().size())) {
+            boolean recreate = RECREATE.contains(ddlAuto);
+            if (!recreate && hasCartTable(cartShards, shard)) {
+                continue;
+            }
+            cartShards.onShard(shard, () -> {
+                if (recreate) {
+                    schemaManager.dropMappedObjects(false);
+                }
+                schemaManager.exportMappedObjects(false);
+                return null;
+            });
+            log.info("Created the cart schema on shard {}", shard);
+        }
+    }
+
+    private static boolean hasCartTable(CartShards cartShards, String shard) {
+        try (Connection connection = cartShards.dataSourceOf(shard).getConnection();
+             ResultSet tables = connection.getMetaData().getTables(null, null, "cart", new String[]{"TABLE", "PARTITIONED TABLE"})) {
+            return tables.next();
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Cannot inspect the schema of shard " + shard, ex);
+        }
+    }
+}
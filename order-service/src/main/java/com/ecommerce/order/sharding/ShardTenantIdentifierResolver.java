@@ -0,0 +1,28 @@
+package com.ecommerce.order.sharding;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/**
+ * Tells Hibernate which shard a session works on. Hibernate then keeps its pooled sequence
+ * optimizers per shard: ids are handed out from a block fetched on the session's own shard, never from
+ * a block of another shard's sequence.
+ */
+public class ShardTenantIdentifierResolver implements CurrentTenantIdentifierResolver<String> {
+
+    private final String defaultShard;
+
+    public ShardTenantIdentifierResolver(String defaultShard) {
+        this.defaultShard = defaultShard;
+    }
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        String shard = ShardRoutingDataSource.currentShard();
+        return shard != null ? shard : defaultShard;
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return false;
+    }
+}
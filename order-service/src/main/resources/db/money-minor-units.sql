@@ -0,0 +1,22 @@
+-- One-off migration of existing cart data to BIGINT minor-unit (cent) columns.
+-- Run once against order_db before starting the version that maps Money columns.
+BEGIN;
+
+ALTER TABLE cart ADD COLUMN IF NOT EXISTS total_price_minor BIGINT;
+UPDATE cart SET total_price_minor = ROUND(total_price * 100)::BIGINT;
+ALTER TABLE cart ALTER COLUMN total_price_minor SET NOT NULL;
+ALTER TABLE cart DROP COLUMN total_price;
+
+ALTER TABLE cart_item ADD COLUMN IF NOT EXISTS price_minor BIGINT;
+ALTER TABLE cart_item ADD COLUMN IF NOT EXISTS sub_total_minor BIGINT;
+UPDATE cart_item SET price_minor = ROUND(price * 100)::BIGINT,
+                     sub_total_minor = ROUND(price * 100)::BIGINT * quantity;
+ALTER TABLE cart_item ALTER COLUMN price_minor SET NOT NULL;
+ALTER TABLE cart_item ALTER COLUMN sub_total_minor SET NOT NULL;
+ALTER TABLE cart_item DROP COLUMN price;
+ALTER TABLE cart_item DROP COLUMN sub_total;
+
+-- Totals are maintained incrementally from now on, so start from exact sums
+UPDATE cart c SET total_price_minor = COALESCE((SELECT SUM(i.sub_total_minor) FROM cart_item i WHERE i.cart_id = c.id), 0);
+
+COMMIT;
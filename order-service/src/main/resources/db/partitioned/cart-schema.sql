@@ -0,0 +1,47 @@
+-- Hash-partitioned cart tables for Postgres, for new databases (existing ones: migrate-from-unpartitioned.sql).
+-- cart is partitioned by user_id and cart_item by cart_id, so a user's cart and its lines each live in one
+-- partition. Postgres requires the partition key in every primary key and unique constraint, and a partitioned
+-- cart has no unique constraint on id alone, so there is no foreign key from cart_item to cart. order-service
+-- keeps lines from outliving their cart instead: the native add-to-cart upsert reads the cart FOR KEY SHARE, and
+-- the sweeper locks carts FOR UPDATE before deleting their lines. Anything else that deletes carts must do the
+-- same. To check for orphaned lines (and delete them the same way):
+--   SELECT i.* FROM cart_item i WHERE NOT EXISTS (SELECT 1 FROM cart c WHERE c.id = i.cart_id);
+-- Change the partition count before the first run; changing it later means rewriting both tables.
+
+CREATE SEQUENCE IF NOT EXISTS cart_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cart_item_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE cart (
+    id                BIGINT NOT NULL,
+    user_id           BIGINT NOT NULL,
+    total_price_minor BIGINT NOT NULL,
+    created_at        TIMESTAMP(6),
+    updated_at        TIMESTAMP(6),
+    version           BIGINT,
+    CONSTRAINT cart_pkey PRIMARY KEY (id, user_id),
+    CONSTRAINT uk_cart_user UNIQUE (user_id)
+) PARTITION BY HASH (user_id);
+
+CREATE TABLE cart_item (
+    id              BIGINT       NOT NULL,
+    cart_id         BIGINT       NOT NULL,
+    product_id      BIGINT       NOT NULL,
+    product_name    VARCHAR(255) NOT NULL,
+    quantity        INTEGER      NOT NULL,
+    sub_total_minor BIGINT       NOT NULL,
+    price_minor     BIGINT       NOT NULL,
+    CONSTRAINT cart_item_pkey PRIMARY KEY (id, cart_id),
+    CONSTRAINT uk_cart_item_product UNIQUE (cart_id, product_id)
+) PARTITION BY HASH (cart_id);
+
+DO $$
+DECLARE
+    partitions CONSTANT INT := 16;
+BEGIN
+    FOR i IN 0 .. partitions - 1 LOOP
+        EXECUTE format('CREATE TABLE cart_p%s PARTITION OF cart FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       i, partitions, i);
+        EXECUTE format('CREATE TABLE cart_item_p%s PARTITION OF cart_item FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       i, partitions, i);
+    END LOOP;
+END $$;
@@ -0,0 +1,149 @@
+-- Online migration of the unpartitioned cart/cart_item tables (as created by Hibernate) to the layout of
+-- cart-schema.sql. Run one step at a time, outside an explicit transaction. order-service keeps running
+-- throughout; only step 4 blocks it, for as long as renaming a few objects takes.
+-- Until step 4, dropping the *_partitioned tables, the triggers and the functions undoes everything.
+
+-- Step 1: empty partitioned copies, named *_partitioned until the switch
+
+CREATE TABLE cart_partitioned (
+    id                BIGINT NOT NULL,
+    user_id           BIGINT NOT NULL,
+    total_price_minor BIGINT NOT NULL,
+    created_at        TIMESTAMP(6),
+    updated_at        TIMESTAMP(6),
+    version           BIGINT,
+    CONSTRAINT cart_partitioned_pkey PRIMARY KEY (id, user_id),
+    CONSTRAINT uk_cart_user_partitioned UNIQUE (user_id)
+) PARTITION BY HASH (user_id);
+
+CREATE TABLE cart_item_partitioned (
+    id              BIGINT       NOT NULL,
+    cart_id         BIGINT       NOT NULL,
+    product_id      BIGINT       NOT NULL,
+    product_name    VARCHAR(255) NOT NULL,
+    quantity        INTEGER      NOT NULL,
+    sub_total_minor BIGINT       NOT NULL,
+    price_minor     BIGINT       NOT NULL,
+    CONSTRAINT cart_item_partitioned_pkey PRIMARY KEY (id, cart_id),
+    CONSTRAINT uk_cart_item_product_partitioned UNIQUE (cart_id, product_id)
+) PARTITION BY HASH (cart_id);
+
+DO $$
+DECLARE
+    partitions CONSTANT INT := 16;
+BEGIN
+    FOR i IN 0 .. partitions - 1 LOOP
+        EXECUTE format('CREATE TABLE cart_p%s PARTITION OF cart_partitioned FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       i, partitions, i);
+        EXECUTE format('CREATE TABLE cart_item_p%s PARTITION OF cart_item_partitioned FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       i, partitions, i);
+    END LOOP;
+END $$;
+
+-- Step 2: from now on, every write to the old tables is repeated on the copies
+
+CREATE FUNCTION cart_mirror() RETURNS TRIGGER LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM cart_partitioned WHERE id = OLD.id AND user_id = OLD.user_id;
+        RETURN NULL;
+    END IF;
+    INSERT INTO cart_partitioned (id, user_id, total_price_minor, created_at, updated_at, version)
+    VALUES (NEW.id, NEW.user_id, NEW.total_price_minor, NEW.created_at, NEW.updated_at, NEW.version)
+    ON CONFLICT (id, user_id) DO UPDATE
+        SET total_price_minor = EXCLUDED.total_price_minor,
+            created_at = EXCLUDED.created_at,
+            updated_at = EXCLUDED.updated_at,
+            version = EXCLUDED.version;
+    RETURN NULL;
+END $$;
+
+CREATE FUNCTION cart_item_mirror() RETURNS TRIGGER LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM cart_item_partitioned WHERE id = OLD.id AND cart_id = OLD.cart_id;
+        RETURN NULL;
+    END IF;
+    INSERT INTO cart_item_partitioned (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+    VALUES (NEW.id, NEW.cart_id, NEW.product_id, NEW.product_name, NEW.quantity, NEW.sub_total_minor, NEW.price_minor)
+    ON CONFLICT (id, cart_id) DO UPDATE
+        SET product_name = EXCLUDED.product_name,
+            quantity = EXCLUDED.quantity,
+            sub_total_minor = EXCLUDED.sub_total_minor,
+            price_minor = EXCLUDED.price_minor;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER cart_mirror AFTER INSERT OR UPDATE OR DELETE ON cart
+    FOR EACH ROW EXECUTE FUNCTION cart_mirror();
+CREATE TRIGGER cart_item_mirror AFTER INSERT OR UPDATE OR DELETE ON cart_item
+    FOR EACH ROW EXECUTE FUNCTION cart_item_mirror();
+
+-- Step 3: copy the existing rows, batch_size ids per transaction. Rows are read FOR KEY SHARE, so a row
+-- cannot be deleted between being read and copied; rows the triggers copied already are left alone.
+-- Safe to interrupt and run again.
+
+CREATE PROCEDURE cart_backfill(batch_size BIGINT DEFAULT 10000) LANGUAGE plpgsql AS $$
+DECLARE
+    last_id BIGINT;
+    max_id  BIGINT;
+BEGIN
+    last_id := 0;
+    SELECT coalesce(max(id), 0) INTO max_id FROM cart;
+    WHILE last_id < max_id LOOP
+        INSERT INTO cart_partitioned (id, user_id, total_price_minor, created_at, updated_at, version)
+        SELECT id, user_id, total_price_minor, created_at, updated_at, version FROM cart
+        WHERE id > last_id AND id <= last_id + batch_size
+        FOR KEY SHARE
+        ON CONFLICT DO NOTHING;
+        last_id := last_id + batch_size;
+        COMMIT;
+    END LOOP;
+
+    last_id := 0;
+    SELECT coalesce(max(id), 0) INTO max_id FROM cart_item;
+    WHILE last_id < max_id LOOP
+        INSERT INTO cart_item_partitioned (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+        SELECT id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor FROM cart_item
+        WHERE id > last_id AND id <= last_id + batch_size
+        FOR KEY SHARE
+        ON CONFLICT DO NOTHING;
+        last_id := last_id + batch_size;
+        COMMIT;
+    END LOOP;
+END $$;
+
+CALL cart_backfill();
+
+ANALYZE cart_partitioned;
+ANALYZE cart_item_partitioned;
+
+-- Step 4: the switch. Waits for running cart transactions, then swaps the tables in one short transaction.
+
+BEGIN;
+LOCK TABLE cart, cart_item IN ACCESS EXCLUSIVE MODE;
+DROP TRIGGER cart_mirror ON cart;
+DROP TRIGGER cart_item_mirror ON cart_item;
+
+ALTER TABLE cart RENAME CONSTRAINT cart_pkey TO cart_unpartitioned_pkey;
+ALTER TABLE cart RENAME CONSTRAINT uk_cart_user TO uk_cart_user_unpartitioned;
+ALTER TABLE cart RENAME TO cart_unpartitioned;
+ALTER TABLE cart_item RENAME CONSTRAINT cart_item_pkey TO cart_item_unpartitioned_pkey;
+ALTER TABLE cart_item RENAME CONSTRAINT uk_cart_item_product TO uk_cart_item_product_unpartitioned;
+ALTER TABLE cart_item RENAME TO cart_item_unpartitioned;
+
+ALTER TABLE cart_partitioned RENAME CONSTRAINT cart_partitioned_pkey TO cart_pkey;
+ALTER TABLE cart_partitioned RENAME CONSTRAINT uk_cart_user_partitioned TO uk_cart_user;
+ALTER TABLE cart_partitioned RENAME TO cart;
+ALTER TABLE cart_item_partitioned RENAME CONSTRAINT cart_item_partitioned_pkey TO cart_item_pkey;
+ALTER TABLE cart_item_partitioned RENAME CONSTRAINT uk_cart_item_product_partitioned TO uk_cart_item_product;
+ALTER TABLE cart_item_partitioned RENAME TO cart_item;
+COMMIT;
+
+-- From here on there is no cart_item -> cart foreign key; see cart-schema.sql for what replaces it and for a
+-- query that finds orphaned lines. It should find none before step 5.
+
+-- Step 5, once the new tables have proven themselves:
+-- DROP TABLE cart_item_unpartitioned, cart_unpartitioned;
+-- DROP PROCEDURE cart_backfill;
+-- DROP FUNCTION cart_mirror, cart_item_mirror;
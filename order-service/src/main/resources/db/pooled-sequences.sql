@@ -0,0 +1,13 @@
+-- One-off migration from IDENTITY ids to the pooled sequences used by Cart and CartItem.
+-- INCREMENT BY must match allocationSize; each sequence starts past the current max id.
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS cart_seq INCREMENT BY 50;
+SELECT setval('cart_seq', COALESCE((SELECT MAX(id) FROM cart), 0) + 50);
+ALTER TABLE cart ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS cart_item_seq INCREMENT BY 50;
+SELECT setval('cart_item_seq', COALESCE((SELECT MAX(id) FROM cart_item), 0) + 50);
+ALTER TABLE cart_item ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+COMMIT;
@@ -0,0 +1,35 @@
+package com.ecommerce.order;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+
+import java.math.BigDecimal;
+
+/**
+ * Products as product-service would return them, for stubbing the product client and near-cache.
+ */
+public final class TestProducts {
+
+    public static final Money DEFAULT_PRICE = Money.of(new BigDecimal("2.50"));
+
+    private TestProducts() {
+    }
+
+    // Active, named "Product <id>", at DEFAULT_PRICE
+    public static ProductResponseDTO product(long id) {
+        return product(id, DEFAULT_PRICE);
+    }
+
+    public static ProductResponseDTO product(long id, Money price) {
+        return product(id, price, true);
+    }
+
+    public static ProductResponseDTO product(long id, Money price, boolean active) {
+        ProductResponseDTO dto = new ProductResponseDTO();
+        dto.setId(id);
+        dto.setName("Product " + id);
+        dto.setPrice(price);
+        dto.setActive(active);
+        return dto;
+    }
+}
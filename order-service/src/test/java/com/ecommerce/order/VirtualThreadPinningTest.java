@@ -0,0 +1,110 @@
+package com.ecommerce.order;
+
+import com.ecommerce.order.cache.ProductNearCache;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs cart traffic through Tomcat on virtual threads while JFR records every time a virtual thread
+ * blocks without releasing its carrier (for instance inside a {@code synchronized} block), and fails
+ * if that happened in order-service code.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.config.import=",
+        "spring.threads.virtual.enabled=true"
+})
+@ActiveProfiles("test")
+class VirtualThreadPinningTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @Test
+    void cartRequestsDoNotPinVirtualThreads() throws Exception {
+        // Stands in for the wait on product-service, so a carrier held across it would show up as pinned
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> {
+            Thread.sleep(2);
+            return product(inv.getArgument(0));
+        });
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED, pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    long userId = i % 50;
+                    long productId = i % 7;
+                    responses.add(clients.submit(() -> http.send(addToCart(userId, productId), HttpResponse.BodyHandlers.ofString())));
+                    responses.add(clients.submit(() -> http.send(getCart(userId), HttpResponse.BodyHandlers.ofString())));
+                }
+                for (Future<HttpResponse<String>> response : responses) {
+                    // 404: a cart read that ran before the user's first add
+                    assertThat(response.get(60, TimeUnit.SECONDS).statusCode()).isIn(200, 201, 404);
+                }
+            }
+            recording.stop();
+        }
+
+        assertThat(pinned.stream().filter(VirtualThreadPinningTest::pinnedInOurCode).map(VirtualThreadPinningTest::describe))
+                .isEmpty();
+    }
+
+    // Anywhere on a path through our code, also inside a library we call; pinning on the library's own threads is not ours
+    private static boolean pinnedInOurCode(RecordedEvent event) {
+        return event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                .anyMatch(frame -> frame.getMethod().getType().getName().startsWith("com.ecommerce."));
+    }
+
+    private static String describe(RecordedEvent event) {
+        return event.getStackTrace().getFrames().stream()
+                .limit(12)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n  at ", "pinned for " + event.getDuration() + "\n  at ", ""));
+    }
+
+    private HttpRequest addToCart(long userId, long productId) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart/add"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"userId\": %d, \"productId\": %d, \"quantity\": 1}".formatted(userId, productId)))
+                .build();
+    }
+
+    private HttpRequest getCart(long userId) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart/" + userId)).GET().build();
+    }
+}
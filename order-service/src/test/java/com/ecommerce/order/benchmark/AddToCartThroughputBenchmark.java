@@ -0,0 +1,153 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.OrderServiceApplication;
+import com.ecommerce.order.client.ProductServiceStub;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Requests per second of {@code POST /api/cart/add} with Tomcat on its platform thread pool and on
+ * virtual threads, while every request waits on product-service (a local stub answering after
+ * {@code benchmark.latency-ms}). The near cache and batching are off so each add really waits;
+ * H2 stands in for Postgres.
+ * <p>
+ * Not part of the test run. Execute {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.order.benchmark.AddToCartThroughputBenchmark}.
+ * Tune with {@code -Dbenchmark.clients}, {@code -Dbenchmark.latency-ms} and {@code -Dbenchmark.seconds}.
+ */
+public class AddToCartThroughputBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 1000);
+    private static final int LATENCY_MS = Integer.getInteger("benchmark.latency-ms", 100);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+
+    public static void main(String[] args) throws Exception {
+        // Reactor Netty's default pool (16 connections here) would otherwise cap calls to product-service
+        System.setProperty("reactor.netty.pool.maxConnections", String.valueOf(CLIENTS * 2));
+        try (ProductServiceStub productService = new ProductServiceStub()) {
+            productService.setDelay(Duration.ofMillis(LATENCY_MS));
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                try (ConfigurableApplicationContext app = start(productService, virtualThreads)) {
+                    int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                    run(port, Duration.ofSeconds(5));
+                    Result result = run(port, Duration.ofSeconds(SECONDS));
+                    System.out.printf("addToCart, %s threads, %d clients, %d ms product-service: %s%n",
+                            virtualThreads ? "virtual" : "platform", CLIENTS, LATENCY_MS, result);
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(ProductServiceStub productService, boolean virtualThreads) {
+        // Command-line arguments, so they win over application.yml (which activates prod and its config server)
+        return new SpringApplicationBuilder(OrderServiceApplication.class).run(
+                "--spring.profiles.active=test",
+                "--spring.config.import=",
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.cloud.discovery.enabled=true",
+                "--spring.cloud.discovery.client.simple.instances.product-service[0].uri=" + productService.baseUrl(),
+                "--clients.product.cache.enabled=false",
+                "--clients.product.batching.enabled=false",
+                // The benchmark measures the threads, not the guards around product-service
+                "--resilience4j.bulkhead.instances.product-service.max-concurrent-calls=" + CLIENTS * 2,
+                "--resilience4j.circuitbreaker.instances.product-service.failure-rate-threshold=100",
+                "--resilience4j.circuitbreaker.instances.product-service.slow-call-duration-threshold=1m",
+                "--clients.product.timeouts.response=30s",
+                "--logging.level.root=WARN");
+    }
+
+    private static Result run(int port, Duration duration) throws Exception {
+        HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        URI uri = URI.create("http://localhost:" + port + "/api/cart/add?includeItems=false");
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Client>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(executor.submit(() -> {
+                    Client client = new Client();
+                    while (System.nanoTime() < deadline) {
+                        // Mostly distinct carts, so optimistic-lock retries do not skew the numbers
+                        long userId = ThreadLocalRandom.current().nextLong(100_000);
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"userId\": %d, \"productId\": 1, \"quantity\": 1}".formatted(userId)))
+                                .build();
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        client.record(System.nanoTime() - start, response.statusCode());
+                    }
+                    return client;
+                }));
+            }
+        }
+        Result result = new Result(duration);
+        for (Future<Client> client : clients) {
+            result.add(client.get());
+        }
+        return result;
+    }
+
+    private static final class Client {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<Integer, Integer> errors = new TreeMap<>();
+
+        void record(long nanos, int status) {
+            if (status != 201) {
+                errors.merge(status, 1, Integer::sum);
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private static final class Result {
+
+        private final Duration duration;
+        private final List<long[]> latencies = new ArrayList<>();
+        private int count;
+        private final Map<Integer, Integer> errors = new TreeMap<>();
+
+        Result(Duration duration) {
+            this.duration = duration;
+        }
+
+        void add(Client client) {
+            latencies.add(Arrays.copyOf(client.latencies, client.count));
+            count += client.count;
+            client.errors.forEach((status, n) -> errors.merge(status, n, Integer::sum));
+        }
+
+        @Override
+        public String toString() {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return "%.0f req/s, p50 %d ms, p99 %d ms, errors by status %s".formatted(
+                    count / (double) duration.toSeconds(), percentile(all, 0.50), percentile(all, 0.99), errors);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(p * sorted.length) - 1] / 1_000_000;
+        }
+    }
+}
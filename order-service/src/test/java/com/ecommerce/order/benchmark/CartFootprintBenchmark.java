@@ -0,0 +1,168 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.OrderServiceApplication;
+import com.ecommerce.order.client.ProductServiceStub;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread count and memory of order-service while {@code benchmark.clients} (5,000) connections keep
+ * adding to carts, each request waiting {@code benchmark.latency-ms} on product-service (a local
+ * stub). Runs the servlet stack on platform threads, the servlet stack on virtual threads and the
+ * reactive profile one after the other, each in its own JVM; H2 stands in for Postgres.
+ * <p>
+ * Threads are the JVM's platform threads, load generator and stub included (they use virtual
+ * threads, so they add only a few). Heap is measured after a full GC at the end of the run, with all
+ * connections still busy; RSS also covers the native stacks of platform threads.
+ * <p>
+ * Not part of the test run; see {@link AddToCartThroughputBenchmark} for how to start it. Needs an
+ * open-file limit of about three file descriptors per client.
+ */
+public class CartFootprintBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 5000);
+    private static final int LATENCY_MS = Integer.getInteger("benchmark.latency-ms", 1000);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+
+    private enum Mode { PLATFORM_THREADS, VIRTUAL_THREADS, REACTIVE }
+
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("benchmark.mode");
+        if (mode == null) {
+            // One JVM per mode, so memory left behind by one run does not count against the next
+            for (Mode each : Mode.values()) {
+                List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+                command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+                command.addAll(List.of("-Dbenchmark.mode=" + each, "-cp", System.getProperty("java.class.path"),
+                        CartFootprintBenchmark.class.getName()));
+                new ProcessBuilder(command).inheritIO().start().waitFor();
+            }
+            return;
+        }
+        // Reactor Netty's global pool (500 connections, 1,000 waiting) would turn most calls to product-service
+        // into 503s; this one lets every client wait on it at once, with half as many sockets as clients
+        HttpResources.set(ConnectionProvider.builder("benchmark")
+                .maxConnections(CLIENTS / 2)
+                .pendingAcquireMaxCount(CLIENTS)
+                .pendingAcquireTimeout(Duration.ofSeconds(60))
+                .build());
+        try (ProductServiceStub productService = new ProductServiceStub();
+             ConfigurableApplicationContext app = start(productService, Mode.valueOf(mode))) {
+            productService.setDelay(Duration.ofMillis(LATENCY_MS));
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            int idleThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+            String result = run(port);
+            System.out.printf("%s, %d connections, %d ms product-service, %ds: idle %d threads; under load %s%n",
+                    mode, CLIENTS, LATENCY_MS, SECONDS, idleThreads, result);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(ProductServiceStub productService, Mode mode) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.import=",
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + (mode == Mode.VIRTUAL_THREADS),
+                "--spring.cloud.discovery.enabled=true",
+                "--spring.cloud.discovery.client.simple.instances.product-service[0].uri=" + productService.baseUrl(),
+                "--clients.product.cache.enabled=false",
+                "--clients.product.batching.enabled=false",
+                // The benchmark measures the server, not the guards around product-service
+                "--resilience4j.bulkhead.instances.product-service.max-concurrent-calls=" + CLIENTS * 2,
+                "--resilience4j.circuitbreaker.instances.product-service.sliding-window-type=TIME_BASED",
+                "--resilience4j.circuitbreaker.instances.product-service.minimum-number-of-calls=" + Integer.MAX_VALUE,
+                // Thousands of connections to the stub are opened at once; some wait for its accept backlog
+                "--clients.product.timeouts.connect=30s",
+                "--clients.product.timeouts.response=60s",
+                // Callers wait for a database connection as long as they wait for a response, instead of a 503
+                "--spring.datasource.hikari.connection-timeout=60000",
+                "--spring.r2dbc.pool.max-acquire-time=60s",
+                "--logging.level.root=WARN"));
+        if (mode == Mode.REACTIVE) {
+            args.add("--spring.profiles.active=test,reactive");
+            args.add("--spring.sql.init.mode=always");
+            args.add("--spring.sql.init.schema-locations=classpath:db/reactive-cart-schema.sql");
+        } else {
+            args.add("--spring.profiles.active=test");
+        }
+        return new SpringApplicationBuilder(OrderServiceApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static String run(int port) throws Exception {
+        HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        URI uri = URI.create("http://localhost:" + port + "/api/cart/add?includeItems=false");
+        long deadline = System.nanoTime() + Duration.ofSeconds(SECONDS).toNanos();
+        AtomicLong completed = new AtomicLong();
+        Map<String, Integer> failures = new ConcurrentHashMap<>();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        String footprint;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long userId = ThreadLocalRandom.current().nextLong(1_000_000);
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .timeout(Duration.ofSeconds(SECONDS * 3L))
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"userId\": %d, \"productId\": 1, \"quantity\": 1}".formatted(userId)))
+                                .build();
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 201) {
+                                completed.incrementAndGet();
+                            } else {
+                                failures.merge(String.valueOf(status), 1, Integer::sum);
+                            }
+                        } catch (Exception ex) {
+                            failures.merge(ex.getClass().getSimpleName(), 1, Integer::sum);
+                        }
+                    }
+                    return null;
+                });
+            }
+            // Sampled just before the clients stop, while every connection is still in use
+            Thread.sleep(Math.max(0, (deadline - System.nanoTime()) / 1_000_000 - 2000));
+            footprint = footprint(threads);
+        }
+        return "%s, %.0f req/s, failures %s".formatted(footprint, completed.get() / (double) SECONDS, new TreeMap<>(failures));
+    }
+
+    private static String footprint(ThreadMXBean threads) throws Exception {
+        int live = threads.getThreadCount();
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return "%d threads (peak %d), heap after GC %d MB, RSS %d MB".formatted(
+                live, threads.getPeakThreadCount(), heap >> 20, residentSetKb() >> 10);
+    }
+
+    private static long residentSetKb() throws Exception {
+        for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+}
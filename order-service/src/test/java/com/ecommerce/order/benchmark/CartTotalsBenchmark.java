@@ -0,0 +1,100 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.entity.CartItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One add-to-cart quantity change on a cart of {@code items} lines: the former BigDecimal path
+ * (re-multiply the line, re-sum every line) against the Money path (reprice the line, apply its delta).
+ * <p>
+ * Not part of the test run. Execute {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.order.benchmark.CartTotalsBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"5", "50"})
+    private int items;
+
+    private final List<LegacyLine> legacyLines = new ArrayList<>();
+    private BigDecimal legacyTotal;
+
+    private Cart cart;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        for (int i = 0; i < items; i++) {
+            BigDecimal price = BigDecimal.valueOf(199 + i, 2);
+            legacyLines.add(new LegacyLine(price, 1));
+
+            CartItem item = CartItem.builder().cart(cart).productId((long) i).subTotal(Money.ZERO).build();
+            cart.getItems().add(item);
+            cart.adjustTotalPrice(item.reprice(Money.of(price), 1));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalRecompute() {
+        LegacyLine line = legacyLines.get(next++ % items);
+        line.quantity++;
+        line.subTotal = line.price.multiply(BigDecimal.valueOf(line.quantity));
+        legacyTotal = legacyLines.stream()
+                .map(l -> l.subTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return legacyTotal;
+    }
+
+    @Benchmark
+    public Money moneyIncremental() {
+        CartItem item = cart.getItems().get(next++ % items);
+        cart.adjustTotalPrice(item.reprice(item.getPrice(), item.getQuantity() + 1));
+        return cart.getTotalPrice();
+    }
+
+    // Mirrors the former CartItem.calculateSubTotal / Cart.calculateTotalPrice
+    private static final class LegacyLine {
+        final BigDecimal price;
+        int quantity;
+        BigDecimal subTotal;
+
+        LegacyLine(BigDecimal price, int quantity) {
+            this.price = price;
+            this.quantity = quantity;
+            this.subTotal = price.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartTotalsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
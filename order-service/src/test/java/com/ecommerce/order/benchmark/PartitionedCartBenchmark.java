@@ -0,0 +1,221 @@
+package com.ecommerce.order.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Insert and lookup latency of the cart tables on Postgres, unpartitioned (as Hibernate creates them)
+ * against {@code db/partitioned/cart-schema.sql}, with {@code benchmark.carts} (2,000,000) carts of
+ * {@code benchmark.items-per-cart} (5) lines each, so 10M cart_item rows. Each layout is loaded into its
+ * own schema, {@code bench_plain} and {@code bench_partitioned}, which are dropped and recreated first.
+ * <p>
+ * Statements are the ones order-service sends on its hot paths, one at a time on one connection:
+ * the cart with its lines by user ({@code findByUserId}), one line by cart and product (the upsert's
+ * lookup), the product ids of a user's cart, and a new cart with its lines in one transaction.
+ * Lookups on the partitioned tables run twice: with Postgres' default {@code plan_cache_mode}, which
+ * plans them again for every execution, and with the generic plans the {@code partitioned} profile
+ * asks for. Also prints the size of cart_item and how long a {@code VACUUM} of it, or of one partition, takes.
+ * <p>
+ * Not part of the test run; needs a Postgres, by default the one of docker-compose.yml
+ * ({@code -Dbenchmark.jdbc-url}, {@code -Dbenchmark.user}, {@code -Dbenchmark.password}). Execute
+ * {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.order.benchmark.PartitionedCartBenchmark}.
+ */
+public class PartitionedCartBenchmark {
+
+    private static final String JDBC_URL = System.getProperty("benchmark.jdbc-url", "jdbc:postgresql://localhost:5433/order_db");
+    private static final String USER = System.getProperty("benchmark.user", "admin");
+    private static final String PASSWORD = System.getProperty("benchmark.password", "admin");
+    private static final int CARTS = Integer.getInteger("benchmark.carts", 2_000_000);
+    private static final int ITEMS_PER_CART = Integer.getInteger("benchmark.items-per-cart", 5);
+    private static final int SAMPLES = Integer.getInteger("benchmark.samples", 20_000);
+
+    // The tables Hibernate creates for Cart and CartItem
+    private static final String PLAIN_SCHEMA = """
+            CREATE SEQUENCE cart_seq START WITH 1 INCREMENT BY 50;
+            CREATE SEQUENCE cart_item_seq START WITH 1 INCREMENT BY 50;
+            CREATE TABLE cart (
+                id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, total_price_minor BIGINT NOT NULL,
+                created_at TIMESTAMP(6), updated_at TIMESTAMP(6), version BIGINT,
+                CONSTRAINT uk_cart_user UNIQUE (user_id));
+            CREATE TABLE cart_item (
+                id BIGINT PRIMARY KEY, cart_id BIGINT REFERENCES cart, product_id BIGINT NOT NULL,
+                product_name VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL,
+                sub_total_minor BIGINT NOT NULL, price_minor BIGINT NOT NULL,
+                CONSTRAINT uk_cart_item_product UNIQUE (cart_id, product_id));
+            """;
+
+    private static final String FIND_BY_USER_ID = """
+            SELECT c.id, c.total_price_minor, c.version, i.id, i.product_id, i.product_name, i.quantity, i.price_minor
+            FROM cart c LEFT JOIN cart_item i ON i.cart_id = c.id WHERE c.user_id = ?
+            """;
+    private static final String FIND_ITEM = """
+            SELECT id, quantity, sub_total_minor FROM cart_item WHERE cart_id = ? AND product_id = ?
+            """;
+    private static final String FIND_PRODUCT_IDS = """
+            SELECT product_id FROM cart_item WHERE cart_id = (SELECT id FROM cart WHERE user_id = ?)
+            """;
+
+    private enum Layout { PLAIN, PARTITIONED }
+
+    public static void main(String[] args) throws Exception {
+        for (Layout layout : Layout.values()) {
+            try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+                String schema = "bench_" + layout.name().toLowerCase();
+                long loadMillis = load(connection, schema, layout);
+                System.out.printf("%s, %,d carts, %,d items: loaded in %d s, %s%n",
+                        layout, CARTS, (long) CARTS * ITEMS_PER_CART, loadMillis / 1000, storage(connection, schema, layout));
+                // Same keys for both layouts; the first round only warms caches and prepared statements
+                for (boolean measured : new boolean[]{false, true}) {
+                    String inserts = insert(connection, measured);
+                    for (String planCacheMode : layout == Layout.PLAIN ? List.of("auto") : List.of("auto", "force_generic_plan")) {
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SET plan_cache_mode = " + planCacheMode);
+                        }
+                        Random random = new Random(42);
+                        String lookups = "findByUserId " + lookup(connection, FIND_BY_USER_ID, false, random)
+                                + ", item by cart and product " + lookup(connection, FIND_ITEM, true, random)
+                                + ", product ids by user " + lookup(connection, FIND_PRODUCT_IDS, false, random);
+                        if (measured) {
+                            System.out.printf("%s, plan_cache_mode %s: %s; new cart with %d lines %s%n",
+                                    layout, planCacheMode, lookups, ITEMS_PER_CART, inserts);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static long load(Connection connection, String schema, Layout layout) throws Exception {
+        long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE; CREATE SCHEMA " + schema
+                    + "; SET search_path TO " + schema);
+            statement.execute(layout == Layout.PLAIN ? PLAIN_SCHEMA : partitionedSchema());
+            // User ids run against cart ids, so neither follows the physical order of the other
+            statement.execute("""
+                    INSERT INTO cart (id, user_id, total_price_minor, created_at, updated_at, version)
+                    SELECT g, %d - g, %d, now(), now(), 0 FROM generate_series(1, %d) g
+                    """.formatted(CARTS + 1, ITEMS_PER_CART * 250, CARTS));
+            statement.execute("""
+                    INSERT INTO cart_item (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+                    SELECT (g - 1) * %d + p, g, p, 'Product ' || p, 1, 250, 250
+                    FROM generate_series(1, %d) g, generate_series(1, %d) p
+                    """.formatted(ITEMS_PER_CART, CARTS, ITEMS_PER_CART));
+            statement.execute("SELECT setval('cart_seq', %d), setval('cart_item_seq', %d)"
+                    .formatted(CARTS + 1, (long) CARTS * ITEMS_PER_CART + 1));
+            // VACUUM refuses to share a statement with anything else
+            statement.execute("VACUUM ANALYZE cart");
+            statement.execute("VACUUM ANALYZE cart_item");
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static String partitionedSchema() throws Exception {
+        try (var in = PartitionedCartBenchmark.class.getResourceAsStream("/db/partitioned/cart-schema.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Keys are cart ids or user ids, both 1..CARTS
+    private static String lookup(Connection connection, String sql, boolean byCart, Random random) throws SQLException {
+        long[] nanos = new long[SAMPLES];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < SAMPLES; i++) {
+                long key = random.nextLong(1, CARTS + 1);
+                long start = System.nanoTime();
+                statement.setLong(1, key);
+                if (byCart) {
+                    statement.setLong(2, random.nextLong(1, ITEMS_PER_CART + 1));
+                }
+                int rows = 0;
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        rows++;
+                    }
+                }
+                nanos[i] = System.nanoTime() - start;
+                if (rows == 0) {
+                    throw new IllegalStateException("No rows for " + key + ": " + sql);
+                }
+            }
+        }
+        return percentiles(nanos);
+    }
+
+    // New users above every loaded one; the warm-up round's carts are deleted again so both rounds insert the same keys
+    private static String insert(Connection connection, boolean measured) throws SQLException {
+        long[] nanos = new long[SAMPLES];
+        long firstUser = 10L * CARTS;
+        connection.setAutoCommit(false);
+        try (PreparedStatement cart = connection.prepareStatement("""
+                INSERT INTO cart (id, user_id, total_price_minor, created_at, updated_at, version)
+                VALUES (nextval('cart_seq'), ?, ?, now(), now(), 0) RETURNING id
+                """);
+             PreparedStatement item = connection.prepareStatement("""
+                     INSERT INTO cart_item (id, cart_id, product_id, product_name, quantity, sub_total_minor, price_minor)
+                     VALUES (nextval('cart_item_seq'), ?, ?, ?, 1, 250, 250)
+                     """)) {
+            for (int i = 0; i < SAMPLES; i++) {
+                long start = System.nanoTime();
+                cart.setLong(1, firstUser + i);
+                cart.setLong(2, ITEMS_PER_CART * 250L);
+                long cartId;
+                try (ResultSet result = cart.executeQuery()) {
+                    result.next();
+                    cartId = result.getLong(1);
+                }
+                for (int product = 1; product <= ITEMS_PER_CART; product++) {
+                    item.setLong(1, cartId);
+                    item.setLong(2, product);
+                    item.setString(3, "Product " + product);
+                    item.addBatch();
+                }
+                item.executeBatch();
+                connection.commit();
+                nanos[i] = System.nanoTime() - start;
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        if (!measured) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM cart_item WHERE cart_id IN (SELECT id FROM cart WHERE user_id >= " + firstUser + ")");
+                statement.execute("DELETE FROM cart WHERE user_id >= " + firstUser);
+            }
+        }
+        return percentiles(nanos);
+    }
+
+    private static String storage(Connection connection, String schema, Layout layout) throws SQLException {
+        String largest = layout == Layout.PLAIN ? "cart_item" : "cart_item_p0";
+        try (Statement statement = connection.createStatement()) {
+            // pg_partition_tree is empty for a table that is not partitioned
+            ResultSet size = statement.executeQuery("""
+                    SELECT coalesce(sum(pg_total_relation_size(relid)), pg_total_relation_size('%1$s.cart_item'))
+                    FROM pg_partition_tree('%1$s.cart_item')
+                    """.formatted(schema));
+            size.next();
+            long total = size.getLong(1);
+            long start = System.nanoTime();
+            statement.execute("VACUUM " + largest);
+            long vacuumMillis = (System.nanoTime() - start) / 1_000_000;
+            return "cart_item %d MB with indexes, VACUUM of %s %d ms".formatted(total >> 20, largest, vacuumMillis);
+        }
+    }
+
+    private static String percentiles(long[] nanos) {
+        Arrays.sort(nanos);
+        return "p50 %.3f ms, p99 %.3f ms".formatted(
+                nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6);
+    }
+}
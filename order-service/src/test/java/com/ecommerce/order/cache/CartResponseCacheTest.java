@@ -0,0 +1,212 @@
+package com.ecommerce.order.cache;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.dto.CartResponseDTO;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.repository.CartRepository;
+import com.ecommerce.order.service.CartService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "cart.response-cache.enabled=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CartResponseCacheTest {
+
+    private static final Money PRICE = Money.ofMinor(150);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartResponseCache cartResponseCache;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        for (long userId = 1; userId <= 7; userId++) {
+            cartResponseCache.invalidate(userId);
+        }
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0), PRICE));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void mutationsWriteThroughAndReadsSkipTheDatabase() throws Exception {
+        cartService.addToCart(1L, 1L, 2);
+        Cart cart = cartService.addToCart(1L, 2L, 1);
+        statistics.clear();
+        double hits = hits();
+
+        String eTag = mockMvc.perform(get("/api/cart/{userId}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.totalPrice").value(4.5))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/cart/{userId}", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        assertThat(eTag).isEqualTo("\"" + cart.getId() + "." + cart.getVersion() + "\"");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(hits() - hits).isEqualTo(2);
+
+        Long itemId = cart.getItems().getFirst().getId();
+        cartService.removeItemFromCart(1L, itemId);
+        mockMvc.perform(get("/api/cart/{userId}", 1L))
+                .andExpect(jsonPath("$.items.length()").value(1));
+        cartService.clearCart(1L);
+        mockMvc.perform(get("/api/cart/{userId}", 1L))
+                .andExpect(jsonPath("$.items.length()").value(0));
+        assertThat(statistics.getPrepareStatementCount()).isPositive();
+    }
+
+    @Test
+    void aMissIsFilledFromTheDatabaseWithTheSameBody() throws Exception {
+        cartService.addToCart(2L, 1L, 3);
+        String cached = mockMvc.perform(get("/api/cart/{userId}", 2L)).andReturn().getResponse().getContentAsString();
+        cartResponseCache.invalidate(2L);
+        statistics.clear();
+
+        String loaded = mockMvc.perform(get("/api/cart/{userId}", 2L)).andReturn().getResponse().getContentAsString();
+        String again = mockMvc.perform(get("/api/cart/{userId}", 2L)).andReturn().getResponse().getContentAsString();
+
+        assertThat(loaded).isEqualTo(cached);
+        assertThat(again).isEqualTo(cached);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nothingIsCachedUntilCommitAndNothingAfterRollback() throws Exception {
+        Cart cart = cartService.addToCart(3L, 1L, 1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart changed = Cart.builder().id(cart.getId()).userId(3L).items(new ArrayList<>())
+                    .totalPrice(Money.ZERO).version(cart.getVersion() + 1).build();
+            cartResponseCache.put(changed);
+            assertThat(cartResponseCache.get(3L).orElseThrow().version()).isEqualTo(cart.getVersion());
+            status.setRollbackOnly();
+        });
+        assertThatThrownBy(() -> cartService.removeItemFromCart(3L, -1L)).isInstanceOf(ResponseStatusException.class);
+
+        mockMvc.perform(get("/api/cart/{userId}", 3L))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + cart.getId() + "." + cart.getVersion() + "\""))
+                .andExpect(jsonPath("$.items.length()").value(1));
+    }
+
+    @Test
+    void olderVersionsNeverReplaceNewerOnes() {
+        Cart older = cartService.addToCart(4L, 1L, 1);
+        CartResponseDTO olderResponse = new CartResponseDTO();
+        olderResponse.setId(older.getId());
+        Cart newer = cartService.addToCart(4L, 2L, 1);
+        double stalePuts = meterRegistry.counter("cart.response-cache.stale-puts").count();
+
+        // A reader that loaded the cart before the second add finishes last
+        cartResponseCache.putLoaded(4L, older.getId(), older.getVersion(), olderResponse);
+
+        assertThat(cartResponseCache.get(4L).orElseThrow().version()).isEqualTo(newer.getVersion());
+        assertThat(meterRegistry.counter("cart.response-cache.stale-puts").count()).isEqualTo(stalePuts + 1);
+    }
+
+    @Test
+    void mutationsThatDoNotLoadTheCartLeaveAFence() throws Exception {
+        Cart cart = cartService.addToCart(5L, 1L, 1);
+        var totals = cartService.addItem(5L, 2L, 1);
+        CartResponseDTO stale = new CartResponseDTO();
+
+        assertThat(cartResponseCache.get(5L)).isEmpty();
+        // The read that started before the add cannot fill the cache any more
+        cartResponseCache.putLoaded(5L, cart.getId(), cart.getVersion(), stale);
+        assertThat(cartResponseCache.get(5L)).isEmpty();
+
+        mockMvc.perform(get("/api/cart/{userId}", 5L))
+                .andExpect(jsonPath("$.items.length()").value(2));
+        assertThat(cartResponseCache.get(5L).orElseThrow().version()).isEqualTo(totals.getVersion());
+    }
+
+    @Test
+    void aWriteThroughAnotherInstanceFencesThisOne() {
+        Cart cart = cartService.addToCart(6L, 1L, 1);
+        // This instance's own broadcast does not fence what it just cached
+        assertThat(cartResponseCache.get(6L).orElseThrow().version()).isEqualTo(cart.getVersion());
+
+        eventPublisher.publishEvent(new CartChangedEvent(this, "order-service:other", "order-service", 6L, cart.getId(),
+                cart.getVersion() + 1));
+
+        assertThat(cartResponseCache.get(6L)).isEmpty();
+        cartResponseCache.putLoaded(6L, cart.getId(), cart.getVersion(), new CartResponseDTO());
+        assertThat(cartResponseCache.get(6L)).isEmpty();
+    }
+
+    @Test
+    void anotherCartOfTheSameUserDropsTheEntry() {
+        CartResponseDTO response = new CartResponseDTO();
+        cartResponseCache.putLoaded(7L, 100L, 3L, response);
+
+        // Moved to another shard: a new id, same version
+        cartResponseCache.putLoaded(7L, 200L, 3L, response);
+        assertThat(cartResponseCache.get(7L)).isEmpty();
+
+        cartResponseCache.putLoaded(7L, 200L, 3L, response);
+        assertThat(cartResponseCache.get(7L).orElseThrow().cartId()).isEqualTo(200L);
+        cartResponseCache.changed(7L, null, null);
+        assertThat(cartResponseCache.get(7L)).isEmpty();
+    }
+
+    private double hits() {
+        return meterRegistry.counter("cart.response-cache.gets", "result", "hit").count();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ecommerce.order.cache;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent.ChangeType;
+import com.ecommerce.order.client.ProductBatchLoader;
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.config.ProductClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static com.ecommerce.order.TestProducts.DEFAULT_PRICE;
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductNearCacheTest {
+
+    private final ProductClient productClient = mock(ProductClient.class);
+    private ProductBatchLoader loader;
+    private ProductNearCache cache;
+    private ProductChangedEventListener listener;
+    private Money price = DEFAULT_PRICE;
+
+    @BeforeEach
+    void setUp() {
+        // Ids up to 0 are unknown to product-service
+        when(productClient.getProductsByIds(any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            ProductBatchResponseDTO batch = new ProductBatchResponseDTO();
+            batch.setProducts(ids.stream().filter(id -> id > 0).map(id -> product(id, price)).toList());
+            batch.setMissingIds(ids.stream().filter(id -> id <= 0).toList());
+            return batch;
+        });
+        ProductClientProperties properties = new ProductClientProperties();
+        properties.getBatching().setWindow(Duration.ofMillis(1));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        loader = new ProductBatchLoader(productClient, properties, meterRegistry);
+        cache = new ProductNearCache(loader, properties, meterRegistry);
+        listener = new ProductChangedEventListener(cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.destroy();
+    }
+
+    @Test
+    void aMissGoesToProductServiceAndTheNextLookupIsAHit() {
+        assertThat(cache.getProductById(1L).getId()).isEqualTo(1L);
+        assertThat(cache.getProductById(1L).getId()).isEqualTo(1L);
+
+        verify(productClient, times(1)).getProductsByIds(List.of(1L));
+    }
+
+    @Test
+    void anUnknownProductIsNotCached() {
+        assertThat(cache.getProductById(-1L)).isNull();
+        assertThat(cache.getProductById(-1L)).isNull();
+
+        verify(productClient, times(2)).getProductsByIds(List.of(-1L));
+    }
+
+    @Test
+    void aChangeEventDropsTheCachedProduct() {
+        assertThat(cache.getProductById(2L).getPrice()).isEqualTo(DEFAULT_PRICE);
+        price = Money.of(new BigDecimal("4.00"));
+
+        listener.onProductChanged(event(2L, ChangeType.UPDATED));
+
+        assertThat(cache.getProductById(2L).getPrice()).isEqualTo(price);
+        verify(productClient, times(2)).getProductsByIds(List.of(2L));
+    }
+
+    @Test
+    void aCreatedEventLeavesTheCacheAlone() {
+        cache.getProductById(3L);
+
+        listener.onProductChanged(event(3L, ChangeType.CREATED));
+
+        cache.getProductById(3L);
+        verify(productClient, times(1)).getProductsByIds(List.of(3L));
+    }
+
+    private ProductChangedEvent event(long productId, ChangeType changeType) {
+        return new ProductChangedEvent(this, "product-service:8082:other", productId, changeType);
+    }
+}
@@ -0,0 +1,217 @@
+package com.ecommerce.order.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Sends the same workload through the real load-balancer filter to three stub replicas, one of them degraded
+class LatencyAwareLoadBalancerSimulationTest {
+
+    private static final int REQUESTS = 300;
+    private static final int CONCURRENCY = 6;
+
+    private ProductServiceStub fastA;
+    private ProductServiceStub fastB;
+    private ProductServiceStub slow;
+    private InstanceLatencyTracker tracker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fastA = new ProductServiceStub();
+        fastB = new ProductServiceStub();
+        slow = new ProductServiceStub();
+        fastA.setDelay(Duration.ofMillis(5));
+        fastB.setDelay(Duration.ofMillis(5));
+        slow.setDelay(Duration.ofMillis(80));
+        tracker = new InstanceLatencyTracker(Duration.ofSeconds(2), Duration.ofMillis(100), Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fastA.close();
+        fastB.close();
+        slow.close();
+    }
+
+    @Test
+    void roundRobinGivesTheDegradedReplicaAnEqualShare() {
+        run(suppliers -> new RoundRobinLoadBalancer(suppliers, "product-service"));
+
+        assertThat(shareOf(slow)).isCloseTo(1.0 / 3, within(0.02));
+    }
+
+    @Test
+    void latencyAwareBalancingStarvesTheDegradedReplica() {
+        run(suppliers -> new LatencyAwareLoadBalancer(suppliers, tracker));
+
+        // Still tried before it is known to be slow
+        assertThat(shareOf(slow)).isGreaterThan(0.0).isLessThan(0.10);
+        assertThat(tracker.averageLatencyOf(instanceOf(slow))).isGreaterThan(Duration.ofMillis(50));
+        assertThat(tracker.averageLatencyOf(instanceOf(fastA))).isLessThan(Duration.ofMillis(50));
+    }
+
+    @Test
+    void aRecoveredReplicaIsPickedAgain() throws InterruptedException {
+        tracker = new InstanceLatencyTracker(Duration.ofMillis(200), Duration.ofMillis(100), Duration.ofSeconds(1));
+        run(suppliers -> new LatencyAwareLoadBalancer(suppliers, tracker));
+        assertThat(tracker.averageLatencyOf(instanceOf(slow))).isGreaterThan(Duration.ofMillis(50));
+
+        slow.setDelay(Duration.ofMillis(5));
+        // Left alone for a few decay periods, its cost shrinks until it is tried again
+        Thread.sleep(1_000);
+        int before = fastA.requests() + fastB.requests() + slow.requests();
+        int slowBefore = slow.requests();
+        run(suppliers -> new LatencyAwareLoadBalancer(suppliers, tracker));
+
+        double share = (double) (slow.requests() - slowBefore) / (fastA.requests() + fastB.requests() + slow.requests() - before);
+        assertThat(share).isGreaterThan(0.2);
+        assertThat(tracker.averageLatencyOf(instanceOf(slow))).isLessThan(Duration.ofMillis(50));
+    }
+
+    @Test
+    void cancelledRequestsReleaseTheirInFlightSlot() {
+        WebClient webClient = webClientWith(suppliers -> new LatencyAwareLoadBalancer(suppliers, tracker));
+
+        for (int i = 0; i < 6; i++) {
+            webClient.get().uri("/api/products/1").retrieve().bodyToMono(String.class)
+                    .timeout(Duration.ofMillis(30))
+                    .onErrorResume(ex -> Mono.empty())
+                    .block();
+        }
+
+        for (ProductServiceStub stub : List.of(fastA, fastB, slow)) {
+            assertThat(tracker.inFlightOf(instanceOf(stub))).isZero();
+        }
+    }
+
+    @Test
+    void movingAverageWeighsSamplesByElapsedTime() {
+        AtomicLong clock = new AtomicLong();
+        InstanceLatencyTracker tracker = new InstanceLatencyTracker(Duration.ofSeconds(1), Duration.ofMillis(100),
+                Duration.ofSeconds(1), clock::get);
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://10.0.0.1:8081/api/products/1")).build();
+
+        respondAfter(tracker, request, clock, Duration.ofMillis(10));
+        assertThat(tracker.averageLatencyOf("10.0.0.1:8081")).isEqualTo(Duration.ofMillis(10));
+
+        // One decay period later the old average keeps a weight of 1/e
+        clock.addAndGet(Duration.ofMillis(900).toNanos());
+        respondAfter(tracker, request, clock, Duration.ofMillis(100));
+        double expected = 10 * Math.exp(-1) + 100 * (1 - Math.exp(-1));
+        assertThat(tracker.averageLatencyOf("10.0.0.1:8081").toNanos() / 1e6).isCloseTo(expected, within(0.01));
+    }
+
+    @Test
+    void failedCallsCountAsSlowAndIdleInstancesGetCheaper() {
+        AtomicLong clock = new AtomicLong();
+        InstanceLatencyTracker tracker = new InstanceLatencyTracker(Duration.ofSeconds(1), Duration.ofMillis(100),
+                Duration.ofSeconds(1), clock::get);
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://10.0.0.1:8081/api/products/1")).build();
+
+        // Fails fast, but does not look fast
+        respondAfter(tracker, request, clock, Duration.ofMillis(2), HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(tracker.averageLatencyOf("10.0.0.1:8081")).isEqualTo(Duration.ofSeconds(1));
+        assertThat(tracker.costOf("10.0.0.1:8081")).isCloseTo(Duration.ofSeconds(1).toNanos(), within(1.0));
+
+        // Three decay periods without a request leave 1/e^3 of the cost; the measured average stays
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        assertThat(tracker.costOf("10.0.0.1:8081")).isCloseTo(Duration.ofSeconds(1).toNanos() * Math.exp(-3), within(1.0));
+        assertThat(tracker.averageLatencyOf("10.0.0.1:8081")).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    private static void respondAfter(InstanceLatencyTracker tracker, ClientRequest request, AtomicLong clock, Duration latency) {
+        respondAfter(tracker, request, clock, latency, HttpStatus.OK);
+    }
+
+    private static void respondAfter(InstanceLatencyTracker tracker, ClientRequest request, AtomicLong clock, Duration latency,
+                                     HttpStatus status) {
+        tracker.filter().filter(request, req -> {
+            clock.addAndGet(latency.toNanos());
+            return Mono.just(ClientResponse.create(status).build());
+        }).block();
+    }
+
+    private void run(Function<ObjectProvider<ServiceInstanceListSupplier>, ReactiveLoadBalancer<ServiceInstance>> balancer) {
+        WebClient webClient = webClientWith(balancer);
+        Flux.range(0, REQUESTS)
+                .flatMap(i -> webClient.get().uri("/api/products/{id}", i).retrieve().bodyToMono(String.class), CONCURRENCY)
+                .blockLast(Duration.ofSeconds(60));
+    }
+
+    private WebClient webClientWith(Function<ObjectProvider<ServiceInstanceListSupplier>, ReactiveLoadBalancer<ServiceInstance>> balancer) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("instances", ServiceInstanceListSuppliers.from("product-service",
+                instance("a", fastA), instance("b", fastB), instance("c", slow)));
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer = balancer.apply(beans.getBeanProvider(ServiceInstanceListSupplier.class));
+        return WebClient.builder()
+                .baseUrl("http://product-service")
+                .filter(new ReactorLoadBalancerExchangeFilterFunction(new SingleServiceFactory(loadBalancer), List.of()))
+                .filter(tracker.filter())
+                .build();
+    }
+
+    private double shareOf(ProductServiceStub stub) {
+        return (double) stub.requests() / (fastA.requests() + fastB.requests() + slow.requests());
+    }
+
+    private static ServiceInstance instance(String id, ProductServiceStub stub) {
+        URI uri = URI.create(stub.baseUrl());
+        return new DefaultServiceInstance(id, "product-service", uri.getHost(), uri.getPort(), false);
+    }
+
+    private static String instanceOf(ProductServiceStub stub) {
+        URI uri = URI.create(stub.baseUrl());
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    private record SingleServiceFactory(ReactiveLoadBalancer<ServiceInstance> loadBalancer)
+            implements ReactiveLoadBalancer.Factory<ServiceInstance> {
+
+        @Override
+        public ReactiveLoadBalancer<ServiceInstance> getInstance(String serviceId) {
+            return loadBalancer;
+        }
+
+        @Override
+        public <X> Map<String, X> getInstances(String name, Class<X> type) {
+            return Map.of();
+        }
+
+        @Override
+        public <X> X getInstance(String name, Class<?> clazz, Class<?>... generics) {
+            return null;
+        }
+
+        @Override
+        public LoadBalancerProperties getProperties(String serviceId) {
+            return new LoadBalancerProperties();
+        }
+    }
+}
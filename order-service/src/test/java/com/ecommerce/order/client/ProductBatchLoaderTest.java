@@ -0,0 +1,115 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.config.ProductClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductBatchLoaderTest {
+
+    private final ProductClient productClient = mock(ProductClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProductBatchLoader loader;
+
+    @AfterEach
+    void tearDown() {
+        loader.destroy();
+    }
+
+    @Test
+    void lookupsWithinOneWindowShareOneCall() throws Exception {
+        loader = loader(Duration.ofMillis(100), 100);
+        when(productClient.getProductsByIds(any())).thenAnswer(inv -> found(inv.getArgument(0)));
+
+        List<CompletableFuture<ProductResponseDTO>> lookups = List.of(
+                loader.load(1L), loader.load(2L), loader.load(3L), loader.load(2L));
+
+        for (int i = 0; i < lookups.size(); i++) {
+            assertThat(lookups.get(i).get(5, TimeUnit.SECONDS).getId()).isEqualTo(i == 3 ? 2L : i + 1L);
+        }
+        verify(productClient, times(1)).getProductsByIds(List.of(1L, 2L, 3L));
+        assertThat(meterRegistry.get("product.client.batch.shared").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("product.client.batch.size").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void aFullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        loader = loader(Duration.ofMinutes(1), 2);
+        when(productClient.getProductsByIds(any())).thenAnswer(inv -> found(inv.getArgument(0)));
+
+        CompletableFuture<ProductResponseDTO> first = loader.load(1L);
+        CompletableFuture<ProductResponseDTO> second = loader.load(2L);
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThat(second.get(5, TimeUnit.SECONDS).getId()).isEqualTo(2L);
+        verify(productClient).getProductsByIds(List.of(1L, 2L));
+    }
+
+    @Test
+    void missingProductsCompleteWithNullAndTheRestWithTheirProduct() throws Exception {
+        loader = loader(Duration.ofMillis(50), 100);
+        ProductBatchResponseDTO partial = new ProductBatchResponseDTO();
+        partial.setProducts(List.of(product(1L), product(3L)));
+        partial.setMissingIds(List.of(2L));
+        when(productClient.getProductsByIds(any())).thenReturn(partial);
+
+        CompletableFuture<ProductResponseDTO> first = loader.load(1L);
+        CompletableFuture<ProductResponseDTO> missing = loader.load(2L);
+        CompletableFuture<ProductResponseDTO> third = loader.load(3L);
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThat(missing.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(third.get(5, TimeUnit.SECONDS).getId()).isEqualTo(3L);
+    }
+
+    @Test
+    void aFailedCallFailsEveryLookupOfTheBatchAndTheNextLookupAsksAgain() {
+        loader = loader(Duration.ofMillis(50), 100);
+        WebClientResponseException unavailable = WebClientResponseException.create(503, "Service Unavailable",
+                HttpHeaders.EMPTY, new byte[0], null);
+        when(productClient.getProductsByIds(any()))
+                .thenThrow(unavailable)
+                .thenAnswer(inv -> found(inv.getArgument(0)));
+
+        CompletableFuture<ProductResponseDTO> other = loader.load(2L);
+        // The blocking variant rethrows the client's own exception
+        assertThatThrownBy(() -> loader.getProductById(1L)).isSameAs(unavailable);
+        assertThatThrownBy(() -> other.get(5, TimeUnit.SECONDS)).hasCauseReference(unavailable);
+
+        assertThat(loader.getProductById(1L).getId()).isEqualTo(1L);
+        verify(productClient, times(2)).getProductsByIds(any());
+    }
+
+    private ProductBatchLoader loader(Duration window, int maxBatchSize) {
+        ProductClientProperties properties = new ProductClientProperties();
+        properties.getBatching().setWindow(window);
+        properties.getBatching().setMaxBatchSize(maxBatchSize);
+        return new ProductBatchLoader(productClient, properties, meterRegistry);
+    }
+
+    private static ProductBatchResponseDTO found(Collection<Long> ids) {
+        ProductBatchResponseDTO batch = new ProductBatchResponseDTO();
+        batch.setProducts(ids.stream().map(id -> product(id)).toList());
+        batch.setMissingIds(List.of());
+        return batch;
+    }
+}
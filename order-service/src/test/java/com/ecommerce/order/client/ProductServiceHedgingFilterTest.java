@@ -0,0 +1,150 @@
+package com.ecommerce.order.client;
+
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductServiceHedgingFilterTest {
+
+    private ProductServiceStub stub;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new ProductServiceStub();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void slowFirstAttemptIsHedgedAndTheHedgeWins() {
+        stub.setDelay(n -> n == 1 ? Duration.ofSeconds(2) : Duration.ZERO);
+        ProductClient client = clientWith(settings(Duration.ofMillis(50), 0.05, 10));
+
+        long start = System.nanoTime();
+        ProductResponseDTO product = client.getProductById(3L);
+
+        assertThat(product.getId()).isEqualTo(3L);
+        // Answered before the first attempt could have been
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(hedges("fired")).isEqualTo(1);
+        assertThat(hedges("won")).isEqualTo(1);
+    }
+
+    @Test
+    void fastResponsesAreNotHedged() {
+        ProductClient client = clientWith(settings(Duration.ofMillis(200), 0.05, 10));
+
+        for (long id = 1; id <= 20; id++) {
+            client.getProductById(id);
+        }
+
+        assertThat(stub.requests()).isEqualTo(20);
+        assertThat(hedges("fired")).isZero();
+    }
+
+    @Test
+    void hedgesStayWithinTheBudget() {
+        stub.setDelay(Duration.ofMillis(60));
+        // Room for 2 hedges up front, then one per 20 requests
+        ProductClient client = clientWith(settings(Duration.ofMillis(10), 0.05, 2));
+
+        for (long id = 1; id <= 20; id++) {
+            client.getProductById(id);
+        }
+
+        assertThat(hedges("fired")).isEqualTo(2);
+        assertThat(hedges("budget_exhausted")).isEqualTo(18);
+        assertThat(stub.requests()).isEqualTo(22);
+    }
+
+    @Test
+    void nonGetRequestsAreNeverHedged() {
+        stub.setDelay(Duration.ofMillis(200));
+        WebClient webClient = webClientWith(settings(Duration.ofMillis(10), 1.0, 10));
+
+        webClient.post().uri("/api/products/1").retrieve().toBodilessEntity().block();
+
+        assertThat(stub.requests()).isEqualTo(1);
+        assertThat(hedges("fired")).isZero();
+    }
+
+    @Test
+    void hedgeDelayFollowsTheLatencyPercentile() {
+        ProductServiceHedgingFilter.LatencyWindow window =
+                new ProductServiceHedgingFilter.LatencyWindow(100, 10, Duration.ofMillis(100));
+        for (int i = 1; i <= 9; i++) {
+            window.record(Duration.ofMillis(i).toNanos());
+        }
+        assertThat(window.percentile(0.95)).isEqualTo(Duration.ofMillis(100));
+
+        for (int i = 10; i <= 100; i++) {
+            window.record(Duration.ofMillis(i).toNanos());
+        }
+        assertThat(window.percentile(0.95)).isEqualTo(Duration.ofMillis(95));
+    }
+
+    @Test
+    void hedgeAvoidsTheInstanceOfTheFirstAttempt() {
+        ServiceInstance first = new DefaultServiceInstance("a", "product-service", "10.0.0.1", 8081, false);
+        ServiceInstance second = new DefaultServiceInstance("b", "product-service", "10.0.0.2", 8081, false);
+        HedgeAwareServiceInstanceListSupplier supplier = new HedgeAwareServiceInstanceListSupplier(
+                ServiceInstanceListSuppliers.from("product-service", first, second));
+
+        assertThat(supplier.get(requestWith(Map.of())).blockFirst()).containsExactly(first, second);
+        assertThat(supplier.get(requestWith(Map.of(ProductServiceHedgingFilter.AVOID_INSTANCE_ATTRIBUTE, "10.0.0.1:8081")))
+                .blockFirst()).containsExactly(second);
+    }
+
+    private static DefaultRequest<RequestDataContext> requestWith(Map<String, Object> attributes) {
+        return new DefaultRequest<>(new RequestDataContext(new RequestData(HttpMethod.GET,
+                URI.create("http://product-service/api/products/1"), new HttpHeaders(), new LinkedMultiValueMap<>(), attributes)));
+    }
+
+    private static ProductServiceHedgingFilter.Settings settings(Duration initialDelay, double budgetRatio, int maxBurst) {
+        return new ProductServiceHedgingFilter.Settings(0.95, Duration.ofMillis(10), Duration.ofMillis(500), initialDelay,
+                1024, 100, budgetRatio, maxBurst);
+    }
+
+    private WebClient webClientWith(ProductServiceHedgingFilter.Settings settings) {
+        return WebClient.builder()
+                .baseUrl(stub.baseUrl())
+                .filter(new ProductServiceHedgingFilter(settings, meterRegistry))
+                .filter(ProductServiceHedgingFilter.instanceRecorder())
+                .build();
+    }
+
+    private ProductClient clientWith(ProductServiceHedgingFilter.Settings settings) {
+        return HttpServiceProxyFactory.builderFor(WebClientAdapter.create(webClientWith(settings))).build()
+                .createClient(ProductClient.class);
+    }
+
+    private double hedges(String outcome) {
+        return meterRegistry.get("product.client.hedges").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.order.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Local stand-in for product-service's {@code GET /api/products/{id}} whose latency and status can be
+ * changed while a test runs. Every product exists and costs 1.00.
+ */
+public class ProductServiceStub implements AutoCloseable {
+
+    private final HttpServer server;
+    // Delay by request number, counting from 1
+    private final AtomicReference<IntFunction<Duration>> delay = new AtomicReference<>(n -> Duration.ZERO);
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public ProductServiceStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/products/", this::handle);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setDelay(Duration delay) {
+        this.delay.set(n -> delay);
+    }
+
+    public void setDelay(IntFunction<Duration> delayByRequestNumber) {
+        this.delay.set(delayByRequestNumber);
+    }
+
+    public void setStatus(int status) {
+        this.status.set(status);
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int number = requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(delay.get().apply(number));
+            String path = exchange.getRequestURI().getPath();
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            byte[] body = status.get() == 200
+                    ? """
+                      {"id": %s, "name": "Product %s", "price": 1.00, "active": true}
+                      """.formatted(id, id).getBytes(StandardCharsets.UTF_8)
+                    : "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status.get(), body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // The client gave up (timeout) and closed the connection
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,151 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.client.ProductServiceResilienceFilter;
+import com.ecommerce.order.client.ProductServiceStub;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Exercises the product-service client as WebClientConfig builds it, against a stub with injected latency
+class ProductClientResilienceTest {
+
+    private ProductServiceStub stub;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private SimpleMeterRegistry meterRegistry;
+    private ProductClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new ProductServiceStub();
+        circuitBreaker = CircuitBreaker.of("product-service", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMillis(500))
+                .permittedNumberOfCallsInHalfOpenState(2)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+        bulkhead = Bulkhead.of("product-service", BulkheadConfig.custom()
+                .maxConcurrentCalls(2)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        meterRegistry = new SimpleMeterRegistry();
+
+        ProductClientProperties.Timeouts timeouts = new ProductClientProperties.Timeouts();
+        timeouts.setResponse(Duration.ofMillis(300));
+        WebClient webClient = WebClientConfig.productWebClient(WebClient.builder().baseUrl(stub.baseUrl()), timeouts,
+                new ProductServiceResilienceFilter(circuitBreaker, bulkhead, meterRegistry), null);
+        client = HttpServiceProxyFactory.builderFor(WebClientAdapter.create(webClient)).build()
+                .createClient(ProductClient.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void slowResponsesAreCutOffByTheResponseTimeout() {
+        stub.setDelay(Duration.ofSeconds(3));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> client.getProductById(1L)).isInstanceOf(WebClientRequestException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void breakerOpensOnFailuresFailsFastAndClosesAfterHealthyProbes() throws Exception {
+        stub.setStatus(503);
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> client.getProductById(1L)).isInstanceOf(WebClientResponseException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Open: rejected without reaching product-service
+        int sent = stub.requests();
+        assertThatThrownBy(() -> client.getProductById(1L)).isInstanceOf(CallNotPermittedException.class);
+        assertThat(stub.requests()).isEqualTo(sent);
+        assertThat(meterRegistry.get("product.client.rejected").tag("reason", "circuit_open").counter().count()).isEqualTo(1);
+
+        // Half-open after the wait: the probes succeed and the breaker closes
+        stub.setStatus(200);
+        Thread.sleep(600);
+        for (int i = 0; i < 2; i++) {
+            ProductResponseDTO product = client.getProductById(7L);
+            assertThat(product.getId()).isEqualTo(7L);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void notFoundDoesNotCountAgainstTheBreaker() {
+        stub.setStatus(404);
+        for (int i = 0; i < 6; i++) {
+            assertThatThrownBy(() -> client.getProductById(1L)).isInstanceOf(WebClientResponseException.NotFound.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void bulkheadCapsConcurrentCallsUnderLatency() throws Exception {
+        stub.setDelay(Duration.ofMillis(200));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ProductResponseDTO>> calls = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                calls.add(pool.submit(() -> {
+                    start.await();
+                    return client.getProductById(1L);
+                }));
+            }
+            start.countDown();
+            int rejected = 0;
+            for (Future<ProductResponseDTO> call : calls) {
+                try {
+                    call.get(5, TimeUnit.SECONDS);
+                } catch (java.util.concurrent.ExecutionException ex) {
+                    assertThat(ex.getCause()).isInstanceOf(BulkheadFullException.class);
+                    rejected++;
+                }
+            }
+            assertThat(rejected).isPositive();
+            assertThat(stub.maxInFlight()).isLessThanOrEqualTo(2);
+            assertThat(meterRegistry.get("product.client.rejected").tag("reason", "bulkhead_full").counter().count())
+                    .isEqualTo(rejected);
+            // Rejections are not failures of product-service
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
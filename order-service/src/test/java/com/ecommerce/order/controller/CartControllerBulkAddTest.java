@@ -0,0 +1,132 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.repository.CartRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CartControllerBulkAddTest {
+
+    private static final Money PRICE = Money.ofMinor(100);
+
+    private static final long INACTIVE_PRODUCT = 900L;
+    private static final long MISSING_PRODUCT = 901L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        when(productClient.getProductsByIds(any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            ProductBatchResponseDTO batch = new ProductBatchResponseDTO();
+            batch.setProducts(ids.stream()
+                    .filter(id -> id != MISSING_PRODUCT)
+                    .map(id -> product(id, PRICE, id != INACTIVE_PRODUCT))
+                    .toList());
+            batch.setMissingIds(ids.stream().filter(id -> id == MISSING_PRODUCT).toList());
+            return batch;
+        });
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void reportsEveryLineAndAppliesTheValidOnes() throws Exception {
+        String body = """
+                {"userId": 11, "lines": [
+                  {"productId": 1, "quantity": 2},
+                  {"productId": 2, "quantity": 0},
+                  {"productId": %d, "quantity": 1},
+                  {"productId": %d, "quantity": 1},
+                  {"productId": 1, "quantity": 3}
+                ]}
+                """.formatted(MISSING_PRODUCT, INACTIVE_PRODUCT);
+
+        mockMvc.perform(post("/api/cart/add/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.results[*].status").value(contains(
+                        "ADDED", "INVALID_QUANTITY", "PRODUCT_NOT_FOUND", "PRODUCT_INACTIVE", "ADDED")))
+                .andExpect(jsonPath("$.cart.items.length()").value(1))
+                .andExpect(jsonPath("$.cart.items[0].quantity").value(5))
+                .andExpect(jsonPath("$.cart.totalPrice").value(5.0));
+
+        verify(productClient, times(1)).getProductsByIds(any());
+    }
+
+    @Test
+    void nothingValidIsUnprocessable() throws Exception {
+        mockMvc.perform(post("/api/cart/add/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\": 12, \"lines\": [{\"productId\": %d, \"quantity\": 1}]}".formatted(MISSING_PRODUCT)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.results[0].status").value("PRODUCT_NOT_FOUND"));
+
+        assertThat(cartRepository.existsByUserId(12L)).isFalse();
+    }
+
+    @Test
+    void newItemsAreInsertedAsOneBatch() throws Exception {
+        int lines = 40;
+        String body = IntStream.rangeClosed(1, lines)
+                .mapToObj(id -> "{\"productId\": " + id + ", \"quantity\": 1}")
+                .collect(Collectors.joining(",", "{\"userId\": 13, \"lines\": [", "]}"));
+
+        mockMvc.perform(post("/api/cart/add/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.cart.items.length()").value(lines));
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(lines + 1);
+        // One statement per item insert would be over 40
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+    }
+}
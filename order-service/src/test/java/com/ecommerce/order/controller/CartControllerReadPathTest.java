@@ -0,0 +1,142 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.repository.CartRepository;
+import com.ecommerce.order.service.CartService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CartControllerReadPathTest {
+
+    private static final Money PRICE = Money.ofMinor(150);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0), PRICE));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void cartWithItemsIsReadWithOneStatement() throws Exception {
+        for (long productId = 1; productId <= 5; productId++) {
+            cartService.addToCart(7L, productId, 2);
+        }
+        statistics.clear();
+
+        mockMvc.perform(get("/api/cart/{userId}", 7L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(5))
+                .andExpect(jsonPath("$.totalPrice").value(15.0));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void emptyCartIsReadWithOneStatement() throws Exception {
+        cartService.addToCart(8L, 1L, 1);
+        cartService.clearCart(8L);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/cart/{userId}", 8L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unchangedCartIsAnsweredWithNotModified() throws Exception {
+        cartService.addToCart(10L, 1L, 1);
+        String eTag = mockMvc.perform(get("/api/cart/{userId}", 10L))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/cart/{userId}", 10L).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        // Only the version lookup; no cart or item rows are loaded
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void mutationsReturnTheETagOfTheNewState() throws Exception {
+        String added = mockMvc.perform(post("/api/cart/add").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\": 12, \"productId\": 1, \"quantity\": 1}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/cart/{userId}", 12L).header(HttpHeaders.IF_NONE_MATCH, added))
+                .andExpect(status().isNotModified());
+
+        Long itemId = cartService.getCartLinesOf(12L).getFirst().itemId();
+        String removed = mockMvc.perform(delete("/api/cart/item/{itemId}/{userId}", itemId, 12L))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(removed).isNotEqualTo(added);
+
+        // The old tag no longer matches, the new one does
+        mockMvc.perform(get("/api/cart/{userId}", 12L).header(HttpHeaders.IF_NONE_MATCH, added))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, removed));
+    }
+
+    @Test
+    void missingCartIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/cart/{userId}", 9L))
+                .andExpect(status().isNotFound());
+    }
+}
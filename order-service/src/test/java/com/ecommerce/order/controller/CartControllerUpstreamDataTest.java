@@ -0,0 +1,44 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.cache.ProductNearCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Product data order-service cannot represent is product-service's fault, not a 500 of ours
+@SpringBootTest(properties = "spring.config.import=")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CartControllerUpstreamDataTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @Test
+    void anOffScalePriceFromProductServiceIsABadGateway() throws Exception {
+        // What the WebClient decoder raises when Money rejects a price such as 1.005
+        when(productNearCache.getProductById(anyLong()))
+                .thenThrow(new DecodingException("JSON decoding error: Amount 1.005 has more than 2 decimals"));
+
+        mockMvc.perform(post("/api/cart/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":1,\"productId\":1,\"quantity\":1}"))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.message").value("Bad data from an upstream service"));
+    }
+}
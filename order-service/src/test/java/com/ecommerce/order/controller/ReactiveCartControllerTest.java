@@ -0,0 +1,181 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.client.ReactiveProductClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.config.import=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:db/reactive-cart-schema.sql"
+})
+@ActiveProfiles({"test", "reactive"})
+class ReactiveCartControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @MockitoBean
+    private ReactiveProductClient productClient;
+
+    // Whether each product lookup was made on a thread that must never block
+    private final Set<Boolean> nonBlocking = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM cart_item").then()
+                .then(databaseClient.sql("DELETE FROM cart").then())
+                .block();
+        when(productClient.getProductById(anyLong())).thenAnswer(inv -> {
+            nonBlocking.add(Schedulers.isInNonBlockingThread());
+            return Mono.just(product(inv.getArgument(0)));
+        });
+    }
+
+    @Test
+    void addingAProductTwiceIncrementsItsLine() {
+        add(7L, 1L, 2).expectStatus().isCreated();
+
+        add(7L, 1L, 1).expectStatus().isCreated()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.items[0].quantity").isEqualTo(3)
+                .jsonPath("$.totalPrice").isEqualTo(7.5);
+
+        // Served by Netty's event loops, not by a thread per request
+        assertThat(nonBlocking).containsExactly(true);
+    }
+
+    @Test
+    void addWithoutItemsReturnsOnlyTheHeader() {
+        add(7L, 1L, 2).expectStatus().isCreated();
+
+        webTestClient.post().uri("/api/cart/add?includeItems=false")
+                .bodyValue(Map.of("userId", 7, "productId", 2, "quantity", 1))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.totalPrice").isEqualTo(7.5)
+                .jsonPath("$.items").doesNotExist();
+    }
+
+    @Test
+    void cartReadHonoursIfNoneMatch() {
+        add(7L, 1L, 2).expectStatus().isCreated();
+
+        String eTag = webTestClient.get().uri("/api/cart/{userId}", 7L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.items.length()").isEqualTo(1)
+                .returnResult().getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/api/cart/{userId}", 7L)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag);
+
+        add(7L, 1L, 1).expectStatus().isCreated();
+        webTestClient.get().uri("/api/cart/{userId}", 7L)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/api/cart/{userId}", 8L)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void unknownProductIsNotFound() {
+        when(productClient.getProductById(eq(99L))).thenReturn(Mono.error(
+                WebClientResponseException.create(HttpStatus.NOT_FOUND.value(), "Not Found", null, null, null)));
+
+        add(7L, 99L, 1).expectStatus().isNotFound();
+    }
+
+    @Test
+    void itemsCanBeRemovedOnlyByTheirOwner() {
+        add(7L, 1L, 2).expectStatus().isCreated();
+        add(7L, 2L, 1).expectStatus().isCreated();
+        Long itemId = databaseClient.sql("SELECT id FROM cart_item WHERE product_id = 1")
+                .map(row -> row.get(0, Long.class)).one().block();
+
+        webTestClient.delete().uri("/api/cart/item/{itemId}/{userId}", itemId, 8L)
+                .exchange()
+                .expectStatus().isForbidden();
+        webTestClient.delete().uri("/api/cart/item/{itemId}/{userId}", itemId, 7L)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/cart/{userId}", 7L)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.totalPrice").isEqualTo(2.5);
+
+        webTestClient.delete().uri("/api/cart/clear/{userId}", 7L)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/cart/{userId}", 7L)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(0)
+                .jsonPath("$.totalPrice").isEqualTo(0.0);
+    }
+
+    @Test
+    void concurrentAddsToOneCartAreAllApplied() {
+        // WebTestClient waits for each exchange, so a plain WebClient sends them all at once
+        WebClient client = WebClient.create("http://localhost:" + port);
+        Flux.range(0, 20)
+                .flatMap(i -> client.post().uri("/api/cart/add?includeItems=false")
+                        .bodyValue(Map.of("userId", 7, "productId", 1 + i % 2, "quantity", 1))
+                        .retrieve()
+                        .toBodilessEntity())
+                .blockLast();
+
+        webTestClient.get().uri("/api/cart/{userId}", 7L)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.items[0].quantity").isEqualTo(10)
+                .jsonPath("$.items[1].quantity").isEqualTo(10)
+                .jsonPath("$.totalPrice").isEqualTo(50.0);
+    }
+
+    private WebTestClient.ResponseSpec add(Long userId, Long productId, int quantity) {
+        return webTestClient.post().uri("/api/cart/add")
+                .bodyValue(Map.of("userId", userId, "productId", productId, "quantity", quantity))
+                .exchange();
+    }
+}
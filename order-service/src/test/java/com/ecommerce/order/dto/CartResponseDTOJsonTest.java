@@ -0,0 +1,50 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Money must keep the JSON shape the BigDecimal fields had
+class CartResponseDTOJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void moneyIsWrittenAsDecimalNumber() throws Exception {
+        CartItemResponseDTO item = new CartItemResponseDTO();
+        item.setPrice(Money.ofMinor(250));
+        item.setSubTotal(Money.ofMinor(750));
+        CartResponseDTO cart = new CartResponseDTO();
+        cart.setTotalPrice(Money.ofMinor(750));
+        cart.setItems(List.of(item));
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(cart));
+
+        assertThat(json.get("totalPrice").isNumber()).isTrue();
+        assertThat(json.get("totalPrice").decimalValue()).isEqualByComparingTo(new BigDecimal("7.50"));
+        assertThat(json.at("/items/0/price").decimalValue()).isEqualByComparingTo(new BigDecimal("2.50"));
+    }
+
+    @Test
+    void productPriceIsReadFromDecimalNumber() throws Exception {
+        ProductResponseDTO product = objectMapper.readValue("{\"id\":1,\"price\":19.99}", ProductResponseDTO.class);
+
+        assertThat(product.getPrice()).isEqualTo(Money.ofMinor(1999));
+    }
+
+    @Test
+    void productPriceFinerThanACentIsRejected() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"id\":1,\"price\":1.005}", ProductResponseDTO.class))
+                .isInstanceOf(JsonMappingException.class)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+}
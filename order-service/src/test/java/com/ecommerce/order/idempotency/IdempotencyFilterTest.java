@@ -0,0 +1,236 @@
+package com.ecommerce.order.idempotency;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.entity.IdempotencyRecord;
+import com.ecommerce.order.repository.CartRepository;
+import com.ecommerce.order.repository.IdempotencyRecordRepository;
+import com.ecommerce.order.service.CartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.config.import=")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotencyFilterTest {
+
+    private static final Money PRICE = Money.ofMinor(100);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @MockitoSpyBean
+    private IdempotencyRecordRepository recordRepository;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        recordRepository.deleteAll();
+        store.clearMemory();
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0), PRICE));
+    }
+
+    @Test
+    void retryGetsTheOriginalResponseAndAddsOnce() throws Exception {
+        MockHttpServletResponse first = mockMvc.perform(add("key-1", 21L, 2))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andReturn().getResponse();
+
+        MockHttpServletResponse retry = mockMvc.perform(add("key-1", 21L, 2))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse();
+
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(retry.getHeader("ETag")).isEqualTo(first.getHeader("ETag"));
+        assertThat(quantityOf(21L)).isEqualTo(2);
+    }
+
+    @Test
+    void replayAfterRestartComesFromTheDatabase() throws Exception {
+        String body = mockMvc.perform(add("key-2", 22L, 1)).andReturn().getResponse().getContentAsString();
+        store.clearMemory();
+
+        mockMvc.perform(add("key-2", 22L, 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andExpect(result -> assertThat(result.getResponse().getContentAsString()).isEqualTo(body));
+        assertThat(quantityOf(22L)).isEqualTo(1);
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() throws Exception {
+        mockMvc.perform(add("key-3", 23L, 1)).andExpect(status().isCreated());
+
+        mockMvc.perform(add("key-3", 23L, 5)).andExpect(status().isUnprocessableEntity());
+        assertThat(quantityOf(23L)).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorsAreNotStored() throws Exception {
+        when(productNearCache.getProductById(anyLong())).thenThrow(new IllegalStateException("boom"));
+        mockMvc.perform(add("key-4", 24L, 1)).andExpect(status().isInternalServerError());
+
+        doAnswer(inv -> product(inv.getArgument(0), PRICE)).when(productNearCache).getProductById(anyLong());
+        mockMvc.perform(add("key-4", 24L, 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstExecution() throws Exception {
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> {
+            Thread.sleep(300);
+            return product(inv.getArgument(0), PRICE);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(add("key-5", 25L, 1)).andReturn().getResponse();
+                }));
+            }
+            start.countDown();
+            for (Future<MockHttpServletResponse> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS).getStatus()).isEqualTo(201);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(quantityOf(25L)).isEqualTo(1);
+    }
+
+    @Test
+    void keysAreScopedPerUser() throws Exception {
+        mockMvc.perform(add("key-6", 26L, 1)).andExpect(status().isCreated());
+
+        mockMvc.perform(add("key-6", 27L, 3))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        assertThat(quantityOf(26L)).isEqualTo(1);
+        assertThat(quantityOf(27L)).isEqualTo(3);
+    }
+
+    @Test
+    void aResponseThatCannotBeStoredReleasesItsClaim() throws Exception {
+        doThrow(new DataAccessResourceFailureException("database gone"))
+                .when(recordRepository).complete(anyString(), anyString(), anyInt(), any(), any(), any(), any());
+
+        mockMvc.perform(add("key-7", 28L, 1)).andExpect(status().isCreated());
+
+        assertThat(recordRepository.findAll()).isEmpty();
+        mockMvc.perform(add("key-7", 28L, 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+        assertThat(quantityOf(28L)).isEqualTo(1);
+    }
+
+    @Test
+    void aResponseWhoseClaimWasPurgedMeanwhileIsStillStored() throws Exception {
+        doAnswer(inv -> {
+            // The claim expired while the request ran and was purged
+            recordRepository.release(inv.getArgument(0));
+            return inv.callRealMethod();
+        }).when(recordRepository).complete(anyString(), anyString(), anyInt(), any(), any(), any(), any());
+
+        mockMvc.perform(add("key-8", 29L, 1)).andExpect(status().isCreated());
+
+        assertThat(recordRepository.findById("29:key-8")).hasValueSatisfying(
+                record -> assertThat(record.getStatusCode()).isEqualTo(201));
+        store.clearMemory();
+        mockMvc.perform(add("key-8", 29L, 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+        assertThat(quantityOf(29L)).isEqualTo(1);
+    }
+
+    @Test
+    void aClaimTakenOverMeanwhileIsLeftToItsNewOwner() throws Exception {
+        doAnswer(inv -> {
+            // The claim expired while the request ran and another request with the same key took over
+            String key = inv.getArgument(0);
+            recordRepository.release(key);
+            Instant now = Instant.now();
+            recordRepository.saveAndFlush(IdempotencyRecord.builder()
+                    .idempotencyKey(key)
+                    .requestFingerprint("another request")
+                    .createdAt(now)
+                    .expiresAt(now.plusSeconds(60))
+                    .build());
+            return inv.callRealMethod();
+        }).when(recordRepository).complete(anyString(), anyString(), anyInt(), any(), any(), any(), any());
+
+        mockMvc.perform(add("key-9", 30L, 1)).andExpect(status().isCreated());
+
+        assertThat(recordRepository.findById("30:key-9")).hasValueSatisfying(record -> {
+            assertThat(record.getRequestFingerprint()).isEqualTo("another request");
+            assertThat(record.getStatusCode()).isNull();
+        });
+        // Still replayed on this instance
+        mockMvc.perform(add("key-9", 30L, 1))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+    }
+
+    private static MockHttpServletRequestBuilder add(String key, long userId, int quantity) {
+        return post("/api/cart/add")
+                .header(IdempotencyFilter.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userId\": %d, \"productId\": 1, \"quantity\": %d}".formatted(userId, quantity));
+    }
+
+    private int quantityOf(long userId) {
+        return cartService.getCartLinesOf(userId).getFirst().quantity();
+    }
+}
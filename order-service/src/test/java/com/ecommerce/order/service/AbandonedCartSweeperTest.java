@@ -0,0 +1,150 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.TestProducts;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.repository.CartArchiveRepository;
+import com.ecommerce.order.repository.CartLineRow;
+import com.ecommerce.order.repository.CartRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "cart.sweeper.max-idle=7d",
+        "cart.sweeper.batch-size=2",
+        "cart.sweeper.pause-between-batches=0s"
+})
+@ActiveProfiles("test")
+class AbandonedCartSweeperTest {
+
+    private static final Money PRICE = TestProducts.DEFAULT_PRICE;
+
+    @Autowired
+    private AbandonedCartSweeper sweeper;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartArchiveRepository archiveRepository;
+
+    @Autowired
+    private CartProperties cartProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM cart_item_archive");
+        archiveRepository.deleteAll();
+        cartRepository.deleteAll();
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartProperties.getSweeper().setDryRun(false);
+    }
+
+    @Test
+    void idleCartsAreArchivedInBatchesAndActiveOnesStay() {
+        for (long userId = 1; userId <= 5; userId++) {
+            cartService.addToCart(userId, 1L, 1);
+            cartService.addToCart(userId, 2L, 1);
+        }
+        cartService.addToCart(6L, 1L, 1);
+        idleFor(30, 1L, 2L, 3L, 4L, 5L);
+        idleFor(2, 6L);
+
+        SweepResult result = sweeper.sweep();
+
+        assertThat(result.carts()).isEqualTo(5);
+        assertThat(result.items()).isEqualTo(10);
+        assertThat(result.batches()).isEqualTo(3);
+        assertThat(cartRepository.findAll()).extracting(Cart::getUserId).containsExactly(6L);
+        assertThat(archiveRepository.count()).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM cart_item_archive", Long.class)).isEqualTo(10);
+    }
+
+    @Test
+    void dryRunOnlyCounts() {
+        cartService.addToCart(1L, 1L, 2);
+        idleFor(30, 1L);
+        cartProperties.getSweeper().setDryRun(true);
+
+        SweepResult result = sweeper.sweep();
+
+        assertThat(result).isEqualTo(new SweepResult(1, 1, 1, true));
+        assertThat(cartRepository.findByUserId(1L)).isPresent();
+        assertThat(archiveRepository.count()).isZero();
+    }
+
+    @Test
+    void archivedCartIsRestoredOnNextVisit() {
+        Cart before = cartService.addToCart(1L, 1L, 2);
+        cartService.addToCart(1L, 2L, 1);
+        Long version = cartService.getCartOf(1L).getVersion();
+        idleFor(30, 1L);
+        sweeper.sweep();
+        assertThat(cartRepository.findByUserId(1L)).isEmpty();
+
+        Cart restored = cartService.getCartOf(1L);
+
+        assertThat(restored.getId()).isEqualTo(before.getId());
+        assertThat(restored.getVersion()).isEqualTo(version);
+        assertThat(restored.getTotalPrice()).isEqualTo(PRICE.times(3));
+        assertThat(restored.getItems()).hasSize(2);
+        assertThat(restored.getUpdatedAt()).isAfter(LocalDateTime.now().minusMinutes(1));
+        assertThat(archiveRepository.count()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM cart_item_archive", Long.class)).isZero();
+    }
+
+    @Test
+    void readsAndWritesRestoreTheArchivedCart() {
+        cartService.addToCart(1L, 1L, 2);
+        cartService.addToCart(2L, 1L, 2);
+        idleFor(30, 1L, 2L);
+        sweeper.sweep();
+
+        List<CartLineRow> lines = cartService.getCartLinesOf(1L);
+        assertThat(lines).hasSize(1);
+        assertThat(lines.getFirst().quantity()).isEqualTo(2);
+
+        // Adding to an archived cart continues it instead of starting a new one
+        Cart updated = cartService.addToCart(2L, 1L, 1);
+        assertThat(updated.getItems()).singleElement()
+                .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(3));
+        assertThat(archiveRepository.count()).isZero();
+    }
+
+    private void idleFor(int days, Long... userIds) {
+        for (Long userId : userIds) {
+            jdbcTemplate.update("UPDATE cart SET updated_at = ? WHERE user_id = ?",
+                    LocalDateTime.now().minusDays(days), userId);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.TestProducts;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.entity.CartItem;
+import com.ecommerce.order.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "cart.concurrency.max-attempts=100",
+        "cart.concurrency.backoff=2ms"
+})
+@ActiveProfiles("test")
+class CartServiceConcurrencyTest {
+
+    private static final int CONCURRENT_ADDS = 300;
+    private static final Money PRICE = TestProducts.DEFAULT_PRICE;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0)));
+    }
+
+    @Test
+    void concurrentAddsToSameCartLoseNoIncrements() throws Exception {
+        long userId = 42L;
+        long productId = 7L;
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_ADDS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cartService.addToCart(userId, productId, 1);
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+            assertThat(cart.getItems()).hasSize(1);
+            CartItem item = cart.getItems().getFirst();
+            assertThat(item.getQuantity()).isEqualTo(CONCURRENT_ADDS);
+            assertThat(cart.getTotalPrice()).isEqualTo(PRICE.times(CONCURRENT_ADDS));
+        });
+    }
+
+    @Test
+    void concurrentAddsOfDifferentProductsKeepTotalConsistent() throws Exception {
+        long userId = 43L;
+        int products = 10;
+        int addsPerProduct = 20;
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < products * addsPerProduct; i++) {
+                long productId = i % products;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cartService.addToCart(userId, productId, 1);
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+            assertThat(cart.getItems()).hasSize(products)
+                    .allSatisfy(item -> assertThat(item.getQuantity()).isEqualTo(addsPerProduct));
+            assertThat(cart.getTotalPrice())
+                    .isEqualTo(PRICE.times(products * addsPerProduct));
+        });
+    }
+}
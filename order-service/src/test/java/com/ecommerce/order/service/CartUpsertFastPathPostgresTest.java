@@ -0,0 +1,147 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.TestProducts;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.repository.CartRepository;
+import com.ecommerce.order.repository.CartTotalsView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+// The ON CONFLICT upsert behind addItem only runs on PostgreSQL; H2 tests take the JPA path
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "cart.upsert-fast-path=true",
+        "cart.concurrency.max-attempts=100",
+        "cart.concurrency.backoff=2ms"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class CartUpsertFastPathPostgresTest {
+
+    private static final int CONCURRENT_ADDS = 200;
+    private static final Money PRICE = TestProducts.DEFAULT_PRICE;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private AbandonedCartSweeper sweeper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+    }
+
+    @BeforeEach
+    void setUp() {
+        cartRepository.deleteAll();
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0)));
+    }
+
+    @Test
+    void concurrentUpsertsLoseNoIncrements() throws Exception {
+        long userId = 42L;
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_ADDS; i++) {
+                long productId = i % 4;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cartService.addItem(userId, productId, 1);
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+            assertThat(cart.getItems()).hasSize(4)
+                    .allSatisfy(item -> assertThat(item.getQuantity()).isEqualTo(CONCURRENT_ADDS / 4));
+            assertThat(cart.getTotalPrice()).isEqualTo(PRICE.times(CONCURRENT_ADDS));
+        });
+    }
+
+    @Test
+    void anUpsertRepricesTheLineAndMovesTheTotalByItsDelta() {
+        long userId = 43L;
+        cartService.addItem(userId, 1L, 2);
+        CartTotalsView before = cartService.addItem(userId, 2L, 1);
+        when(productNearCache.getProductById(eq(1L))).thenReturn(product(1L, Money.ofMinor(400)));
+
+        CartTotalsView after = cartService.addItem(userId, 1L, 1);
+
+        assertThat(after.getId()).isEqualTo(before.getId());
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.getTotalPriceMinor()).isEqualTo(3 * 400 + PRICE.minorUnits());
+        transactionTemplate.executeWithoutResult(status -> assertThat(cartService.getCartOf(userId).getItems())
+                .filteredOn(item -> item.getProductId() == 1L).singleElement()
+                .satisfies(item -> assertThat(item.getSubTotal()).isEqualTo(Money.ofMinor(1200))));
+    }
+
+    @Test
+    void anUpsertRestoresAnArchivedCartFirst() {
+        long userId = 44L;
+        Cart archived = cartService.addToCart(userId, 1L, 2);
+        jdbcTemplate.update("UPDATE cart SET updated_at = ? WHERE user_id = ?", LocalDateTime.now().minusYears(1), userId);
+        assertThat(sweeper.sweep().carts()).isEqualTo(1);
+
+        CartTotalsView totals = cartService.addItem(userId, 1L, 1);
+
+        assertThat(totals.getId()).isEqualTo(archived.getId());
+        assertThat(totals.getTotalPriceMinor()).isEqualTo(PRICE.times(3).minorUnits());
+    }
+}
@@ -0,0 +1,37 @@
+package com.ecommerce.order.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Which failed cart writes the servlet and reactive services replay
+class CartWriteConflictTest {
+
+    @Test
+    void lostRacesAreReplayed() {
+        assertThat(CartService.isWriteConflict(new OptimisticLockingFailureException("stale version"))).isTrue();
+        assertThat(CartService.isWriteConflict(new CannotAcquireLockException("deadlock"))).isTrue();
+        assertThat(CartService.isWriteConflict(new DuplicateKeyException("uk_cart_user"))).isTrue();
+        assertThat(CartService.isWriteConflict(violation("23505"))).isTrue();
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNot() {
+        assertThat(CartService.isWriteConflict(violation("23502"))).isFalse();
+        assertThat(CartService.isWriteConflict(violation("23503"))).isFalse();
+        assertThat(CartService.isWriteConflict(new DataIntegrityViolationException("no cause"))).isFalse();
+        assertThat(CartService.isWriteConflict(new IllegalStateException("boom"))).isFalse();
+    }
+
+    // As JPA reports it: the driver's exception a couple of levels down
+    private static DataIntegrityViolationException violation(String sqlState) {
+        SQLException driver = new SQLException("violation", sqlState);
+        return new DataIntegrityViolationException("could not execute statement", new RuntimeException(driver));
+    }
+}
@@ -0,0 +1,139 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.client.ProductClient;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.repository.CartRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Writes racing with eviction and refresh, both of which take a cart out of the map while a request
+ * may already be holding it.
+ */
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "cart.write-behind.enabled=true",
+        // Flushes are triggered by the test only, and every flush evicts all but one clean cart
+        "cart.write-behind.flush-interval=1h",
+        "cart.write-behind.dirty-threshold=1000000",
+        "cart.write-behind.max-carts=1"
+})
+@ActiveProfiles("test")
+class WriteBehindCartStoreRaceTest {
+
+    private static final long FIRST_USER = 3000L;
+    private static final int USERS = 4;
+    private static final int ADDS_PER_USER = 200;
+
+    @Autowired
+    private WriteBehindCartStore store;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    @BeforeEach
+    void setUp() {
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0)));
+        when(productClient.getProductsByIds(any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            ProductBatchResponseDTO batch = new ProductBatchResponseDTO();
+            batch.setProducts(ids.stream().map(id -> product(id)).toList());
+            batch.setMissingIds(List.of());
+            return batch;
+        });
+    }
+
+    @Test
+    void writesRacingWithEvictionAndRefreshAreAllFlushed() throws Exception {
+        for (long userId = FIRST_USER; userId < FIRST_USER + USERS; userId++) {
+            store.addToCart(userId, 1L, 1);
+        }
+        store.flush();
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(USERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        Future<?> churn;
+        try {
+            for (long userId = FIRST_USER; userId < FIRST_USER + USERS; userId++) {
+                long user = userId;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ADDS_PER_USER; i++) {
+                        store.addToCart(user, 1L, 1);
+                    }
+                    return null;
+                }));
+            }
+            churn = pool.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    store.flush();
+                    try {
+                        store.refreshCartOf(FIRST_USER + ThreadLocalRandom.current().nextInt(USERS));
+                    } catch (RuntimeException ex) {
+                        // Not clean after its flush, or lost an optimistic race with a flush: skipped this time
+                    }
+                }
+                return null;
+            });
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            churn.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        store.flush();
+
+        assertThat(meterRegistry.get("cart.writebehind.dirty").gauge().value()).isZero();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long userId = FIRST_USER; userId < FIRST_USER + USERS; userId++) {
+                Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+                assertThat(cart.getItems()).singleElement()
+                        .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(1 + ADDS_PER_USER));
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.libraray.money.Money;
+import com.ecommerce.order.TestProducts;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "cart.write-behind.enabled=true",
+        // Flushes are triggered by the test only
+        "cart.write-behind.flush-interval=1h",
+        "cart.write-behind.dirty-threshold=1000000",
+        "cart.write-behind.batch-size=7"
+})
+@ActiveProfiles("test")
+class WriteBehindCartStoreTest {
+
+    private static final Money PRICE = TestProducts.DEFAULT_PRICE;
+
+    @Autowired
+    private WriteBehindCartStore store;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @BeforeEach
+    void setUp() {
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0)));
+    }
+
+    @Test
+    void mutationsAreAcknowledgedFromMemoryAndCoalescedOnFlush() throws Exception {
+        int users = 20;
+        int addsPerUser = 50;
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < users * addsPerUser; i++) {
+                long userId = 1000L + i % users;
+                long productId = i % 3;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return store.addToCart(userId, productId, 1);
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Nothing reached the database yet, but reads see every change
+        assertThat(cartRepository.existsByUserId(1000L)).isFalse();
+        assertThat(store.getCartOf(1000L).getTotalPrice())
+                .isEqualTo(PRICE.times(addsPerUser));
+
+        store.flush();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long userId = 1000L; userId < 1000L + users; userId++) {
+                Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+                assertThat(cart.getItems().stream().mapToInt(item -> item.getQuantity()).sum()).isEqualTo(addsPerUser);
+                assertThat(cart.getTotalPrice()).isEqualTo(PRICE.times(addsPerUser));
+            }
+        });
+    }
+
+    @Test
+    void flushedItemsGetIdsAndRemovalsArePersisted() {
+        long userId = 2000L;
+        store.addToCart(userId, 1L, 2);
+        store.addToCart(userId, 2L, 1);
+        store.flush();
+
+        Long itemId = store.getCartOf(userId).getItems().getFirst().getId();
+        assertThat(itemId).isNotNull();
+
+        store.removeItemFromCart(userId, itemId);
+        store.flush();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+            assertThat(cart.getItems()).singleElement()
+                    .satisfies(item -> assertThat(item.getProductId()).isEqualTo(2L));
+            assertThat(cart.getTotalPrice()).isEqualTo(PRICE);
+        });
+    }
+}
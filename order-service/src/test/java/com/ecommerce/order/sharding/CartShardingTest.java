@@ -0,0 +1,272 @@
+package com.ecommerce.order.sharding;
+
+import com.ecommerce.order.TestProducts;
+import com.ecommerce.order.cache.ProductNearCache;
+import com.ecommerce.order.config.CartProperties;
+import com.ecommerce.order.entity.Cart;
+import com.ecommerce.order.entity.CartItem;
+import com.ecommerce.order.service.AbandonedCartSweeper;
+import com.ecommerce.order.service.CartService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static com.ecommerce.order.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+// Three in-memory databases as shards; s2 starts outside the ring and is added by the rebalance test
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "cart.sharding.enabled=true",
+        "cart.sharding.shards.s0.url=jdbc:h2:mem:shard0;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "cart.sharding.shards.s0.username=sa",
+        "cart.sharding.shards.s1.url=jdbc:h2:mem:shard1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "cart.sharding.shards.s1.username=sa",
+        "cart.sharding.shards.s2.url=jdbc:h2:mem:shard2;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "cart.sharding.shards.s2.username=sa",
+        "cart.sharding.ring=s0,s1",
+        "cart.sharding.rebalance.interval=1h",
+        "cart.sharding.rebalance.pause-between-batches=0s",
+        "cart.sharding.rebalance.batch-size=5",
+        "cart.sweeper.max-idle=7d",
+        "cart.sweeper.pause-between-batches=0s"
+})
+@ActiveProfiles("test")
+class CartShardingTest {
+
+    private static final List<String> SHARDS = List.of("s0", "s1", "s2");
+    private static final long USERS = 40;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartShards cartShards;
+
+    @Autowired
+    private CartRebalancer rebalancer;
+
+    @Autowired
+    private CartShardMover mover;
+
+    @Autowired
+    private AbandonedCartSweeper sweeper;
+
+    @Autowired
+    private CartProperties cartProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private ProductNearCache productNearCache;
+
+    @BeforeEach
+    void setUp() {
+        for (String shard : SHARDS) {
+            JdbcTemplate jdbc = jdbc(shard);
+            jdbc.update("DELETE FROM cart_item_archive");
+            jdbc.update("DELETE FROM cart_archive");
+            jdbc.update("DELETE FROM cart_item");
+            jdbc.update("DELETE FROM cart");
+        }
+        when(productNearCache.getProductById(anyLong())).thenAnswer(inv -> product(inv.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartProperties.getSharding().setRing(new ArrayList<>(List.of("s0", "s1")));
+        cartProperties.getSharding().setPreviousRing(new ArrayList<>());
+    }
+
+    @Test
+    void everyCartLivesOnlyOnItsOwner() {
+        LongStream.rangeClosed(1, USERS).forEach(userId -> cartService.addToCart(userId, 1L, 1));
+
+        for (long userId = 1; userId <= USERS; userId++) {
+            String owner = cartShards.shardOf(userId);
+            assertThat(owner).isIn("s0", "s1");
+            for (String shard : SHARDS) {
+                assertThat(cartsOf(shard, userId)).isEqualTo(shard.equals(owner) ? 1 : 0);
+            }
+        }
+        assertThat(totalCarts("s0")).isPositive();
+        assertThat(totalCarts("s1")).isPositive();
+        assertThat(totalCarts("s2")).isZero();
+    }
+
+    @Test
+    void readsAndUpdatesStayOnTheOwner() {
+        long onS0 = firstUserOn("s0");
+        long onS1 = firstUserOn("s1");
+        Cart first = cartService.addToCart(onS0, 1L, 1);
+        Cart second = cartService.addToCart(onS1, 1L, 1);
+        cartService.addToCart(onS1, 2L, 3);
+
+        // Ids come from each shard's own sequence, so they may repeat across shards but never within one
+        assertThat(cartService.getCartOf(onS0).getItems()).hasSize(1);
+        assertThat(cartService.getCartOf(onS1).getItems()).hasSize(2);
+        assertThat(cartService.getCartOf(onS0).getId()).isEqualTo(first.getId());
+        assertThat(cartService.getCartOf(onS1).getId()).isEqualTo(second.getId());
+
+        Long itemId = cartService.getCartOf(onS1).getItems().getFirst().getId();
+        cartService.removeItemFromCart(onS1, itemId);
+        assertThat(cartService.getCartOf(onS1).getItems()).hasSize(1);
+        cartService.clearCart(onS0);
+        assertThat(cartService.getCartOf(onS0).getItems()).isEmpty();
+    }
+
+    @Test
+    void aTransactionCannotSwitchShards() {
+        long onS0 = firstUserOn("s0");
+        long onS1 = firstUserOn("s1");
+
+        assertThatThrownBy(() -> cartShards.onShardOf(onS0, () -> transactionTemplate.execute(status ->
+                cartShards.onShardOf(onS1, () -> null))))
+                .isInstanceOf(IllegalStateException.class);
+        // Staying on the bound shard is fine
+        String result = cartShards.onShardOf(onS0, () -> transactionTemplate.execute(status ->
+                cartShards.onShardOf(onS0, () -> "same")));
+        assertThat(result).isEqualTo("same");
+    }
+
+    @Test
+    void sweeperArchivesIdleCartsOnEveryShard() {
+        long onS0 = firstUserOn("s0");
+        long onS1 = firstUserOn("s1");
+        cartService.addToCart(onS0, 1L, 1);
+        cartService.addToCart(onS1, 1L, 1);
+        for (String shard : List.of("s0", "s1")) {
+            jdbc(shard).update("UPDATE cart SET updated_at = ?", LocalDateTime.now().minusDays(30));
+        }
+
+        assertThat(sweeper.sweep().carts()).isEqualTo(2);
+
+        assertThat(jdbc("s0").queryForObject("SELECT count(*) FROM cart_archive", Long.class)).isEqualTo(1);
+        assertThat(jdbc("s1").queryForObject("SELECT count(*) FROM cart_archive", Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void addingAShardMovesCartsOnVisitAndByRebalance() {
+        LongStream.rangeClosed(1, USERS).forEach(userId -> cartService.addToCart(userId, 1L, 2));
+        List<Long> movers = LongStream.rangeClosed(1, USERS).boxed()
+                .filter(userId -> new ShardRing(SHARDS, cartProperties.getSharding().getVirtualNodes())
+                        .shardOf(userId).equals("s2"))
+                .toList();
+        assertThat(movers).hasSizeGreaterThan(2);
+        // One of them is archived before the ring changes
+        Long archived = movers.getLast();
+        jdbc(cartShards.shardOf(archived)).update("UPDATE cart SET updated_at = ? WHERE user_id = ?",
+                LocalDateTime.now().minusDays(30), archived);
+        assertThat(sweeper.sweep().carts()).isEqualTo(1);
+
+        cartProperties.getSharding().setPreviousRing(new ArrayList<>(List.of("s0", "s1")));
+        cartProperties.getSharding().setRing(new ArrayList<>(SHARDS));
+        assertThat(cartShards.isRebalancing()).isTrue();
+
+        // A visit brings the cart along before it is read
+        Long visitor = movers.getFirst();
+        Cart visited = cartService.getCartOf(visitor);
+        assertThat(visited.getItems()).singleElement()
+                .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(2));
+        assertThat(cartsOf("s2", visitor)).isEqualTo(1);
+
+        RebalanceResult result = rebalancer.rebalance();
+
+        assertThat(result.moved()).isEqualTo(movers.size() - 1);
+        for (long userId = 1; userId <= USERS; userId++) {
+            String owner = cartShards.shardOf(userId);
+            long live = 0;
+            for (String shard : SHARDS) {
+                long carts = cartsOf(shard, userId);
+                if (!shard.equals(owner)) {
+                    assertThat(carts).as("carts of user %d on %s", userId, shard).isZero();
+                }
+                live += carts;
+            }
+            assertThat(live).isEqualTo(userId == archived ? 0 : 1);
+        }
+        assertThat(jdbc("s2").queryForObject("SELECT count(*) FROM cart_archive WHERE user_id = ?", Long.class, archived))
+                .isEqualTo(1);
+        assertThat(rebalancer.rebalance().moved()).isZero();
+
+        // The archived cart is restored on its new owner
+        assertThat(cartService.getCartOf(archived).getItems()).singleElement()
+                .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(2));
+        assertThat(cartsOf("s2", archived)).isEqualTo(1);
+
+        // New carts get ids from s2's sequences, so later writes there do not collide with moved ones
+        Long newcomer = LongStream.rangeClosed(USERS + 1, USERS + 100).boxed()
+                .filter(userId -> cartShards.shardOf(userId).equals("s2"))
+                .findFirst().orElseThrow();
+        cartService.addToCart(newcomer, 1L, 1);
+        cartService.addToCart(visitor, 2L, 1);
+        assertThat(jdbc("s2").queryForObject("SELECT count(DISTINCT id) FROM cart_item", Long.class))
+                .isEqualTo(jdbc("s2").queryForObject("SELECT count(*) FROM cart_item", Long.class));
+    }
+
+    @Test
+    void aCartOnTheNewOwnerIsMergedWithTheMovedOne() {
+        Long userId = LongStream.rangeClosed(1, 1_000).boxed()
+                .filter(id -> new ShardRing(SHARDS, cartProperties.getSharding().getVirtualNodes()).shardOf(id).equals("s2"))
+                .findFirst().orElseThrow();
+        String from = cartShards.shardOf(userId);
+        cartService.addToCart(userId, 1L, 2);
+        cartService.addToCart(userId, 2L, 1);
+        jdbc(from).update("""
+                INSERT INTO cart_archive (id, user_id, total_price_minor, created_at, updated_at, version, archived_at)
+                VALUES (nextval('cart_seq'), ?, 0, ?, ?, 0, ?)
+                """, userId, LocalDateTime.now().minusDays(60), LocalDateTime.now().minusDays(40), LocalDateTime.now().minusDays(30));
+
+        // An instance that already sees the new ring, but not the previous one, writes to the new owner
+        cartProperties.getSharding().setRing(new ArrayList<>(SHARDS));
+        cartService.addToCart(userId, 1L, 1);
+        Cart onNewOwner = cartService.addToCart(userId, 3L, 5);
+
+        assertThat(mover.move(userId, from, "s2", "rebalance")).isTrue();
+
+        assertThat(cartsOf(from, userId)).isZero();
+        assertThat(jdbc(from).queryForObject("SELECT count(*) FROM cart_archive", Long.class)).isZero();
+        assertThat(jdbc("s2").queryForObject("SELECT count(*) FROM cart_archive WHERE user_id = ?", Long.class, userId))
+                .isEqualTo(1);
+        Cart merged = cartService.getCartOf(userId);
+        assertThat(merged.getId()).isEqualTo(onNewOwner.getId());
+        assertThat(merged.getVersion()).isGreaterThan(onNewOwner.getVersion());
+        assertThat(merged.getItems()).extracting(CartItem::getProductId, CartItem::getQuantity)
+                .containsExactlyInAnyOrder(tuple(1L, 2), tuple(2L, 1), tuple(3L, 5));
+        assertThat(merged.getTotalPrice()).isEqualTo(TestProducts.DEFAULT_PRICE.times(8));
+        assertThat(mover.move(userId, from, "s2", "rebalance")).isFalse();
+    }
+
+    private long firstUserOn(String shard) {
+        return LongStream.rangeClosed(1, 1_000).filter(userId -> cartShards.shardOf(userId).equals(shard))
+                .findFirst().orElseThrow();
+    }
+
+    private long cartsOf(String shard, long userId) {
+        return jdbc(shard).queryForObject("SELECT count(*) FROM cart WHERE user_id = ?", Long.class, userId);
+    }
+
+    private long totalCarts(String shard) {
+        return jdbc(shard).queryForObject("SELECT count(*) FROM cart", Long.class);
+    }
+
+    private JdbcTemplate jdbc(String shard) {
+        return new JdbcTemplate(cartShards.dataSourceOf(shard));
+    }
+}
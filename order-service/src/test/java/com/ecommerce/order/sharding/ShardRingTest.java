@@ -0,0 +1,57 @@
+package com.ecommerce.order.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ShardRingTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    void usersSpreadEvenlyOverTheShards() {
+        ShardRing ring = new ShardRing(List.of("s0", "s1", "s2"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            counts.merge(ring.shardOf(userId), 1, Integer::sum);
+        }
+
+        assertThat(counts).containsOnlyKeys("s0", "s1", "s2");
+        counts.values().forEach(count -> assertThat(count / (double) USERS).isCloseTo(1 / 3.0, within(0.05)));
+    }
+
+    @Test
+    void addingAShardOnlyMovesUsersOntoIt() {
+        ShardRing before = new ShardRing(List.of("s0", "s1", "s2"), 128);
+        ShardRing after = new ShardRing(List.of("s0", "s1", "s2", "s3"), 128);
+
+        int moved = 0;
+        for (long userId = 1; userId <= USERS; userId++) {
+            String owner = after.shardOf(userId);
+            if (!owner.equals(before.shardOf(userId))) {
+                assertThat(owner).isEqualTo("s3");
+                moved++;
+            }
+        }
+
+        assertThat(moved / (double) USERS).isCloseTo(0.25, within(0.05));
+    }
+
+    @Test
+    void ringDependsOnlyOnShardNames() {
+        ShardRing one = new ShardRing(List.of("s0", "s1"), 64);
+        ShardRing other = new ShardRing(List.of("s1", "s0"), 64);
+
+        for (long userId = 1; userId <= 1_000; userId++) {
+            assertThat(other.shardOf(userId)).isEqualTo(one.shardOf(userId));
+        }
+        assertThatThrownBy(() -> new ShardRing(List.of(), 64)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,24 @@
+-- Cart tables as Hibernate generates them for the servlet stack; the reactive profile does not create DDL
+CREATE SEQUENCE IF NOT EXISTS cart_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cart_item_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS cart (
+    id                BIGINT PRIMARY KEY,
+    user_id           BIGINT NOT NULL,
+    total_price_minor BIGINT NOT NULL,
+    created_at        TIMESTAMP(6),
+    updated_at        TIMESTAMP(6),
+    version           BIGINT,
+    CONSTRAINT uk_cart_user UNIQUE (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS cart_item (
+    id              BIGINT PRIMARY KEY,
+    cart_id         BIGINT REFERENCES cart (id),
+    product_id      BIGINT       NOT NULL,
+    product_name    VARCHAR(255) NOT NULL,
+    quantity        INTEGER      NOT NULL,
+    price_minor     BIGINT       NOT NULL,
+    sub_total_minor BIGINT       NOT NULL,
+    CONSTRAINT uk_cart_item_product UNIQUE (cart_id, product_id)
+);
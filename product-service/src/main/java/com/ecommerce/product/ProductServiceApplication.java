@@ -1,9 +1,12 @@
 package com.ecommerce.product;
 
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.bus.jackson.RemoteApplicationEventScan;
 
 @SpringBootApplication
+@RemoteApplicationEventScan(basePackageClasses = ProductChangedEvent.class)
 public class ProductServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,486 @@
+package com.ecommerce.product.catalog;
+
+import com.ecommerce.product.index.LongIntMap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * The catalog as columns: one row per product in parallel primitive arrays of id, price in cents,
+ * stock and category, the category being an ordinal into a dictionary, plus the lowercased name, of
+ * which equal ones are stored once. Enough to evaluate the listing filters (name, category, price)
+ * without the database, and to count facets.
+ * <p>
+ * Rows are kept in id order, so a scan lists products the way the listing pages them. New products
+ * have the highest id and are appended. A removed row is only marked; once removed rows make up a
+ * quarter of the columns, the live ones are moved together in one pass. Scans of large catalogs are
+ * split into chunks that run in parallel.
+ * <p>
+ * Categories are compared ignoring case, like the listing does, and shown in the spelling first seen.
+ * Safe for concurrent use: scans share a read lock, changes take the write lock.
+ */
+public final class CatalogColumns {
+
+    // Rows per chunk of a parallel scan, and from how many rows on a scan is split at all
+    private static final int CHUNK = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK;
+    // Category of a removed row; every scan skips these
+    private static final int REMOVED = -1;
+    // Rough size of a String holding n Latin-1 characters: object and array headers plus the bytes
+    private static final int STRING_OVERHEAD = 40;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntMap rows = new LongIntMap();
+    private long[] ids = new long[1024];
+    private long[] prices = new long[1024];
+    private int[] stock = new int[1024];
+    private int[] categories = new int[1024];
+    private String[] names = new String[1024];
+    // Rows handed out so far, live or removed
+    private int size;
+    private int liveCount;
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private Map<String, String> internedNames = new HashMap<>();
+    private long internedNameBytes;
+
+    /**
+     * Adds the product, or replaces its row.
+     */
+    public void put(long productId, String name, BigDecimal price, int stockQuantity, String category) {
+        long cents = toCents(price, RoundingMode.HALF_UP);
+        String lowercaseName = name.toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        try {
+            int ordinal = categoryOrdinals.computeIfAbsent(category.toLowerCase(Locale.ROOT), key -> {
+                categoryNames.add(category);
+                return categoryNames.size() - 1;
+            });
+            int row = rows.get(productId);
+            if (row < 0) {
+                row = insertRow(productId);
+                liveCount++;
+            }
+            prices[row] = cents;
+            stock[row] = stockQuantity;
+            categories[row] = ordinal;
+            names[row] = intern(lowercaseName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            int row = rows.remove(productId);
+            if (row < 0) {
+                return;
+            }
+            categories[row] = REMOVED;
+            names[row] = null;
+            liveCount--;
+            int removed = size - liveCount;
+            if (removed > 1_000 && removed > size / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap taken by the columns, the id lookup and the distinct names.
+     */
+    public long heapBytes() {
+        lock.readLock().lock();
+        try {
+            long perRow = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + 4 /* name reference */;
+            return ids.length * perRow + rows.heapBytes() + internedNameBytes
+                    + categoryNames.stream().mapToLong(name -> STRING_OVERHEAD + name.length()).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The products matching the filters, in id order: how many there are, and the ids of at most
+     * {@code limit} of them, starting with the {@code offset}-th.
+     */
+    public Listing list(Filter filter, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Matcher matcher = compile(filter);
+            if (matcher == null) {
+                return new Listing(0, new long[0]);
+            }
+            int chunks = (size + CHUNK - 1) / CHUNK;
+            IntStream chunkStream = IntStream.range(0, chunks);
+            if (size >= PARALLEL_THRESHOLD) {
+                chunkStream = chunkStream.parallel();
+            }
+            int[] counts = chunkStream.map(chunk -> countMatches(matcher, chunk)).toArray();
+
+            long total = Arrays.stream(counts).asLongStream().sum();
+            LongStream.Builder page = LongStream.builder();
+            int taken = 0;
+            long skip = offset;
+            for (int chunk = 0; chunk < chunks && taken < limit; chunk++) {
+                // Whole chunks before the offset are skipped by their count alone
+                if (skip >= counts[chunk]) {
+                    skip -= counts[chunk];
+                    continue;
+                }
+                for (int row = chunk * CHUNK, end = Math.min(row + CHUNK, size); row < end && taken < limit; row++) {
+                    if (matcher.matches(row)) {
+                        if (skip > 0) {
+                            skip--;
+                        } else {
+                            page.add(ids[row]);
+                            taken++;
+                        }
+                    }
+                }
+            }
+            return new Listing(total, page.build().toArray());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The given ids whose products match the filters, in the given order.
+     */
+    public long[] retain(long[] productIds, Filter filter) {
+        lock.readLock().lock();
+        try {
+            Matcher matcher = compile(filter);
+            if (matcher == null) {
+                return new long[0];
+            }
+            return Arrays.stream(productIds)
+                    .filter(productId -> {
+                        int row = rows.get(productId);
+                        return row >= 0 && matcher.matches(row);
+                    })
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts per category and per price bucket in one pass over the products. Each facet ignores its
+     * own filter, so the counts show what choosing another category or price range would give: the
+     * category counts apply the price filter only, the price buckets the category filter only.
+     *
+     * @param restrictions id sets the products must be in all of (keyword or name matches)
+     * @param category     category filter, or null
+     * @param minPrice     lower price bound, or null
+     * @param maxPrice     upper price bound, or null
+     * @param bucketBounds ascending lower bounds of the price buckets after the first, which starts at 0
+     */
+    public Facets facets(List<long[]> restrictions, String category, BigDecimal minPrice, BigDecimal maxPrice,
+                         List<BigDecimal> bucketBounds) {
+        long min = minPrice == null ? Long.MIN_VALUE : toCents(minPrice, RoundingMode.CEILING);
+        long max = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+        long[] bounds = bucketBounds.stream().mapToLong(bound -> toCents(bound, RoundingMode.CEILING)).toArray();
+
+        lock.readLock().lock();
+        try {
+            int wanted = categoryOrdinal(category);
+            long[] categoryCounts = new long[categoryNames.size()];
+            long[] bucketCounts = new long[bounds.length + 1];
+
+            BitSet matched = matchedRows(restrictions);
+            if (matched == null) {
+                for (int row = 0; row < size; row++) {
+                    count(row, min, max, wanted, bounds, categoryCounts, bucketCounts);
+                }
+            } else {
+                for (int row = matched.nextSetBit(0); row >= 0 && row < size; row = matched.nextSetBit(row + 1)) {
+                    count(row, min, max, wanted, bounds, categoryCounts, bucketCounts);
+                }
+            }
+
+            Map<String, Long> counts = new LinkedHashMap<>();
+            IntStream.range(0, categoryCounts.length)
+                    .filter(ordinal -> categoryCounts[ordinal] > 0)
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingLong(ordinal -> -categoryCounts[ordinal])
+                            .thenComparing(categoryNames::get))
+                    .forEach(ordinal -> counts.put(categoryNames.get(ordinal), categoryCounts[ordinal]));
+            return new Facets(counts, bucketCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The live rows, for a snapshot; a copy, so writing it out does not hold up changes
+    Rows copyRows() {
+        lock.readLock().lock();
+        try {
+            Rows copy = new Rows(new long[liveCount], new long[liveCount], new int[liveCount], new int[liveCount],
+                    new String[liveCount], List.copyOf(categoryNames));
+            int next = 0;
+            for (int row = 0; row < size; row++) {
+                if (categories[row] == REMOVED) {
+                    continue;
+                }
+                copy.ids()[next] = ids[row];
+                copy.prices()[next] = prices[row];
+                copy.stock()[next] = stock[row];
+                copy.categories()[next] = categories[row];
+                copy.names()[next] = names[row];
+                next++;
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Columns holding the rows read back from a snapshot, which are taken over as they are
+    static CatalogColumns fromRows(Rows copy) {
+        CatalogColumns columns = new CatalogColumns();
+        int count = copy.ids().length;
+        int capacity = Math.max(count, 1024);
+        columns.ids = Arrays.copyOf(copy.ids(), capacity);
+        columns.prices = Arrays.copyOf(copy.prices(), capacity);
+        columns.stock = Arrays.copyOf(copy.stock(), capacity);
+        columns.categories = Arrays.copyOf(copy.categories(), capacity);
+        columns.names = new String[capacity];
+        for (String category : copy.categoryNames()) {
+            columns.categoryOrdinals.put(category.toLowerCase(Locale.ROOT), columns.categoryNames.size());
+            columns.categoryNames.add(category);
+        }
+        for (int row = 0; row < count; row++) {
+            if (row > 0 && columns.ids[row] <= columns.ids[row - 1]) {
+                throw new IllegalArgumentException("Product ids out of order at row " + row);
+            }
+            if (columns.categories[row] < 0 || columns.categories[row] >= columns.categoryNames.size()) {
+                throw new IllegalArgumentException("Unknown category ordinal at row " + row);
+            }
+            columns.names[row] = columns.intern(copy.names()[row]);
+            columns.rows.put(columns.ids[row], row);
+        }
+        columns.size = count;
+        columns.liveCount = count;
+        return columns;
+    }
+
+    // Appends the row, or inserts it in id order if a higher id is already there (an event that arrived late)
+    private int insertRow(long productId) {
+        if (size > 0 && ids[size - 1] >= productId) {
+            int found = Arrays.binarySearch(ids, 0, size, productId);
+            if (found >= 0) {
+                // Removed, but not compacted away yet: the row comes back
+                rows.put(productId, found);
+                return found;
+            }
+        }
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            stock = Arrays.copyOf(stock, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        int row = size;
+        if (size > 0 && ids[size - 1] > productId) {
+            row = -Arrays.binarySearch(ids, 0, size, productId) - 1;
+            int moved = size - row;
+            System.arraycopy(ids, row, ids, row + 1, moved);
+            System.arraycopy(prices, row, prices, row + 1, moved);
+            System.arraycopy(stock, row, stock, row + 1, moved);
+            System.arraycopy(categories, row, categories, row + 1, moved);
+            System.arraycopy(names, row, names, row + 1, moved);
+            for (int shifted = row + 1; shifted <= size; shifted++) {
+                if (categories[shifted] != REMOVED) {
+                    rows.put(ids[shifted], shifted);
+                }
+            }
+        }
+        size++;
+        ids[row] = productId;
+        rows.put(productId, row);
+        return row;
+    }
+
+    // Moves the live rows together, keeping their order, and forgets names no product has any more
+    private void compact() {
+        Map<String, String> liveNames = new HashMap<>();
+        internedNameBytes = 0;
+        internedNames = liveNames;
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            if (categories[row] == REMOVED) {
+                continue;
+            }
+            ids[next] = ids[row];
+            prices[next] = prices[row];
+            stock[next] = stock[row];
+            categories[next] = categories[row];
+            names[next] = intern(names[row]);
+            rows.put(ids[next], next);
+            next++;
+        }
+        Arrays.fill(names, next, size, null);
+        size = next;
+    }
+
+    private String intern(String name) {
+        String interned = internedNames.putIfAbsent(name, name);
+        if (interned != null) {
+            return interned;
+        }
+        internedNameBytes += STRING_OVERHEAD + name.length();
+        return name;
+    }
+
+    // -1 accepts every category, -2 none (a category no product has)
+    private int categoryOrdinal(String category) {
+        return category == null ? -1 : categoryOrdinals.getOrDefault(category.trim().toLowerCase(Locale.ROOT), -2);
+    }
+
+    // Null when nothing can match
+    private Matcher compile(Filter filter) {
+        int wanted = categoryOrdinal(filter.category());
+        if (wanted == -2) {
+            return null;
+        }
+        long min = filter.minPrice() == null ? Long.MIN_VALUE : toCents(filter.minPrice(), RoundingMode.CEILING);
+        long max = filter.maxPrice() == null ? Long.MAX_VALUE : toCents(filter.maxPrice(), RoundingMode.FLOOR);
+        String name = filter.name() == null ? null : filter.name().trim().toLowerCase(Locale.ROOT);
+        return new Matcher(wanted, min, max, name);
+    }
+
+    private int countMatches(Matcher matcher, int chunk) {
+        int count = 0;
+        for (int row = chunk * CHUNK, end = Math.min(row + CHUNK, size); row < end; row++) {
+            if (matcher.matches(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Rows whose product is in every restriction, or null when there are none
+    private BitSet matchedRows(List<long[]> restrictions) {
+        BitSet matched = null;
+        for (long[] productIds : restrictions) {
+            BitSet in = new BitSet(size);
+            for (long productId : productIds) {
+                int row = rows.get(productId);
+                if (row >= 0) {
+                    in.set(row);
+                }
+            }
+            if (matched == null) {
+                matched = in;
+            } else {
+                matched.and(in);
+            }
+        }
+        return matched;
+    }
+
+    private void count(int row, long min, long max, int wanted, long[] bounds, long[] categoryCounts, long[] bucketCounts) {
+        int ordinal = categories[row];
+        if (ordinal == REMOVED) {
+            return;
+        }
+        long price = prices[row];
+        if (price >= min && price <= max) {
+            categoryCounts[ordinal]++;
+        }
+        if (wanted == -1 || ordinal == wanted) {
+            // Bounds are few: comparing with all of them has no branch to mispredict, unlike a search
+            int bucket = 0;
+            for (long bound : bounds) {
+                bucket += price >= bound ? 1 : 0;
+            }
+            bucketCounts[bucket]++;
+        }
+    }
+
+    private static long toCents(BigDecimal amount, RoundingMode rounding) {
+        return amount.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+
+    /**
+     * The listing filters other than the keyword; null or blank ones do not filter.
+     */
+    public record Filter(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+
+        public Filter {
+            name = name == null || name.trim().isEmpty() ? null : name;
+            category = category == null || category.trim().isEmpty() ? null : category;
+        }
+    }
+
+    /**
+     * @param total matching products
+     * @param ids   the requested stretch of them, in id order
+     */
+    public record Listing(long total, long[] ids) {
+    }
+
+    /**
+     * @param categories   matching products per category, most first; categories without any are left out
+     * @param priceBuckets matching products per price bucket, in bucket order
+     */
+    public record Facets(Map<String, Long> categories, long[] priceBuckets) {
+    }
+
+    // Live rows in id order, names lowercased, categories as ordinals into categoryNames
+    record Rows(long[] ids, long[] prices, int[] stock, int[] categories, String[] names, List<String> categoryNames) {
+    }
+
+    // A compiled filter; only used under the read lock
+    private final class Matcher {
+
+        private final int category;
+        private final long minPrice;
+        private final long maxPrice;
+        private final String name;
+
+        Matcher(int category, long minPrice, long maxPrice, String name) {
+            this.category = category;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.name = name;
+        }
+
+        boolean matches(int row) {
+            int ordinal = categories[row];
+            if (ordinal == REMOVED || (category >= 0 && ordinal != category)) {
+                return false;
+            }
+            long price = prices[row];
+            return price >= minPrice && price <= maxPrice && (name == null || names[row].contains(name));
+        }
+    }
+}
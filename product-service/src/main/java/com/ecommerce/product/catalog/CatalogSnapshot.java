@@ -0,0 +1,191 @@
+package com.ecommerce.product.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link CatalogColumns} written to and read back from a memory-mapped file, so a restarted service
+ * has its catalog in memory without reading every product from the database.
+ * <p>
+ * Layout, big-endian: magic {@code PCAT}, format version, the time the snapshot was taken (epoch
+ * millis of the {@code updatedAt} clock, read as UTC), the category dictionary, the row count, then
+ * the ids, prices in cents, stock and category ordinals as whole columns, then the lowercased names.
+ * Strings are an int byte length followed by UTF-8. The last four bytes are a CRC-32C of everything
+ * before them.
+ * <p>
+ * A snapshot is written to a temporary file next to the target, forced to disk, and renamed over the
+ * target in one atomic step: a crash leaves either the previous snapshot or the new one, never half of
+ * one. Reading checks the checksum before anything else, so a damaged file is rejected as a whole.
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x50434154;
+    private static final int VERSION = 1;
+    private static final int HEADER = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    // Id, price, stock and category; names vary in length
+    private static final int PER_ROW = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes the columns to {@code path}, replacing the snapshot there.
+     *
+     * @param takenAt the time the columns reflect the catalog up to; a restore catches up from there
+     * @return the size of the snapshot in bytes
+     */
+    public static long write(CatalogColumns columns, LocalDateTime takenAt, Path path) throws IOException {
+        CatalogColumns.Rows rows = columns.copyRows();
+        int count = rows.ids().length;
+        byte[][] categories = encode(rows.categoryNames().toArray(String[]::new));
+        byte[][] names = encode(rows.names());
+
+        long length = HEADER + Integer.BYTES + strings(categories) + Integer.BYTES + (long) count * PER_ROW
+                + strings(names) + Integer.BYTES;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Catalog snapshot of " + length + " bytes exceeds a single mapping");
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = parent.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(takenAt.toInstant(ZoneOffset.UTC).toEpochMilli());
+            putStrings(buffer, categories);
+            buffer.putInt(count);
+            buffer.asLongBuffer().put(rows.ids());
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asLongBuffer().put(rows.prices());
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asIntBuffer().put(rows.stock());
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            buffer.asIntBuffer().put(rows.categories());
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            for (byte[] name : names) {
+                buffer.putInt(name.length);
+                buffer.put(name);
+            }
+            buffer.putInt(checksum(buffer, buffer.position()));
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return length;
+    }
+
+    /**
+     * Maps the snapshot at {@code path} and builds the columns from it.
+     *
+     * @throws IOException when the file cannot be read, or is not a complete snapshot of this version
+     */
+    public static Loaded read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER + Integer.BYTES + Integer.BYTES + Integer.BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a catalog snapshot: " + path + " has " + length + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int end = (int) length - Integer.BYTES;
+            if (checksum(buffer, end) != buffer.getInt(end)) {
+                throw new IOException("Checksum mismatch in catalog snapshot " + path);
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a catalog snapshot: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Catalog snapshot " + path + " has version " + version + ", expected " + VERSION);
+            }
+            LocalDateTime takenAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+            List<String> categories = List.of(getStrings(buffer, buffer.getInt()));
+            int count = buffer.getInt();
+
+            long[] ids = new long[count];
+            long[] prices = new long[count];
+            int[] stock = new int[count];
+            int[] ordinals = new int[count];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asLongBuffer().get(prices);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asIntBuffer().get(stock);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            buffer.asIntBuffer().get(ordinals);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            String[] names = getStrings(buffer, count);
+            if (buffer.position() != end) {
+                throw new IOException("Catalog snapshot " + path + " has " + (end - buffer.position()) + " trailing bytes");
+            }
+
+            CatalogColumns columns = CatalogColumns.fromRows(
+                    new CatalogColumns.Rows(ids, prices, stock, ordinals, names, categories));
+            return new Loaded(columns, ids, takenAt);
+        } catch (RuntimeException ex) {
+            // A count or length pointing past the end, or rows the columns refuse
+            throw new IOException("Malformed catalog snapshot " + path, ex);
+        }
+    }
+
+    /**
+     * @param ids     the products in the snapshot, ascending
+     * @param takenAt the time the snapshot reflects the catalog up to
+     */
+    public record Loaded(CatalogColumns columns, long[] ids, LocalDateTime takenAt) {
+    }
+
+    private static byte[][] encode(String[] strings) {
+        byte[][] encoded = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static long strings(byte[][] encoded) {
+        long length = 0;
+        for (byte[] string : encoded) {
+            length += Integer.BYTES + string.length;
+        }
+        return length;
+    }
+
+    private static void putStrings(ByteBuffer buffer, byte[][] encoded) {
+        buffer.putInt(encoded.length);
+        for (byte[] string : encoded) {
+            buffer.putInt(string.length);
+            buffer.put(string);
+        }
+    }
+
+    private static String[] getStrings(ByteBuffer buffer, int count) {
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            strings.add(StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString());
+            buffer.position(buffer.position() + length);
+        }
+        return strings.toArray(String[]::new);
+    }
+
+    private static int checksum(ByteBuffer buffer, int end) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, end));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,188 @@
+package com.ecommerce.product.catalog;
+
+import com.ecommerce.product.config.ProductProperties;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.index.ProductIndexHolder;
+import com.ecommerce.product.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps the {@link CatalogColumns} in step with the catalog. Meters: {@code product.catalog.products}
+ * and {@code product.catalog.heap} (bytes), both 0 until the catalog is loaded.
+ * <p>
+ * With {@code product.catalog.snapshot.enabled} (on in application.yml, off in the test profile), the
+ * columns are written to a {@link CatalogSnapshot} at {@code product.catalog.snapshot.path} every
+ * {@code interval}, starting once the application is ready, and on shutdown. A restarted service starts
+ * from that snapshot instead of reading the whole catalog from the database.
+ */
+@Slf4j
+@Component
+public class ProductCatalog extends ProductIndexHolder<CatalogColumns> implements DisposableBean {
+
+    private final boolean listings;
+    private final ProductProperties.Snapshot snapshotConfig;
+    private final Path snapshotPath;
+    // Null when snapshots are off; writes are scheduled once the application is ready
+    private final ScheduledExecutorService scheduler;
+
+    public ProductCatalog(ProductRepository productRepository, ProductProperties properties, MeterRegistry meterRegistry,
+                          @Value("${spring.cloud.bus.id:${spring.application.name}}") String originService) {
+        super("product-catalog", productRepository, properties.getCatalog().isEnabled(),
+                properties.getCatalog().getLoadBatchSize(), originService);
+        this.listings = properties.getCatalog().isListings();
+
+        Gauge.builder("product.catalog.products", this, catalog -> catalog.measure(CatalogColumns::size))
+                .description("Products held in the in-memory catalog")
+                .register(meterRegistry);
+        Gauge.builder("product.catalog.heap", this, catalog -> catalog.measure(CatalogColumns::heapBytes))
+                .description("Approximate heap taken by the in-memory catalog")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        this.snapshotConfig = properties.getCatalog().getSnapshot();
+        this.snapshotPath = Path.of(snapshotConfig.getPath());
+        if (properties.getCatalog().isEnabled() && snapshotConfig.isEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("product-catalog-snapshot").daemon().factory());
+        } else {
+            scheduler = null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSnapshots() {
+        if (scheduler != null) {
+            long interval = snapshotConfig.getInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::writeSnapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the catalog to the snapshot file, unless it is not loaded yet. Holds off while a build or
+     * the catch-up after a restore runs, so a snapshot never misses changes that were still to come in.
+     *
+     * @return whether a snapshot was written
+     */
+    public boolean writeSnapshot() throws IOException {
+        if (current() == null) {
+            return false;
+        }
+        // The monitor rebuild and restore hold
+        synchronized (this) {
+            CatalogColumns current = current();
+            if (current == null) {
+                return false;
+            }
+            long start = System.nanoTime();
+            long bytes = CatalogSnapshot.write(current, LocalDateTime.now(), snapshotPath);
+            log.info("product-catalog snapshot written: {} products, {} bytes in {} ms", current.size(), bytes,
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            writeSnapshotQuietly();
+        }
+    }
+
+    /**
+     * See {@link CatalogColumns#list}; empty while the catalog is not loaded yet, or not used for listings.
+     */
+    public Optional<CatalogColumns.Listing> list(CatalogColumns.Filter filter, long offset, int limit) {
+        CatalogColumns current = current();
+        return current == null || !listings ? Optional.empty() : Optional.of(current.list(filter, offset, limit));
+    }
+
+    /**
+     * See {@link CatalogColumns#retain}; empty while the catalog is not loaded yet, or not used for listings.
+     */
+    public Optional<long[]> retain(long[] productIds, CatalogColumns.Filter filter) {
+        CatalogColumns current = current();
+        return current == null || !listings ? Optional.empty() : Optional.of(current.retain(productIds, filter));
+    }
+
+    /**
+     * See {@link CatalogColumns#facets}; empty while the catalog is not loaded yet (or disabled).
+     */
+    public Optional<CatalogColumns.Facets> facets(List<long[]> restrictions, String category, BigDecimal minPrice,
+                                                  BigDecimal maxPrice, List<BigDecimal> bucketBounds) {
+        CatalogColumns current = current();
+        return current == null
+                ? Optional.empty()
+                : Optional.of(current.facets(restrictions, category, minPrice, maxPrice, bucketBounds));
+    }
+
+    @Override
+    protected Optional<Restored<CatalogColumns>> restore() {
+        if (scheduler == null || !Files.exists(snapshotPath)) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            CatalogSnapshot.Loaded loaded = CatalogSnapshot.read(snapshotPath);
+            log.info("product-catalog snapshot of {} read: {} products in {} ms", loaded.takenAt(), loaded.ids().length,
+                    (System.nanoTime() - start) / 1_000_000);
+            return Optional.of(new Restored<>(loaded.columns(), loaded.ids(),
+                    loaded.takenAt().minus(snapshotConfig.getCatchUpOverlap())));
+        } catch (IOException ex) {
+            log.warn("Ignoring product-catalog snapshot; loading the catalog from the database", ex);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    protected CatalogColumns newIndex() {
+        return new CatalogColumns();
+    }
+
+    @Override
+    protected void put(CatalogColumns columns, Product product) {
+        columns.put(product.getId(), product.getName(), product.getPrice(), product.getStockQuantity(), product.getCategory());
+    }
+
+    @Override
+    protected void remove(CatalogColumns columns, long productId) {
+        columns.remove(productId);
+    }
+
+    @Override
+    protected int size(CatalogColumns columns) {
+        return columns.size();
+    }
+
+    private void writeSnapshotQuietly() {
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Writing the product-catalog snapshot to {} failed", snapshotPath, ex);
+        }
+    }
+
+    private double measure(ToLongFunction<CatalogColumns> metric) {
+        CatalogColumns current = current();
+        return current == null ? 0 : metric.applyAsLong(current);
+    }
+}
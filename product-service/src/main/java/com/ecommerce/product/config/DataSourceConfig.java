@@ -1,7 +1,8 @@
 package com.ecommerce.product.config;
 
-import javax.sql.DataSource;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Bean;
@@ -11,16 +12,19 @@ import org.springframework.context.annotation.Primary;
 @Configuration
 public class DataSourceConfig {
 
+    // Pool settings under spring.datasource.hikari are bound onto the pool built here
     @Bean
     @Primary
     @RefreshScope
-    public DataSource dataSource(
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource(
             @Value("${spring.datasource.url}") String url,
             @Value("${spring.datasource.username}") String username,
             @Value("${spring.datasource.password}") String password,
             @Value("${spring.datasource.driver-class-name}") String driverClassName) {
 
         return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
                 .driverClassName(driverClassName)
                 .url(url)
                 .username(username)
@@ -0,0 +1,9 @@
+package com.ecommerce.product.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ProductProperties.class)
+public class ProductConfig {
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.product.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "product")
+public class ProductProperties {
+
+    private Search search = new Search();
+    private Catalog catalog = new Catalog();
+
+    @Data
+    public static class Search {
+        // Answer keyword searches from an in-memory inverted index instead of LIKE scans
+        private boolean enabled = true;
+        // Products read per query while the index is built on startup
+        private int loadBatchSize = 10_000;
+    }
+
+    @Data
+    public static class Catalog {
+        // Keep id, name, price, stock and category of every product in memory, for facet counts
+        private boolean enabled = true;
+        // Also answer listings without a keyword from it, and check other filters of keyword searches there
+        private boolean listings = true;
+        // Products read per query while the catalog is loaded on startup
+        private int loadBatchSize = 10_000;
+        // Lower bounds of the price buckets after the first, which starts at 0; requests may pass their own
+        private List<BigDecimal> priceBuckets = List.of(
+                new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"),
+                new BigDecimal("100"), new BigDecimal("250"), new BigDecimal("500"));
+        private Snapshot snapshot = new Snapshot();
+    }
+
+    @Data
+    public static class Snapshot {
+        // Write the catalog to a file now and then, and start from that file after a restart
+        private boolean enabled = true;
+        private String path = "data/product-catalog.snapshot";
+        // Time between snapshots; one more is written on shutdown
+        private Duration interval = Duration.ofMinutes(5);
+        // Products updated this long before a snapshot are read again too, for clocks of other instances running behind
+        private Duration catchUpOverlap = Duration.ofMinutes(1);
+    }
+}
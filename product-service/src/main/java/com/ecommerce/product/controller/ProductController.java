@@ -1,26 +1,43 @@
 package com.ecommerce.product.controller;
 
+import com.ecommerce.common.libraray.product.dto.ProductBatchResponseDTO;
 import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import com.ecommerce.product.catalog.CatalogColumns.Facets;
+import com.ecommerce.product.config.ProductProperties;
+import com.ecommerce.product.dto.ProductFacetsDTO;
+import com.ecommerce.product.dto.ProductListingResponseDTO;
 import com.ecommerce.product.dto.ProductRequestDTO;
 
 import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.exception.InvalidUserDataException;
 import com.ecommerce.product.mapper.ProductMapper;
+import com.ecommerce.product.pagination.CursorPage;
+import com.ecommerce.product.pagination.ProductCursor;
+import com.ecommerce.product.pagination.ProductSort;
 import com.ecommerce.product.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/products")
@@ -28,26 +45,69 @@ import java.util.Map;
 @Tag(name = "Product")
 public class ProductController {
 
+    // Upper bound for one multi-get call; keeps the IN list and the response size reasonable
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_SCROLL_SIZE = 100;
+    private static final int MAX_PRICE_BUCKETS = 50;
+
     private final ProductService productService;
     private final ProductMapper productMapper;
+    private final ProductProperties productProperties;
 
     @GetMapping
-    @Operation(summary = "Get all products")
-    public ResponseEntity<Page<ProductResponseDTO>> getAllProducts(
+    @Operation(summary = "Get all products",
+            description = "includeTotal=false skips counting the filtered products (no totalElements/totalPages). "
+                    + "facets=true wraps the page as 'products' next to category and price-range counts ('facets'); "
+                    + "priceBuckets sets the lower bounds of the ranges after the first")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(oneOf = {Slice.class, ProductListingResponseDTO.class})))
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
-            @RequestParam(required = false) String keyword
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "true") boolean includeTotal,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) List<BigDecimal> priceBuckets
     ) {
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = productService.filterProducts(name, category, minPrice, maxPrice, keyword, pageable);
-        Page<ProductResponseDTO> dtoPage = products.map(productMapper::toResponseDTO);
+        Slice<Product> products = productService.filterProducts(name, category, minPrice, maxPrice, keyword, pageable, includeTotal);
+        Slice<ProductResponseDTO> dtoPage = products.map(productMapper::toResponseDTO);
+        if (!facets) {
+            return ResponseEntity.ok(dtoPage);
+        }
+
+        List<BigDecimal> bounds = priceBuckets == null ? productProperties.getCatalog().getPriceBuckets() : priceBuckets;
+        validatePriceBuckets(bounds);
+        ProductFacetsDTO facetCounts = productService.facetProducts(name, category, minPrice, maxPrice, keyword, bounds)
+                .map(counts -> toFacetsDTO(counts, bounds))
+                .orElse(null);
+        return ResponseEntity.ok(new ProductListingResponseDTO(dtoPage, facetCounts));
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll through products with a cursor",
+            description = "Pass the returned nextCursor (and the same sort) to get the following products; it is null on the last stretch")
+    public ResponseEntity<CursorPage<ProductResponseDTO>> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice
+    ) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new InvalidUserDataException("size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        ProductSort order = ProductSort.fromParam(sort);
+        ProductCursor after = cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(cursor, order);
 
-        return ResponseEntity.ok(dtoPage);
+        CursorPage<Product> products = productService.scrollProducts(name, category, minPrice, maxPrice, order, after, size);
+        return ResponseEntity.ok(products.map(productMapper::toResponseDTO));
     }
 
     @GetMapping("/{productId}")
@@ -56,6 +116,31 @@ public class ProductController {
         return ResponseEntity.ok(productMapper.toResponseDTO(product));
     }
 
+    @GetMapping("/batch")
+    @Operation(summary = "Get several products by id in one call")
+    public ResponseEntity<ProductBatchResponseDTO> getProductsByIds(@RequestParam List<Long> ids) {
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+        requestedIds.remove(null);
+        if (requestedIds.size() > MAX_BATCH_SIZE) {
+            throw new InvalidUserDataException("At most " + MAX_BATCH_SIZE + " product ids can be requested at once");
+        }
+
+        Map<Long, Product> found = productService.fetchProductsByIds(requestedIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Keep the caller's order and report every id we could not resolve
+        ProductBatchResponseDTO response = new ProductBatchResponseDTO();
+        for (Long id : requestedIds) {
+            Product product = found.get(id);
+            if (product != null) {
+                response.getProducts().add(productMapper.toResponseDTO(product));
+            } else {
+                response.getMissingIds().add(id);
+            }
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<ProductResponseDTO> createProduct(@Valid @RequestBody ProductRequestDTO requestDTO) {
@@ -80,4 +165,29 @@ public class ProductController {
         response.put("message", message);
         return ResponseEntity.ok(response);
     }
+
+    private static void validatePriceBuckets(List<BigDecimal> bounds) {
+        if (bounds.size() > MAX_PRICE_BUCKETS) {
+            throw new InvalidUserDataException("At most " + MAX_PRICE_BUCKETS + " price buckets can be requested");
+        }
+        BigDecimal previous = BigDecimal.ZERO;
+        for (BigDecimal bound : bounds) {
+            if (bound == null || bound.compareTo(previous) <= 0) {
+                throw new InvalidUserDataException("priceBuckets must be positive and ascending");
+            }
+            previous = bound;
+        }
+    }
+
+    private static ProductFacetsDTO toFacetsDTO(Facets facets, List<BigDecimal> bounds) {
+        ProductFacetsDTO dto = new ProductFacetsDTO();
+        dto.setCategories(facets.categories());
+        for (int bucket = 0; bucket <= bounds.size(); bucket++) {
+            dto.getPrices().add(new ProductFacetsDTO.PriceBucket(
+                    bucket == 0 ? BigDecimal.ZERO : bounds.get(bucket - 1),
+                    bucket == bounds.size() ? null : bounds.get(bucket),
+                    facets.priceBuckets()[bucket]));
+        }
+        return dto;
+    }
 }
@@ -0,0 +1,35 @@
+package com.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ProductFacetsDTO {
+
+    // Matching products per category, most first; the category filter itself is not applied here
+    private Map<String, Long> categories = new LinkedHashMap<>();
+
+    // Matching products per price range; the price filters themselves are not applied here
+    private List<PriceBucket> prices = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+
+        // Inclusive
+        private BigDecimal from;
+
+        // Exclusive; null for the last bucket
+        private BigDecimal to;
+
+        private long count;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ecommerce.product.dto;
+
+import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+/**
+ * {@code GET /api/products?facets=true}: the usual page, and the facet counts of the whole result.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductListingResponseDTO {
+
+    private Slice<ProductResponseDTO> products;
+
+    // Null for the first seconds after a restart, while the catalog is loading
+    private ProductFacetsDTO facets;
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.product.dto;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -20,6 +21,8 @@ public class ProductRequestDTO {
 
     @NotNull(message = "Price is required")
     @Positive(message = "Price must be greater than 0")
+    // Prices are held in cents downstream (Money), which does not round
+    @Digits(integer = 16, fraction = 2, message = "Price must have at most 2 decimals")
     private BigDecimal price;
 
     @NotNull(message = "Stock quantity is required")
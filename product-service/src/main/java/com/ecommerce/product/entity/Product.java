@@ -9,6 +9,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
+// Scrolling by price or newest walks these; id makes every sort key unique.
+// Catching up a catalog restored from a snapshot reads the products updated since.
+@Table(indexes = {
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_product_updated_at", columnList = "updated_at")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -0,0 +1,24 @@
+package com.ecommerce.product.event;
+
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent.ChangeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProductChangePublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final String originService;
+
+    public ProductChangePublisher(ApplicationEventPublisher eventPublisher,
+                                  @Value("${spring.cloud.bus.id:${spring.application.name}}") String originService) {
+        this.eventPublisher = eventPublisher;
+        this.originService = originService;
+    }
+
+    public void publish(Long productId, ChangeType changeType) {
+        eventPublisher.publishEvent(new ProductChangedEvent(this, originService, productId, changeType));
+    }
+}
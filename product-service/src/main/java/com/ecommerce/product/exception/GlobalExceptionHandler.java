@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 //import org.springframework.security.access.AccessDeniedException;
 //import org.springframework.security.core.AuthenticationException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -138,6 +139,13 @@ public class GlobalExceptionHandler {
         return buildResponse("Conflict: data integrity violation", HttpStatus.CONFLICT);
     }
 
+    // 503 – no database connection became free within spring.datasource.hikari.connection-timeout
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<Map<String, Object>> handleNoConnection(CannotCreateTransactionException ex) {
+        log.warn("No database connection available: {}", ex.getMessage());
+        return buildResponse("Service busy, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // 500 – everything else
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
@@ -0,0 +1,110 @@
+package com.ecommerce.product.index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from product id to a non-negative int, without boxing: two arrays instead of a
+ * {@code HashMap<Long, Integer>} entry object per product. Not thread-safe.
+ */
+public final class LongIntMap {
+
+    private static final int FREE = -1;
+    private static final int REMOVED = -2;
+
+    private long[] keys = new long[16];
+    private int[] values = new int[16];
+    // Slots that are not FREE, including REMOVED ones
+    private int used;
+
+    public LongIntMap() {
+        Arrays.fill(values, FREE);
+    }
+
+    // The value, or -1 if the key is absent
+    public int get(long key) {
+        int slot = find(key);
+        return slot < 0 ? -1 : values[slot];
+    }
+
+    public void put(long key, int value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if ((used + 1) * 2 > keys.length) {
+            resize();
+        }
+        slot = indexOf(key, keys.length);
+        while (values[slot] >= 0) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (values[slot] == FREE) {
+            used++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    // The removed value, or -1 if the key was absent
+    public int remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return -1;
+        }
+        int value = values[slot];
+        values[slot] = REMOVED;
+        return value;
+    }
+
+    public long heapBytes() {
+        return (long) keys.length * Long.BYTES + (long) values.length * Integer.BYTES;
+    }
+
+    private int find(long key) {
+        int slot = indexOf(key, keys.length);
+        while (values[slot] != FREE) {
+            if (values[slot] >= 0 && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int live = 0;
+        for (int value : oldValues) {
+            if (value >= 0) {
+                live++;
+            }
+        }
+        // Grow only if live entries need it; otherwise rehashing just clears the REMOVED slots
+        int capacity = oldKeys.length;
+        while ((live + 1) * 4 > capacity) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, FREE);
+        used = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] >= 0) {
+                int slot = indexOf(oldKeys[i], capacity);
+                while (values[slot] != FREE) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used++;
+            }
+        }
+    }
+
+    private static int indexOf(long key, int capacity) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & (capacity - 1);
+    }
+}
@@ -0,0 +1,233 @@
+package com.ecommerce.product.index;
+
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps an in-memory structure derived from the whole catalog in step with it.
+ * <p>
+ * The structure is built in the background once the application is ready, reading products in id
+ * order {@code loadBatchSize} at a time; until then {@link #current()} is null and callers go to the
+ * database. Products saved or deleted through this instance are applied right away (by
+ * {@code ProductService}), changes made through other instances when their {@code ProductChangedEvent}
+ * arrives over the bus. Products changed while a build is running are read again once it is done.
+ * <p>
+ * A subclass that can {@link #restore()} a structure, for instance from a snapshot on disk, has it
+ * served right away on startup instead. It is then caught up in the background: products updated since
+ * the snapshot are read again, and the ones no longer in the database are removed.
+ *
+ * @param <T> the structure; must be safe for concurrent reads and writes
+ */
+@Slf4j
+public abstract class ProductIndexHolder<T> {
+
+    private final String name;
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final int loadBatchSize;
+    private final String originService;
+
+    private volatile T index;
+    private volatile boolean building;
+    private final Set<Long> changedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param name names the building thread and the log lines
+     */
+    protected ProductIndexHolder(String name, ProductRepository productRepository, boolean enabled, int loadBatchSize,
+                                 String originService) {
+        this.name = name;
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.loadBatchSize = loadBatchSize;
+        this.originService = originService;
+    }
+
+    protected abstract T newIndex();
+
+    protected abstract void put(T index, Product product);
+
+    protected abstract void remove(T index, long productId);
+
+    protected abstract int size(T index);
+
+    /**
+     * A structure to serve from on startup instead of building one first. Empty by default.
+     */
+    protected Optional<Restored<T>> restore() {
+        return Optional.empty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuilding() {
+        if (enabled) {
+            Thread.ofPlatform().name(name).daemon().start(this::buildQuietly);
+        }
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    // Null until built, or when disabled
+    protected T current() {
+        return index;
+    }
+
+    public void onSaved(Product product) {
+        if (building) {
+            changedWhileBuilding.add(product.getId());
+        }
+        T current = index;
+        if (current != null) {
+            put(current, product);
+        }
+    }
+
+    public void onDeleted(Long productId) {
+        if (building) {
+            changedWhileBuilding.add(productId);
+        }
+        T current = index;
+        if (current != null) {
+            remove(current, productId);
+        }
+    }
+
+    // Local changes are applied by ProductService already
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (enabled && !originService.equals(event.getOriginService())) {
+            reload(event.getProductId());
+        }
+    }
+
+    /**
+     * Builds a new structure from the database and swaps it in; readers keep using the current one
+     * meanwhile. Runs on startup, and can be called again to drop what a missed event left stale.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        building = true;
+        T fresh = newIndex();
+        try {
+            long afterId = 0;
+            while (true) {
+                List<Product> batch = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(loadBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(product -> put(fresh, product));
+                afterId = batch.getLast().getId();
+            }
+            index = fresh;
+        } finally {
+            building = false;
+        }
+        reloadChangedWhileBuilding();
+        log.info("{} built: {} products in {} ms", name, size(fresh), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @param ids   the products it holds, ascending
+     * @param since the products updated from then on are read again
+     */
+    public record Restored<T>(T index, long[] ids, LocalDateTime since) {
+    }
+
+    // False when there is nothing to restore; a failed catch-up drops the restored structure
+    private synchronized boolean restoreAndCatchUp() {
+        Optional<Restored<T>> restored = restore();
+        if (restored.isEmpty()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        T current = restored.get().index();
+        building = true;
+        index = current;
+        int changed = 0;
+        int deleted;
+        try {
+            long afterId = 0;
+            while (true) {
+                List<Product> batch = productRepository.findByUpdatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                        restored.get().since(), afterId, Limit.of(loadBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(product -> put(current, product));
+                changed += batch.size();
+                afterId = batch.getLast().getId();
+            }
+            deleted = removeDeleted(current, restored.get().ids());
+        } catch (RuntimeException ex) {
+            index = null;
+            throw ex;
+        } finally {
+            building = false;
+        }
+        reloadChangedWhileBuilding();
+        log.info("{} restored: {} products, {} changed and {} deleted since {}, caught up in {} ms", name, size(current),
+                changed, deleted, restored.get().since(), (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    // Walks the ids in the database alongside the restored ones; deletions leave no updatedAt to find them by
+    private int removeDeleted(T current, long[] restoredIds) {
+        int deleted = 0;
+        int next = 0;
+        long afterId = 0;
+        while (next < restoredIds.length) {
+            List<Long> batch = productRepository.findIdsGreaterThan(afterId, Limit.of(loadBatchSize));
+            for (Long productId : batch) {
+                for (; next < restoredIds.length && restoredIds[next] < productId; next++, deleted++) {
+                    remove(current, restoredIds[next]);
+                }
+                if (next < restoredIds.length && restoredIds[next] == productId) {
+                    next++;
+                }
+            }
+            if (batch.isEmpty()) {
+                // Past the last product in the database: the rest are gone
+                for (; next < restoredIds.length; next++, deleted++) {
+                    remove(current, restoredIds[next]);
+                }
+                break;
+            }
+            afterId = batch.getLast();
+        }
+        return deleted;
+    }
+
+    private void buildQuietly() {
+        try {
+            if (!restoreAndCatchUp()) {
+                rebuild();
+            }
+        } catch (RuntimeException ex) {
+            log.error("Building {} failed; reads stay on the database", name, ex);
+        }
+    }
+
+    private void reloadChangedWhileBuilding() {
+        for (Long productId : List.copyOf(changedWhileBuilding)) {
+            changedWhileBuilding.remove(productId);
+            reload(productId);
+        }
+    }
+
+    private void reload(Long productId) {
+        productRepository.findById(productId).ifPresentOrElse(this::onSaved, () -> onDeleted(productId));
+    }
+}
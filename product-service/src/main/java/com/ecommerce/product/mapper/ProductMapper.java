@@ -1,5 +1,6 @@
 package com.ecommerce.product.mapper;
 
+import com.ecommerce.common.libraray.money.Money;
 import com.ecommerce.common.libraray.product.dto.ProductResponseDTO;
 import com.ecommerce.product.dto.ProductRequestDTO;
 
@@ -38,7 +39,7 @@ public class ProductMapper {
         dto.setStockQuantity(product.getStockQuantity());
         dto.setImageUrl(product.getImageUrl());
         dto.setActive(product.isActive());
-        dto.setPrice(product.getPrice());
+        dto.setPrice(Money.of(product.getPrice()));
         dto.setCreatedAt(product.getCreatedAt());
         dto.setUpdatedAt(product.getUpdatedAt());
 
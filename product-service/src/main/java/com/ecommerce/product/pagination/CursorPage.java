@@ -0,0 +1,17 @@
+package com.ecommerce.product.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One stretch of a scrolled listing. There is no total: counting the whole result is what scrolling
+ * avoids.
+ *
+ * @param nextCursor where the next stretch starts, or null when this one is the last
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.product.pagination;
+
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.exception.InvalidUserDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a scrolled product listing: the sort key and id of the last product returned. Clients
+ * get it as an opaque string and send it back unchanged to read on from there.
+ *
+ * @param key the sort key of the last product, or null when sorting by id only or when that product has none
+ */
+public record ProductCursor(ProductSort sort, Comparable<?> key, long id) {
+
+    public static ProductCursor after(ProductSort sort, Product product) {
+        return new ProductCursor(sort, sort.keyOf(product), product.getId());
+    }
+
+    /**
+     * @throws InvalidUserDataException if the cursor is malformed or was handed out for another sort
+     */
+    public static ProductCursor decode(String cursor, ProductSort sort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException ex) {
+            throw malformed();
+        }
+        if (parts.length != 3) {
+            throw malformed();
+        }
+        if (!parts[0].equals(sort.param())) {
+            throw new InvalidUserDataException("Cursor belongs to sort '" + parts[0] + "', not '" + sort.param() + "'");
+        }
+        try {
+            if (sort.attribute() == null && !parts[1].isEmpty()) {
+                throw malformed();
+            }
+            // An empty key is a product without one, such as a null created_at
+            Comparable<?> key = parts[1].isEmpty() ? null : sort.parseKey(parts[1]);
+            return new ProductCursor(sort, key, Long.parseLong(parts[2]));
+        } catch (RuntimeException ex) {
+            // A key or id that does not parse
+            throw malformed();
+        }
+    }
+
+    public String encode() {
+        String plain = sort.param() + "|" + (key == null ? "" : key) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InvalidUserDataException malformed() {
+        return new InvalidUserDataException("Malformed cursor");
+    }
+}
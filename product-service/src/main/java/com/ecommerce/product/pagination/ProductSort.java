@@ -0,0 +1,72 @@
+package com.ecommerce.product.pagination;
+
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.exception.InvalidUserDataException;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Orders a product listing can be scrolled in. Each one sorts on an indexed column and then on id, so
+ * the order is total and a cursor always points between two products.
+ */
+public enum ProductSort {
+
+    ID("id", null, Sort.Direction.ASC, null, null),
+    PRICE("price", "price", Sort.Direction.ASC, Product::getPrice, BigDecimal::new),
+    PRICE_DESC("-price", "price", Sort.Direction.DESC, Product::getPrice, BigDecimal::new),
+    NEWEST("newest", "createdAt", Sort.Direction.DESC, Product::getCreatedAt, LocalDateTime::parse);
+
+    private final String param;
+    // Sorted on before the id; null when the id is the only key
+    private final String attribute;
+    private final Sort.Direction direction;
+    private final Function<Product, Comparable<?>> key;
+    private final Function<String, Comparable<?>> parser;
+
+    ProductSort(String param, String attribute, Sort.Direction direction,
+                Function<Product, Comparable<?>> key, Function<String, Comparable<?>> parser) {
+        this.param = param;
+        this.attribute = attribute;
+        this.direction = direction;
+        this.key = key;
+        this.parser = parser;
+    }
+
+    public static ProductSort fromParam(String param) {
+        return Arrays.stream(values())
+                .filter(sort -> sort.param.equals(param))
+                .findFirst()
+                .orElseThrow(() -> new InvalidUserDataException("Unknown sort '" + param + "', expected one of "
+                        + Arrays.stream(values()).map(ProductSort::param).collect(Collectors.joining(", "))));
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public boolean isAscending() {
+        return direction.isAscending();
+    }
+
+    public Sort toSort() {
+        Sort byId = Sort.by(direction, "id");
+        return attribute == null ? byId : Sort.by(direction, attribute).and(byId);
+    }
+
+    Comparable<?> keyOf(Product product) {
+        return key == null ? null : key.apply(product);
+    }
+
+    Comparable<?> parseKey(String value) {
+        return parser == null ? null : parser.apply(value);
+    }
+}
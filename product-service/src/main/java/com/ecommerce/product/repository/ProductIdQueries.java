@@ -0,0 +1,12 @@
+package com.ecommerce.product.repository;
+
+import com.ecommerce.product.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ProductIdQueries {
+
+    // Ids of the matching products, without loading the products themselves
+    List<Long> findIds(Specification<Product> spec);
+}
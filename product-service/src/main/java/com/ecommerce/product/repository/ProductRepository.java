@@ -1,10 +1,25 @@
 package com.ecommerce.product.repository;
 
 import com.ecommerce.product.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductIdQueries {
+
+    // Keyset scan of the whole catalog, for building in-memory indexes
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // Keyset scan of the products changed since, for catching up an index restored from a snapshot
+    List<Product> findByUpdatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(LocalDateTime since, Long afterId, Limit limit);
+
+    // Keyset scan of the ids alone, for finding products deleted since a snapshot
+    @Query("select p.id from Product p where p.id > :afterId order by p.id")
+    List<Long> findIdsGreaterThan(Long afterId, Limit limit);
 }
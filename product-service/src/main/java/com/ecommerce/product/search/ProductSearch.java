@@ -0,0 +1,62 @@
+package com.ecommerce.product.search;
+
+import com.ecommerce.product.config.ProductProperties;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.index.ProductIndexHolder;
+import com.ecommerce.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Keeps the {@link ProductSearchIndex} in step with the catalog; until it is built, keyword searches
+ * fall back to the database.
+ */
+@Component
+public class ProductSearch extends ProductIndexHolder<ProductSearchIndex> {
+
+    public ProductSearch(ProductRepository productRepository, ProductProperties properties,
+                         @Value("${spring.cloud.bus.id:${spring.application.name}}") String originService) {
+        super("product-search-index", productRepository, properties.getSearch().isEnabled(),
+                properties.getSearch().getLoadBatchSize(), originService);
+    }
+
+    /**
+     * Ranked ids of the products matching every term of the keyword, or empty while the index is not
+     * built yet (or disabled) and the caller should search the database instead.
+     */
+    public Optional<ProductSearchIndex.SearchHits> search(String keyword, int limit) {
+        ProductSearchIndex current = current();
+        return current == null ? Optional.empty() : Optional.of(current.search(keyword, limit));
+    }
+
+    /**
+     * Ids of all products matching every term of the keyword, unranked, or empty while the index is
+     * not built yet (or disabled).
+     */
+    public Optional<long[]> matchingIds(String keyword) {
+        ProductSearchIndex current = current();
+        return current == null ? Optional.empty() : Optional.of(current.matchingIds(keyword));
+    }
+
+    @Override
+    protected ProductSearchIndex newIndex() {
+        return new ProductSearchIndex();
+    }
+
+    @Override
+    protected void put(ProductSearchIndex index, Product product) {
+        index.put(product.getId(), product.getName(), product.getCategory(), product.getDescription());
+    }
+
+    @Override
+    protected void remove(ProductSearchIndex index, long productId) {
+        index.remove(productId);
+    }
+
+    @Override
+    protected int size(ProductSearchIndex index) {
+        return index.size();
+    }
+}
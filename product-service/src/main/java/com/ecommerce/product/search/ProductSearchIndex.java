@@ -0,0 +1,380 @@
+package com.ecommerce.product.search;
+
+import com.ecommerce.product.index.LongIntMap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+
+/**
+ * Inverted index over product name, category and description, ranked with BM25.
+ * <p>
+ * Each product is one document whose term frequencies are weighted by field (name 3, category 2,
+ * description 1), a simple form of BM25F. Documents get ordinals in the order they are added, so every
+ * posting list stays sorted without re-sorting. Replacing or removing a product only marks its old
+ * ordinal deleted; once deleted ordinals make up a quarter of the index, the posting lists are
+ * compacted in one pass.
+ * <p>
+ * A search matches the products that contain every term of the query. Safe for concurrent use:
+ * searches share a read lock, changes take the write lock.
+ */
+public final class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final LongIntMap ordinals = new LongIntMap();
+    private final BitSet deleted = new BitSet();
+    private long[] productIds = new long[1024];
+    private int[] lengths = new int[1024];
+    // Ordinals handed out so far, live or deleted
+    private int ordinalCount;
+    private int liveCount;
+    private long liveLength;
+
+    /**
+     * Adds the product, or replaces what was indexed for it.
+     */
+    public void put(long productId, String name, String category, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = count(frequencies, name, NAME_WEIGHT)
+                + count(frequencies, category, CATEGORY_WEIGHT)
+                + count(frequencies, description, DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            int ordinal = ordinalCount++;
+            if (ordinal == productIds.length) {
+                productIds = Arrays.copyOf(productIds, ordinal * 2);
+                lengths = Arrays.copyOf(lengths, ordinal * 2);
+            }
+            productIds[ordinal] = productId;
+            lengths[ordinal] = length;
+            ordinals.put(productId, ordinal);
+            liveCount++;
+            liveLength += length;
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new Postings()).add(ordinal, frequency));
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Products containing every term of the query, best match first; ties keep indexing order.
+     *
+     * @param limit how many of the ranked ids to return; the total counts all matches
+     */
+    public SearchHits search(String query, int limit) {
+        List<String> terms = List.copyOf(new LinkedHashSet<>(TextAnalyzer.terms(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return SearchHits.NONE;
+        }
+        lock.readLock().lock();
+        try {
+            Postings[] lists = postingsOf(terms);
+            if (lists == null) {
+                return SearchHits.NONE;
+            }
+            float[] idf = new float[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = (float) Math.log(1 + (liveCount - lists[i].size + 0.5) / (lists[i].size + 0.5));
+            }
+            float averageLength = liveCount == 0 ? 1 : (float) liveLength / liveCount;
+
+            TopHits top = new TopHits(limit);
+            intersect(lists, (ordinal, at) -> {
+                float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                float score = 0;
+                for (int i = 0; i < lists.length; i++) {
+                    score += idf[i] * bm25(lists[i].frequencies[at[i]], norm);
+                }
+                top.offer(score, ordinal);
+            });
+            int[] ranked = top.ordinals();
+            long[] ids = new long[ranked.length];
+            for (int i = 0; i < ranked.length; i++) {
+                ids[i] = productIds[ranked[i]];
+            }
+            return new SearchHits(top.total(), ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of all products containing every term of the query, unranked.
+     */
+    public long[] matchingIds(String query) {
+        List<String> terms = List.copyOf(new LinkedHashSet<>(TextAnalyzer.terms(query)));
+        if (terms.isEmpty()) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            Postings[] lists = postingsOf(terms);
+            if (lists == null) {
+                return new long[0];
+            }
+            LongStream.Builder ids = LongStream.builder();
+            intersect(lists, (ordinal, at) -> ids.add(productIds[ordinal]));
+            return ids.build().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Shortest first, so the intersection walks the rarest term and looks the others up; null if a term is unknown
+    private Postings[] postingsOf(List<String> terms) {
+        Postings[] lists = new Postings[terms.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(terms.get(i));
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        return lists;
+    }
+
+    // Visits every live ordinal that is in all the lists, with its position in each
+    private void intersect(Postings[] lists, Match match) {
+        int[] at = new int[lists.length];
+        Postings first = lists[0];
+        candidates:
+        for (int p = 0; p < first.size; p++) {
+            int ordinal = first.docs[p];
+            if (deleted.get(ordinal)) {
+                continue;
+            }
+            at[0] = p;
+            for (int i = 1; i < lists.length; i++) {
+                at[i] = lists[i].advance(at[i], ordinal);
+                if (at[i] == lists[i].size) {
+                    break candidates;
+                }
+                if (lists[i].docs[at[i]] != ordinal) {
+                    continue candidates;
+                }
+            }
+            match.found(ordinal, at);
+        }
+    }
+
+    private static float bm25(int frequency, float norm) {
+        return frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private static int count(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> terms = TextAnalyzer.terms(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    private void removeLocked(long productId) {
+        int ordinal = ordinals.remove(productId);
+        if (ordinal >= 0) {
+            deleted.set(ordinal);
+            liveCount--;
+            liveLength -= lengths[ordinal];
+        }
+    }
+
+    private void compactIfSparse() {
+        int deletedCount = ordinalCount - liveCount;
+        if (deletedCount > 1_000 && deletedCount > ordinalCount / 4) {
+            compact();
+        }
+    }
+
+    // Drops deleted ordinals from every posting list and renumbers the rest, keeping their order
+    private void compact() {
+        int[] remap = new int[ordinalCount];
+        int next = 0;
+        for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+            if (deleted.get(ordinal)) {
+                remap[ordinal] = -1;
+            } else {
+                remap[ordinal] = next;
+                productIds[next] = productIds[ordinal];
+                lengths[next] = lengths[ordinal];
+                ordinals.put(productIds[next], next);
+                next++;
+            }
+        }
+        postings.values().removeIf(list -> list.retain(remap) == 0);
+        ordinalCount = next;
+        deleted.clear();
+    }
+
+    /**
+     * @param total matching products
+     * @param ids   the best {@code limit} of them, best first
+     */
+    public record SearchHits(int total, long[] ids) {
+
+        static final SearchHits NONE = new SearchHits(0, new long[0]);
+    }
+
+    private interface Match {
+
+        void found(int ordinal, int[] at);
+    }
+
+    private static final class Postings {
+
+        int[] docs = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        // First position at or after from whose doc is >= target; galloping, then binary search
+        int advance(int from, int target) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && docs[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(docs, low, Math.min(high + 1, size), target);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        int retain(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    // Keeps the best hits in a min-heap of (score, ordinal) packed into longs, counting all of them
+    private static final class TopHits {
+
+        private final int limit;
+        private long[] heap = new long[16];
+        private int size;
+        private int total;
+
+        TopHits(int limit) {
+            this.limit = limit;
+        }
+
+        void offer(float score, int ordinal) {
+            total++;
+            // Scores are positive, so their float bits order like the scores; lower ordinals win ties
+            long key = (long) Float.floatToIntBits(score) << 32 | (Integer.MAX_VALUE - ordinal);
+            if (size < limit) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, size * 2);
+                }
+                heap[size] = key;
+                siftUp(size++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+        }
+
+        int total() {
+            return total;
+        }
+
+        int[] ordinals() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = Integer.MAX_VALUE - (int) keys[size - 1 - i];
+            }
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= heap[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
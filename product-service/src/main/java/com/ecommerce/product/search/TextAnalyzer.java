@@ -0,0 +1,74 @@
+package com.ecommerce.product.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns product text and search keywords into index terms: runs of letters and digits, lowercased,
+ * with common English inflections stripped ("phones", "phone's" and "phone" are one term, so are
+ * "running" and "run"). Documents and queries go through the same steps, so a crude stem is fine
+ * as long as it is consistent.
+ */
+public final class TextAnalyzer {
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (c == '\'' && !token.isEmpty()) {
+                // Possessives: "phone's" ends the token at the apostrophe
+                terms.add(stem(token.toString()));
+                token.setLength(0);
+                while (i + 1 < text.length() && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                    i++;
+                }
+            } else if (!token.isEmpty()) {
+                terms.add(stem(token.toString()));
+                token.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String term) {
+        int length = term.length();
+        if (length <= 3 || Character.isDigit(term.charAt(length - 1))) {
+            return term;
+        }
+        if (term.endsWith("ies") && length > 4) {
+            return term.substring(0, length - 3) + "y";
+        }
+        if (term.endsWith("sses") || term.endsWith("xes") || term.endsWith("ches") || term.endsWith("shes")) {
+            return term.substring(0, length - 2);
+        }
+        if (term.endsWith("s") && !term.endsWith("ss") && !term.endsWith("us") && !term.endsWith("is")) {
+            return term.substring(0, length - 1);
+        }
+        if (term.endsWith("ing") && length > 5) {
+            return undouble(term.substring(0, length - 3));
+        }
+        if (term.endsWith("ed") && length > 5) {
+            return undouble(term.substring(0, length - 2));
+        }
+        return term;
+    }
+
+    // "running" -> "runn" -> "run"
+    private static String undouble(String stem) {
+        int length = stem.length();
+        char last = stem.charAt(length - 1);
+        if (length > 2 && last == stem.charAt(length - 2) && "lsz".indexOf(last) < 0) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+}
@@ -1,31 +1,72 @@
 package com.ecommerce.product.service;
 
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent.ChangeType;
+import com.ecommerce.product.catalog.CatalogColumns.Facets;
+import com.ecommerce.product.catalog.CatalogColumns.Filter;
+import com.ecommerce.product.catalog.ProductCatalog;
 import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.event.ProductChangePublisher;
 import com.ecommerce.product.exception.DatabaseOperationException;
 import com.ecommerce.product.exception.EntityNotFoundException;
+import com.ecommerce.product.pagination.CursorPage;
+import com.ecommerce.product.pagination.ProductCursor;
+import com.ecommerce.product.pagination.ProductSort;
 import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.search.ProductSearch;
+import com.ecommerce.product.search.ProductSearchIndex.SearchHits;
 import com.ecommerce.product.specification.ProductSpecification;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ProductService {
 
+    // Ids per query when other filters are checked against keyword matches
+    private static final int ID_CHUNK = 1_000;
+    // Beyond this many chunks, one query for everything the filters accept is cheaper
+    private static final int MAX_ID_CHUNKS = 10;
+
     private final ProductRepository productRepository;
+    private final ProductChangePublisher productChangePublisher;
+    private final ProductSearch productSearch;
+    private final ProductCatalog productCatalog;
 
+    /**
+     * A keyword is looked up in the search index once it is built, and results are then ranked by
+     * relevance. Without one, the in-memory catalog picks the page once it is loaded, in id order.
+     * Until then everything is filtered in the database. Only the products of the page are read.
+     */
     @Transactional(readOnly = true)
     public Page<Product> filterProducts(
             String name, String category, BigDecimal minPrice, BigDecimal maxPrice, String keyword, Pageable pageable) {
         try {
+            Optional<Page<Product>> found = filterInMemory(name, category, minPrice, maxPrice, keyword, pageable);
+            if (found.isPresent()) {
+                return found.get();
+            }
             return productRepository.findAll(
                     ProductSpecification.filter(name, category, minPrice, maxPrice, keyword),
                     pageable
@@ -36,14 +77,172 @@ public class ProductService {
         }
     }
 
+    /**
+     * Like {@link #filterProducts(String, String, BigDecimal, BigDecimal, String, Pageable)}, but without
+     * {@code withTotal} the filtered result is not counted: the page is read with one row more to tell
+     * whether another one follows. Pages answered from memory are counted anyway, for free.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Product> filterProducts(
+            String name, String category, BigDecimal minPrice, BigDecimal maxPrice, String keyword, Pageable pageable,
+            boolean withTotal) {
+        if (withTotal) {
+            return filterProducts(name, category, minPrice, maxPrice, keyword, pageable);
+        }
+        try {
+            Optional<Page<Product>> found = filterInMemory(name, category, minPrice, maxPrice, keyword, pageable);
+            if (found.isPresent()) {
+                return found.get();
+            }
+            return productRepository.findBy(
+                    ProductSpecification.filter(name, category, minPrice, maxPrice, keyword),
+                    query -> query.slice(pageable)
+            );
+        } catch (DataAccessException ex) {
+            log.error("Error filtering products", ex);
+            throw new DatabaseOperationException("Failed to fetch products", ex);
+        }
+    }
+
+    /**
+     * The {@code size} products that follow {@code after} in {@code sort} order, or the first ones when
+     * {@code after} is null. One query for {@code size + 1} rows along the sort index, however deep the
+     * client has scrolled: no offset to skip and nothing to count.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Product> scrollProducts(
+            String name, String category, BigDecimal minPrice, BigDecimal maxPrice, ProductSort sort, ProductCursor after,
+            int size) {
+        Specification<Product> spec = ProductSpecification.filter(name, category, minPrice, maxPrice, null);
+        if (after != null) {
+            spec = spec.and(ProductSpecification.after(after));
+        }
+        try {
+            List<Product> products = productRepository.findBy(spec, query -> query.sortBy(sort.toSort()).limit(size + 1).all());
+            if (products.size() <= size) {
+                return new CursorPage<>(products, null);
+            }
+            List<Product> items = List.copyOf(products.subList(0, size));
+            return new CursorPage<>(items, ProductCursor.after(sort, items.getLast()).encode());
+        } catch (DataAccessException ex) {
+            log.error("Error scrolling products", ex);
+            throw new DatabaseOperationException("Failed to fetch products", ex);
+        }
+    }
+
+    /**
+     * Category and price-bucket counts for the products the same filters would list (see
+     * {@link com.ecommerce.product.catalog.CatalogColumns#facets}), or empty while the catalog is loading.
+     * Name filters, and keyword ones until the search index is built, are substring matches the
+     * catalog cannot answer; the database lists the matching ids for those.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Facets> facetProducts(
+            String name, String category, BigDecimal minPrice, BigDecimal maxPrice, String keyword,
+            List<BigDecimal> priceBuckets) {
+        if (!productCatalog.isReady()) {
+            return Optional.empty();
+        }
+        boolean hasName = name != null && !name.trim().isEmpty();
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        Optional<long[]> keywordIds = hasKeyword ? productSearch.matchingIds(keyword) : Optional.empty();
+        try {
+            List<long[]> restrictions = new ArrayList<>();
+            keywordIds.ifPresent(restrictions::add);
+            if (hasName || (hasKeyword && keywordIds.isEmpty())) {
+                String databaseKeyword = keywordIds.isEmpty() ? keyword : null;
+                restrictions.add(productRepository.findIds(ProductSpecification.filter(name, null, null, null, databaseKeyword))
+                        .stream().mapToLong(Long::longValue).toArray());
+            }
+            String categoryFilter = category == null || category.trim().isEmpty() ? null : category;
+            return productCatalog.facets(restrictions, categoryFilter, minPrice, maxPrice, priceBuckets);
+        } catch (DataAccessException ex) {
+            log.error("Error counting product facets", ex);
+            throw new DatabaseOperationException("Failed to fetch products", ex);
+        }
+    }
+
+    // Empty while the index or catalog it needs is not loaded, and for sorted pages
+    private Optional<Page<Product>> filterInMemory(
+            String name, String category, BigDecimal minPrice, BigDecimal maxPrice, String keyword, Pageable pageable) {
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            return searchProducts(name, category, minPrice, maxPrice, keyword, pageable);
+        }
+        if (pageable.getSort().isSorted()) {
+            return Optional.empty();
+        }
+        return productCatalog.list(new Filter(name, category, minPrice, maxPrice), pageable.getOffset(), pageable.getPageSize())
+                .map(listing -> new PageImpl<>(load(listing.ids()), pageable, listing.total()));
+    }
+
+    // Empty while the index is not built
+    private Optional<Page<Product>> searchProducts(
+            String name, String category, BigDecimal minPrice, BigDecimal maxPrice, String keyword, Pageable pageable) {
+        long end = pageable.getOffset() + pageable.getPageSize();
+        boolean filtered = ProductSpecification.hasFilters(name, category, minPrice, maxPrice);
+        // Other filters may reject any of the matches, so those need all of them
+        Optional<SearchHits> hits = productSearch.search(keyword, filtered ? Integer.MAX_VALUE : (int) Math.min(end, Integer.MAX_VALUE));
+        if (hits.isEmpty()) {
+            return Optional.empty();
+        }
+        long[] ranked = hits.get().ids();
+        long total = hits.get().total();
+        if (filtered) {
+            long[] matches = ranked;
+            ranked = productCatalog.retain(matches, new Filter(name, category, minPrice, maxPrice))
+                    .orElseGet(() -> retainMatching(matches, ProductSpecification.filter(name, category, minPrice, maxPrice, null)));
+            total = ranked.length;
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), ranked.length);
+        int to = (int) Math.min(end, ranked.length);
+        return Optional.of(new PageImpl<>(load(Arrays.copyOfRange(ranked, from, to)), pageable, total));
+    }
+
+    // The products in the order of their ids; ones deleted meanwhile are left out
+    private List<Product> load(long[] ids) {
+        List<Long> pageIds = Arrays.stream(ids).boxed().toList();
+        Map<Long, Product> loaded = productRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return pageIds.stream().map(loaded::get).filter(Objects::nonNull).toList();
+    }
+
+    // The ids the filters accept, in their original order; checked in chunks to keep IN lists short
+    private long[] retainMatching(long[] ids, Specification<Product> filters) {
+        if (ids.length > ID_CHUNK * MAX_ID_CHUNKS) {
+            Set<Long> accepted = new HashSet<>(productRepository.findIds(filters));
+            return Arrays.stream(ids).filter(accepted::contains).toArray();
+        }
+        Set<Long> accepted = new HashSet<>();
+        for (int from = 0; from < ids.length; from += ID_CHUNK) {
+            List<Long> chunk = Arrays.stream(ids, from, Math.min(from + ID_CHUNK, ids.length)).boxed().toList();
+            accepted.addAll(productRepository.findIds(filters.and(ProductSpecification.idIn(chunk))));
+        }
+        return Arrays.stream(ids).filter(accepted::contains).toArray();
+    }
+
     public Product fetchProductById(Long productId) {
         return productRepository.findById(productId).
                 orElseThrow(() -> new EntityNotFoundException("Product", productId));
     }
 
+    @Transactional(readOnly = true)
+    public List<Product> fetchProductsByIds(Collection<Long> productIds) {
+        try {
+            return productRepository.findAllById(productIds);
+        } catch (DataAccessException ex) {
+            log.error("Error fetching products {}", productIds, ex);
+            throw new DatabaseOperationException("Failed to fetch products", ex);
+        }
+    }
+
     public Product createProduct(Product product) {
         try {
-            return productRepository.save(product);
+            Product saved = productRepository.save(product);
+            productSearch.onSaved(saved);
+            productCatalog.onSaved(saved);
+            productChangePublisher.publish(saved.getId(), ChangeType.CREATED);
+            return saved;
         } catch (DataAccessException exception) {
             log.error("Error saving product", exception);
             throw new DatabaseOperationException("Failed to create product", exception);
@@ -59,7 +258,11 @@ public class ProductService {
         existingProduct.setStockQuantity(updatedProduct.getStockQuantity());
 
         try {
-            return productRepository.save(existingProduct);
+            Product saved = productRepository.save(existingProduct);
+            productSearch.onSaved(saved);
+            productCatalog.onSaved(saved);
+            productChangePublisher.publish(productId, ChangeType.UPDATED);
+            return saved;
         } catch (DataAccessException exception) {
             log.error("Error updating product {}", productId, exception);
             throw new DatabaseOperationException("Failed to create product", exception);
@@ -70,6 +273,9 @@ public class ProductService {
         fetchProductById(productId);
         try {
             productRepository.deleteById(productId);
+            productSearch.onDeleted(productId);
+            productCatalog.onDeleted(productId);
+            productChangePublisher.publish(productId, ChangeType.DELETED);
             return "Product deleted successfully (ID: " + productId + ")";
         } catch (DataAccessException exception) {
             log.error("Error deleting product {}", productId, exception);
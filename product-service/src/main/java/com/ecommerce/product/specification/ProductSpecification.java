@@ -1,9 +1,13 @@
 package com.ecommerce.product.specification;
 
 import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.pagination.ProductCursor;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 
 public class ProductSpecification {
 
@@ -48,4 +52,45 @@ public class ProductSpecification {
 
         return spec;
     }
+
+    public static Specification<Product> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Products after the cursor in its sort order. Written as {@code key >= ? and (key > ? or id > ?)}
+     * (mirrored for descending sorts) so the first term is a plain range on the (key, id) index.
+     * Products without a key, such as a null {@code created_at}, sort below every key as MySQL orders
+     * them: first when ascending, last when descending, by id among themselves.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Product> after(ProductCursor cursor) {
+        boolean ascending = cursor.sort().isAscending();
+        return (root, query, cb) -> {
+            Expression<Long> id = root.get("id");
+            Predicate idAfter = ascending ? cb.gt(id, cursor.id()) : cb.lt(id, cursor.id());
+            if (cursor.sort().attribute() == null) {
+                return idAfter;
+            }
+            Expression<Comparable> key = root.get(cursor.sort().attribute());
+            Comparable value = cursor.key();
+            if (value == null) {
+                return ascending
+                        ? cb.or(cb.isNotNull(key), cb.and(cb.isNull(key), idAfter))
+                        : cb.and(cb.isNull(key), idAfter);
+            }
+            return ascending
+                    ? cb.and(cb.greaterThanOrEqualTo(key, value), cb.or(cb.greaterThan(key, value), idAfter))
+                    : cb.or(cb.and(cb.lessThanOrEqualTo(key, value), cb.or(cb.lessThan(key, value), idAfter)),
+                            cb.isNull(key));
+        };
+    }
+
+    // True if any filter other than the keyword is set
+    public static boolean hasFilters(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        return (name != null && !name.trim().isEmpty())
+                || (category != null && !category.trim().isEmpty())
+                || minPrice != null
+                || maxPrice != null;
+    }
 }
@@ -0,0 +1,60 @@
+package com.ecommerce.product.benchmark;
+
+import com.ecommerce.product.catalog.CatalogColumns;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * Time to compute category and price-bucket counts over a large catalog held in {@link CatalogColumns},
+ * without filters, with category and price filters, and restricted to the matches of a keyword.
+ * Measures the facet pass only; there is no database involved.
+ * <p>
+ * Not part of the test run. Execute {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.product.benchmark.CatalogFacetsBenchmark}.
+ * Tune with {@code -Dbenchmark.products} and {@code -Dbenchmark.rounds}.
+ */
+public class CatalogFacetsBenchmark {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 1_000_000);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 500);
+    private static final List<BigDecimal> BUCKETS = List.of(new BigDecimal("10"), new BigDecimal("25"),
+            new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("250"), new BigDecimal("500"));
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        CatalogColumns columns = new CatalogColumns();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            columns.put(id, "product " + id, BigDecimal.valueOf(100 + random.nextInt(60_000), 2), random.nextInt(500),
+                    "category-" + random.nextInt(40));
+        }
+        // A keyword matching one product in four, and one matching one in a hundred
+        long[] common = LongStream.rangeClosed(1, PRODUCTS).filter(id -> id % 4 == 0).toArray();
+        long[] rare = LongStream.rangeClosed(1, PRODUCTS).filter(id -> id % 100 == 0).toArray();
+
+        report("no filters", () -> columns.facets(List.of(), null, null, null, BUCKETS));
+        report("category and price", () -> columns.facets(List.of(), "category-7", new BigDecimal("20"), new BigDecimal("80"), BUCKETS));
+        report("keyword, 25% match", () -> columns.facets(List.of(common), null, null, null, BUCKETS));
+        report("keyword, 1% match", () -> columns.facets(List.of(rare), "category-7", null, null, BUCKETS));
+    }
+
+    private static void report(String label, Supplier<CatalogColumns.Facets> facets) {
+        for (int i = 0; i < ROUNDS / 5; i++) {
+            facets.get();
+        }
+        long[] nanos = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            facets.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-20s %d products: p50 %.2f ms, p99 %.2f ms%n", label, PRODUCTS,
+                nanos[ROUNDS / 2] / 1e6, nanos[(int) Math.ceil(0.99 * ROUNDS) - 1] / 1e6);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.product.benchmark;
+
+import com.ecommerce.product.ProductServiceApplication;
+import com.ecommerce.product.catalog.ProductCatalog;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Time from launching product-service until listings are answered from the in-memory catalog instead
+ * of the database: once with no snapshot, when the catalog is read from the database, and once
+ * restarted from the snapshot the first run wrote on shutdown. The database is an H2 file; every SQL
+ * statement first waits {@code benchmark.db-latency-ms}, as in {@link ProductListingThroughputBenchmark}.
+ * <p>
+ * Not part of the test run. Execute {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.product.benchmark.CatalogWarmStartBenchmark}.
+ * Tune with {@code -Dbenchmark.products} and {@code -Dbenchmark.db-latency-ms}.
+ */
+public class CatalogWarmStartBenchmark {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 100_000);
+    private static final List<String> CATEGORIES = List.of("books", "games", "garden", "kitchen", "toys");
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("catalog-warm-start");
+        try (ConfigurableApplicationContext app = start(directory, false)) {
+            seed(app.getBean(ProductRepository.class));
+        }
+        for (String run : new String[]{"cold, no snapshot", "warm, from snapshot"}) {
+            long start = System.nanoTime();
+            try (ConfigurableApplicationContext app = start(directory, true)) {
+                long started = System.nanoTime();
+                ProductCatalog catalog = app.getBean(ProductCatalog.class);
+                while (!catalog.isReady()) {
+                    Thread.sleep(1);
+                }
+                long ready = System.nanoTime();
+                System.out.printf("%-20s %d products: context up in %d ms, catalog serving after %d ms%n", run, PRODUCTS,
+                        (started - start) / 1_000_000, (ready - start) / 1_000_000);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Path directory, boolean simulateRoundTrips) {
+        return new SpringApplicationBuilder(ProductServiceApplication.class).run(
+                "--spring.profiles.active=test",
+                "--spring.config.import=",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:file:" + directory.resolve("product_db")
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--product.catalog.snapshot.enabled=true",
+                "--product.catalog.snapshot.path=" + directory.resolve("catalog.snapshot"),
+                simulateRoundTrips
+                        ? "--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                          + ProductListingThroughputBenchmark.SimulatedRoundTrip.class.getName()
+                        : "--product.catalog.enabled=false",
+                "--logging.level.root=WARN");
+    }
+
+    private static void seed(ProductRepository products) {
+        for (int from = 0; from < PRODUCTS; from += 10_000) {
+            products.saveAll(IntStream.range(from, Math.min(from + 10_000, PRODUCTS))
+                    .mapToObj(i -> Product.builder()
+                            .name("Product " + i)
+                            .description("Description of product " + i)
+                            .price(BigDecimal.valueOf(100 + i % 40_000, 2))
+                            .stockQuantity(100)
+                            .category(CATEGORIES.get(i % CATEGORIES.size()))
+                            .imageUrl("https://example.com/" + i + ".png")
+                            .active(true)
+                            .build())
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ecommerce.product.benchmark;
+
+import com.ecommerce.product.ProductServiceApplication;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Requests per second of {@code GET /api/products} (a filtered, paged listing) with Tomcat on its
+ * platform thread pool and on virtual threads. H2 answers in microseconds, so every SQL statement
+ * first waits {@code benchmark.db-latency-ms} to stand in for the round trip to MySQL.
+ * <p>
+ * Not part of the test run. Execute {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.product.benchmark.ProductListingThroughputBenchmark}.
+ * Tune with {@code -Dbenchmark.clients}, {@code -Dbenchmark.db-latency-ms} and {@code -Dbenchmark.seconds}.
+ */
+public class ProductListingThroughputBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 1000);
+    private static final int DB_LATENCY_MS = Integer.getInteger("benchmark.db-latency-ms", 5);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+    private static final List<String> CATEGORIES = List.of("books", "games", "garden", "kitchen", "toys");
+
+    public static void main(String[] args) throws Exception {
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext app = start(virtualThreads)) {
+                seed(app.getBean(ProductRepository.class));
+                int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                run(port, Duration.ofSeconds(5));
+                Result result = run(port, Duration.ofSeconds(SECONDS));
+                System.out.printf("product listing, %s threads, %d clients, %d ms per statement: %s%n",
+                        virtualThreads ? "virtual" : "platform", CLIENTS, DB_LATENCY_MS, result);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads) {
+        // Command-line arguments, so they win over application.yml (which activates prod and its config server)
+        return new SpringApplicationBuilder(ProductServiceApplication.class).run(
+                "--spring.profiles.active=test",
+                "--spring.config.import=",
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SimulatedRoundTrip.class.getName(),
+                "--logging.level.root=WARN");
+    }
+
+    private static void seed(ProductRepository products) {
+        products.saveAll(IntStream.range(0, 2_000)
+                .mapToObj(i -> Product.builder()
+                        .name("Product " + i)
+                        .description("Description of product " + i)
+                        .price(BigDecimal.valueOf(100 + i % 400, 2))
+                        .stockQuantity(100)
+                        .category(CATEGORIES.get(i % CATEGORIES.size()))
+                        .imageUrl("https://example.com/" + i + ".png")
+                        .active(true)
+                        .build())
+                .toList());
+    }
+
+    private static Result run(int port, Duration duration) throws Exception {
+        HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Client>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(executor.submit(() -> {
+                    Client client = new Client();
+                    while (System.nanoTime() < deadline) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        URI uri = URI.create("http://localhost:%d/api/products?page=%d&size=20&category=%s&maxPrice=3"
+                                .formatted(port, random.nextInt(10), CATEGORIES.get(random.nextInt(CATEGORIES.size()))));
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(uri).GET().build(),
+                                HttpResponse.BodyHandlers.discarding());
+                        client.record(System.nanoTime() - start, response.statusCode());
+                    }
+                    return client;
+                }));
+            }
+        }
+        Result result = new Result(duration);
+        for (Future<Client> client : clients) {
+            result.add(client.get());
+        }
+        return result;
+    }
+
+    /**
+     * Delays every statement Hibernate prepares, on the request's own thread, like a network round trip would.
+     */
+    public static class SimulatedRoundTrip implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            LockSupport.parkNanos(Duration.ofMillis(DB_LATENCY_MS).toNanos());
+            return sql;
+        }
+    }
+
+    private static final class Client {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<Integer, Integer> errors = new TreeMap<>();
+
+        void record(long nanos, int status) {
+            if (status != 200) {
+                errors.merge(status, 1, Integer::sum);
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private static final class Result {
+
+        private final Duration duration;
+        private final List<long[]> latencies = new ArrayList<>();
+        private int count;
+        private final Map<Integer, Integer> errors = new TreeMap<>();
+
+        Result(Duration duration) {
+            this.duration = duration;
+        }
+
+        void add(Client client) {
+            latencies.add(Arrays.copyOf(client.latencies, client.count));
+            count += client.count;
+            client.errors.forEach((status, n) -> errors.merge(status, n, Integer::sum));
+        }
+
+        @Override
+        public String toString() {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return "%.0f req/s, p50 %d ms, p99 %d ms, errors by status %s".formatted(
+                    count / (double) duration.toSeconds(), percentile(all, 0.50), percentile(all, 0.99), errors);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(p * sorted.length) - 1] / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.ecommerce.product.benchmark;
+
+import com.ecommerce.product.ProductServiceApplication;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.search.ProductSearch;
+import com.ecommerce.product.service.ProductService;
+import com.ecommerce.product.specification.ProductSpecification;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Keyword search latency over a large catalog: the {@code LIKE '%keyword%'} scan the listing used to
+ * run, against the in-memory search index. Products get names and descriptions drawn from a fixed
+ * vocabulary with a skewed word distribution, so there are common and rare terms to look for.
+ * <p>
+ * Not part of the test run. Execute {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -Xmx4g -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.includeScope=test
+ * -Dmdep.outputFile=/dev/stdout)" com.ecommerce.product.benchmark.ProductSearchBenchmark}.
+ * Tune with {@code -Dbenchmark.products} and {@code -Dbenchmark.rounds}.
+ */
+public class ProductSearchBenchmark {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 1_000_000);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 200);
+    private static final List<String> CATEGORIES = List.of("books", "electronics", "games", "garden", "kitchen", "sports", "toys");
+    private static final List<String> KEYWORDS = List.of("lamp", "wireless speaker", "steel kettle", "vintage", "quartz clock");
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext app = start()) {
+            long start = System.nanoTime();
+            seed(app.getBean(JdbcTemplate.class));
+            System.out.printf("seeded %d products in %d s%n", PRODUCTS, (System.nanoTime() - start) / 1_000_000_000);
+
+            ProductSearch productSearch = app.getBean(ProductSearch.class);
+            long heapBefore = usedHeap();
+            start = System.nanoTime();
+            productSearch.rebuild();
+            System.out.printf("index built in %d ms, about %d MB of heap%n",
+                    (System.nanoTime() - start) / 1_000_000, (usedHeap() - heapBefore) >> 20);
+
+            ProductRepository products = app.getBean(ProductRepository.class);
+            ProductService productService = app.getBean(ProductService.class);
+            PageRequest page = PageRequest.of(0, 20);
+            for (String keyword : KEYWORDS) {
+                long[] like = time(Math.max(1, ROUNDS / 40), () ->
+                        products.findAll(ProductSpecification.filter(null, null, null, null, keyword), page));
+                long[] index = time(ROUNDS, () ->
+                        productService.filterProducts(null, null, null, null, keyword, page));
+                long[] filtered = time(Math.max(1, ROUNDS / 10), () ->
+                        productService.filterProducts(null, "kitchen", null, new BigDecimal("50"), keyword, page));
+                System.out.printf("%-18s LIKE: %s | index: %s | index + category and price: %s | matches %d / %d%n",
+                        '"' + keyword + '"', summary(like), summary(index), summary(filtered),
+                        products.findAll(ProductSpecification.filter(null, null, null, null, keyword), page).getTotalElements(),
+                        productService.filterProducts(null, null, null, null, keyword, page).getTotalElements());
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start() {
+        // The index is rebuilt explicitly once the products are in
+        return new SpringApplicationBuilder(ProductServiceApplication.class).run(
+                "--spring.profiles.active=test",
+                "--spring.config.import=",
+                "--server.port=0",
+                "--logging.level.root=WARN");
+    }
+
+    private static void seed(JdbcTemplate jdbc) {
+        Vocabulary words = new Vocabulary(new Random(42));
+        Random random = new Random(7);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String sql = "insert into product (name, description, price, stock_quantity, category, image_url, active, created_at, updated_at)"
+                + " values (?, ?, ?, ?, ?, ?, true, ?, ?)";
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            String name = words.phrase(random, 3) + " " + i;
+            batch.add(new Object[]{name, words.phrase(random, 16), BigDecimal.valueOf(100 + random.nextInt(20_000), 2),
+                    random.nextInt(500), CATEGORIES.get(random.nextInt(CATEGORIES.size())),
+                    "https://example.com/" + i + ".png", now, now});
+            if (batch.size() == 10_000) {
+                jdbc.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(sql, batch);
+        }
+    }
+
+    private static long[] time(int rounds, Supplier<Page<?>> search) {
+        search.get();
+        long[] nanos = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            search.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static String summary(long[] sorted) {
+        return "p50 %.2f ms, p99 %.2f ms".formatted(
+                sorted[sorted.length / 2] / 1e6, sorted[(int) Math.ceil(0.99 * sorted.length) - 1] / 1e6);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // The benchmark keywords plus made-up filler words; word i is drawn with weight 1 / (i + 1)
+    private static final class Vocabulary {
+
+        private final String[] words;
+        private final double[] cumulative;
+
+        Vocabulary(Random random) {
+            List<String> all = new ArrayList<>(List.of("lamp", "wireless", "speaker", "steel", "kettle", "vintage",
+                    "clock", "leather", "cotton", "ceramic", "bamboo", "portable", "desk", "chair", "quartz"));
+            while (all.size() < 20_000) {
+                StringBuilder word = new StringBuilder();
+                for (int length = 4 + random.nextInt(6); word.length() < length; ) {
+                    word.append((char) ('a' + random.nextInt(26)));
+                }
+                all.add(word.toString());
+            }
+            words = all.toArray(String[]::new);
+            cumulative = new double[words.length];
+            double sum = 0;
+            for (int i = 0; i < words.length; i++) {
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+        }
+
+        String phrase(Random random, int length) {
+            StringBuilder phrase = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                int at = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+                phrase.append(i == 0 ? "" : " ").append(words[at >= 0 ? at : -at - 1]);
+            }
+            return phrase.toString();
+        }
+    }
+}
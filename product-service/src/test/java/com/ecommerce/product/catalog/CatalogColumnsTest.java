@@ -0,0 +1,121 @@
+package com.ecommerce.product.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class CatalogColumnsTest {
+
+    private static final List<BigDecimal> BUCKETS = List.of(new BigDecimal("10"), new BigDecimal("50"));
+
+    private final CatalogColumns columns = new CatalogColumns();
+
+    @Test
+    void eachFacetIgnoresItsOwnFilter() {
+        columns.put(1, "product 1", new BigDecimal("5.00"), 1, "Books");
+        columns.put(2, "product 2", new BigDecimal("10.00"), 1, "books");
+        columns.put(3, "product 3", new BigDecimal("49.99"), 1, "Games");
+        columns.put(4, "product 4", new BigDecimal("80.00"), 1, "Games");
+        columns.put(5, "product 5", new BigDecimal("120.00"), 1, "Garden");
+
+        CatalogColumns.Facets facets = columns.facets(List.of(), "BOOKS ", null, new BigDecimal("50"), BUCKETS);
+
+        // Category counts only apply the price filter, buckets only the category filter
+        assertThat(facets.categories()).containsExactly(entry("Books", 2L), entry("Games", 1L));
+        assertThat(facets.priceBuckets()).containsExactly(1, 1, 0);
+    }
+
+    @Test
+    void restrictionsAreIntersected() {
+        for (long id = 1; id <= 6; id++) {
+            columns.put(id, "product " + id, BigDecimal.valueOf(id * 10), 1, id % 2 == 0 ? "even" : "odd");
+        }
+
+        CatalogColumns.Facets facets = columns.facets(List.of(new long[]{1, 2, 3, 4, 99}, new long[]{2, 3, 4, 5}),
+                null, null, null, BUCKETS);
+
+        assertThat(facets.categories()).containsExactly(entry("even", 2L), entry("odd", 1L));
+        assertThat(facets.priceBuckets()).containsExactly(0, 3, 0);
+    }
+
+    @Test
+    void updatesAndRemovalsKeepTheRowsConsistent() {
+        columns.put(1, "product 1", new BigDecimal("5"), 1, "books");
+        columns.put(2, "product 2", new BigDecimal("20"), 1, "games");
+        columns.put(3, "product 3", new BigDecimal("60"), 1, "garden");
+
+        columns.put(1, "product 1", new BigDecimal("70"), 1, "garden");
+        columns.remove(2);
+        columns.remove(42);
+
+        CatalogColumns.Facets facets = columns.facets(List.of(new long[]{3}), null, null, null, BUCKETS);
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(facets.categories()).containsExactly(entry("garden", 1L));
+        assertThat(columns.facets(List.of(), null, null, null, BUCKETS).priceBuckets()).containsExactly(0, 0, 2);
+    }
+
+    @Test
+    void priceBoundsKeepTheirMeaningInCents() {
+        columns.put(1, "product 1", new BigDecimal("9.99"), 1, "books");
+        columns.put(2, "product 2", new BigDecimal("10.00"), 1, "books");
+        columns.put(3, "product 3", new BigDecimal("10.01"), 1, "books");
+
+        CatalogColumns.Facets facets = columns.facets(List.of(), "unknown", new BigDecimal("9.995"), new BigDecimal("10.005"),
+                List.of(new BigDecimal("10.005")));
+
+        assertThat(facets.categories()).containsExactly(entry("books", 1L));
+        assertThat(facets.priceBuckets()).containsExactly(0, 0);
+    }
+
+    @Test
+    void listPagesTheMatchesInIdOrder() {
+        for (long id = 1; id <= 10; id++) {
+            columns.put(id, id % 2 == 0 ? "Steel Kettle " + id : "Desk Lamp " + id, BigDecimal.valueOf(id), 1, "kitchen");
+        }
+
+        CatalogColumns.Listing listing = columns.list(new CatalogColumns.Filter(" KETTLE", "Kitchen ", null, new BigDecimal("9")), 1, 2);
+
+        assertThat(listing.total()).isEqualTo(4);
+        assertThat(listing.ids()).containsExactly(4, 6);
+        assertThat(columns.list(new CatalogColumns.Filter("", "", null, null), 8, 5).ids()).containsExactly(9, 10);
+        assertThat(columns.list(new CatalogColumns.Filter(null, "garden", null, null), 0, 5).total()).isZero();
+    }
+
+    @Test
+    void lateProductsAreInsertedInIdOrder() {
+        columns.put(5, "lamp", BigDecimal.ONE, 1, "books");
+        columns.put(9, "lamp", BigDecimal.ONE, 1, "books");
+        columns.put(2, "lamp", BigDecimal.ONE, 1, "books");
+        columns.remove(9);
+        columns.put(7, "lamp", BigDecimal.ONE, 1, "books");
+        columns.put(9, "lamp", BigDecimal.TEN, 1, "books");
+
+        CatalogColumns.Filter all = new CatalogColumns.Filter(null, null, null, null);
+        assertThat(columns.list(all, 0, 10).ids()).containsExactly(2, 5, 7, 9);
+        assertThat(columns.retain(new long[]{9, 3, 7, 2}, new CatalogColumns.Filter(null, null, BigDecimal.ONE, BigDecimal.ONE)))
+                .containsExactly(7, 2);
+    }
+
+    @Test
+    void compactionKeepsTheLiveRowsAndTheirNames() {
+        for (long id = 1; id <= 4_000; id++) {
+            columns.put(id, "lamp " + (id % 3), BigDecimal.ONE, 1, "books");
+        }
+        long heapBefore = columns.heapBytes();
+        for (long id = 1; id <= 4_000; id++) {
+            if (id % 2 == 0) {
+                columns.remove(id);
+            }
+        }
+
+        CatalogColumns.Listing listing = columns.list(new CatalogColumns.Filter("lamp 0", null, null, null), 0, 3);
+        assertThat(columns.size()).isEqualTo(2_000);
+        assertThat(listing.total()).isEqualTo(667);
+        assertThat(listing.ids()).containsExactly(3, 9, 15);
+        assertThat(columns.heapBytes()).isPositive().isLessThanOrEqualTo(heapBefore);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecommerce.product.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class CatalogSnapshotTest {
+
+    private static final List<BigDecimal> BUCKETS = List.of(new BigDecimal("10"), new BigDecimal("50"));
+
+    @TempDir
+    private Path directory;
+
+    private final CatalogColumns columns = new CatalogColumns();
+
+    @Test
+    void readBackColumnsAnswerLikeTheWrittenOnes() throws IOException {
+        columns.put(1, "Desk Lamp", new BigDecimal("15.00"), 3, "Lighting");
+        columns.put(2, "Floor lamp", new BigDecimal("45.50"), 0, "lighting");
+        columns.put(3, "Kaffeemühle", new BigDecimal("80.00"), 7, "Küche");
+        columns.put(4, "Desk", new BigDecimal("120.00"), 1, "office");
+        columns.remove(2);
+        LocalDateTime takenAt = LocalDateTime.of(2026, 10, 18, 12, 30, 15, 250_000_000);
+        Path path = directory.resolve("catalog.snapshot");
+
+        CatalogSnapshot.write(columns, takenAt, path);
+        CatalogSnapshot.Loaded loaded = CatalogSnapshot.read(path);
+
+        assertThat(loaded.takenAt()).isEqualTo(takenAt);
+        assertThat(loaded.ids()).containsExactly(1, 3, 4);
+        CatalogColumns restored = loaded.columns();
+        CatalogColumns.Filter all = new CatalogColumns.Filter(null, null, null, null);
+        assertThat(restored.list(all, 0, 10).ids()).containsExactly(1, 3, 4);
+        assertThat(restored.list(new CatalogColumns.Filter("MÜHLE", "KÜCHE", null, null), 0, 10).ids()).containsExactly(3);
+        assertThat(restored.facets(List.of(), null, null, null, BUCKETS).categories())
+                .containsExactly(entry("Küche", 1L), entry("Lighting", 1L), entry("office", 1L));
+        assertThat(restored.facets(List.of(), null, null, null, BUCKETS).priceBuckets())
+                .containsExactly(columns.facets(List.of(), null, null, null, BUCKETS).priceBuckets());
+
+        // Still writable: categories and names known to the snapshot are reused
+        restored.put(2, "Floor lamp", new BigDecimal("45.50"), 0, "LIGHTING");
+        assertThat(restored.list(new CatalogColumns.Filter("lamp", "lighting", null, null), 0, 10).ids()).containsExactly(1, 2);
+    }
+
+    @Test
+    void aNewSnapshotReplacesTheOldOneWithoutLeavingFilesBehind() throws IOException {
+        Path path = directory.resolve("catalog.snapshot");
+        columns.put(1, "lamp", BigDecimal.ONE, 1, "books");
+        CatalogSnapshot.write(columns, LocalDateTime.now(), path);
+        columns.put(2, "desk", BigDecimal.TEN, 1, "books");
+
+        CatalogSnapshot.write(columns, LocalDateTime.now(), path);
+
+        assertThat(CatalogSnapshot.read(path).ids()).containsExactly(1, 2);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    @Test
+    void damagedOrTruncatedSnapshotsAreRejected() throws IOException {
+        for (long id = 1; id <= 100; id++) {
+            columns.put(id, "product " + id, BigDecimal.valueOf(id), 1, "books");
+        }
+        Path path = directory.resolve("catalog.snapshot");
+        long length = CatalogSnapshot.write(columns, LocalDateTime.now(), path);
+
+        Path flipped = Files.copy(path, directory.resolve("flipped.snapshot"));
+        try (FileChannel channel = FileChannel.open(flipped, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            map.put((int) length / 2, (byte) (map.get((int) length / 2) ^ 1));
+        }
+        Path truncated = Files.copy(path, directory.resolve("truncated.snapshot"));
+        try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+            channel.truncate(length - 100);
+        }
+
+        assertThatThrownBy(() -> CatalogSnapshot.read(flipped)).isInstanceOf(IOException.class).hasMessageContaining("Checksum");
+        assertThatThrownBy(() -> CatalogSnapshot.read(truncated)).isInstanceOf(IOException.class);
+        assertThat(CatalogSnapshot.read(path).ids()).hasSize(100);
+    }
+}
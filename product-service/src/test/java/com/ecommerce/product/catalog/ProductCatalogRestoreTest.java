@@ -0,0 +1,89 @@
+package com.ecommerce.product.catalog;
+
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "product.catalog.snapshot.enabled=true",
+        "product.catalog.snapshot.interval=1h"
+})
+@ActiveProfiles("test")
+class ProductCatalogRestoreTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @DynamicPropertySource
+    static void snapshotPath(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("product-catalog");
+        registry.add("product.catalog.snapshot.path", () -> directory.resolve("catalog.snapshot").toString());
+    }
+
+    @Test
+    void restoredCatalogCatchesUpWithChangesSinceTheSnapshot() throws Exception {
+        awaitReady();
+        productRepository.findAll().forEach(product -> productService.deleteProductById(product.getId()));
+        Product kept = productService.createProduct(product("Desk lamp", "lighting", "15.00"));
+        Product changed = productService.createProduct(product("Floor lamp", "lighting", "45.00"));
+        Product deleted = productService.createProduct(product("Desk", "office", "120.00"));
+        assertThat(productCatalog.writeSnapshot()).isTrue();
+
+        // Behind the catalog's back, as if made while the service was down
+        changed.setName("Floor light");
+        productRepository.save(changed);
+        productRepository.deleteById(deleted.getId());
+        Product created = productRepository.save(product("Wall lamp", "lighting", "25.00"));
+
+        productCatalog.startBuilding();
+        long[] expected = {kept.getId(), changed.getId(), created.getId()};
+        CatalogColumns.Filter all = new CatalogColumns.Filter(null, null, null, null);
+        for (int i = 0; i < 100 && !Arrays.equals(productCatalog.list(all, 0, 10).orElseThrow().ids(), expected); i++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(productCatalog.list(all, 0, 10).orElseThrow().ids()).containsExactly(expected);
+        assertThat(productCatalog.list(new CatalogColumns.Filter("lamp", null, null, null), 0, 10).orElseThrow().ids())
+                .containsExactly(kept.getId(), created.getId());
+    }
+
+    private void awaitReady() throws InterruptedException {
+        for (int i = 0; i < 100 && !productCatalog.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(productCatalog.isReady()).isTrue();
+    }
+
+    private static Product product(String name, String category, String price) {
+        return Product.builder()
+                .name(name)
+                .description(name)
+                .price(new BigDecimal(price))
+                .stockQuantity(5)
+                .category(category)
+                .imageUrl("https://example.com/p.png")
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.product.controller;
+
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.product.catalog.ProductCatalog;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.search.ProductSearch;
+import com.ecommerce.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "product.catalog.price-buckets=20,50"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductFacetsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearch productSearch;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        // Both are built in the background after startup
+        for (int i = 0; i < 100 && !(productSearch.isReady() && productCatalog.isReady()); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(productCatalog.isReady()).isTrue();
+        productRepository.findAll().forEach(product -> productService.deleteProductById(product.getId()));
+
+        productService.createProduct(product("Desk lamp", "lighting", "15.00"));
+        productService.createProduct(product("Floor lamp", "lighting", "45.00"));
+        productService.createProduct(product("Lamp oil", "garden", "8.00"));
+        productService.createProduct(product("Desk", "office", "120.00"));
+    }
+
+    @Test
+    void facetsComeWithThePage() throws Exception {
+        mockMvc.perform(get("/api/products").param("facets", "true").param("keyword", "lamp")
+                        .param("category", "lighting").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.content.length()").value(1))
+                .andExpect(jsonPath("$.products.totalElements").value(2))
+                .andExpect(jsonPath("$.facets.categories.lighting").value(2))
+                .andExpect(jsonPath("$.facets.categories.garden").value(1))
+                .andExpect(jsonPath("$.facets.categories.office").doesNotExist())
+                .andExpect(jsonPath("$.facets.prices.length()").value(3))
+                .andExpect(jsonPath("$.facets.prices[0].count").value(1))
+                .andExpect(jsonPath("$.facets.prices[1].from").value(20))
+                .andExpect(jsonPath("$.facets.prices[1].count").value(1))
+                .andExpect(jsonPath("$.facets.prices[2].to").doesNotExist());
+
+        mockMvc.perform(get("/api/products").param("keyword", "lamp"))
+                .andExpect(jsonPath("$.facets").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(3));
+    }
+
+    @Test
+    void nameFiltersAndRequestedBucketsApply() throws Exception {
+        mockMvc.perform(get("/api/products").param("facets", "true").param("name", "desk")
+                        .param("priceBuckets", "100"))
+                .andExpect(jsonPath("$.facets.categories.lighting").value(1))
+                .andExpect(jsonPath("$.facets.categories.office").value(1))
+                .andExpect(jsonPath("$.facets.prices[0].count").value(1))
+                .andExpect(jsonPath("$.facets.prices[1].count").value(1));
+
+        mockMvc.perform(get("/api/products").param("facets", "true").param("priceBuckets", "50,20"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void writesAndRemoteChangesAreCounted() throws Exception {
+        Product desk = productRepository.findAll().stream().filter(p -> p.getName().equals("Desk")).findFirst().orElseThrow();
+        desk.setPrice(new BigDecimal("10.00"));
+        productService.updateProduct(desk, desk.getId());
+        // Saved by another instance: only its event reaches this one
+        Product chair = productRepository.save(product("Desk chair", "office", "60.00"));
+        eventPublisher.publishEvent(new ProductChangedEvent(this, "product-service:8082:other", chair.getId(),
+                ProductChangedEvent.ChangeType.CREATED));
+
+        mockMvc.perform(get("/api/products").param("facets", "true").param("category", "office"))
+                .andExpect(jsonPath("$.facets.categories.office").value(2))
+                .andExpect(jsonPath("$.facets.prices[0].count").value(1))
+                .andExpect(jsonPath("$.facets.prices[2].count").value(1));
+    }
+
+    private static Product product(String name, String category, String price) {
+        return Product.builder()
+                .name(name)
+                .description(name)
+                .price(new BigDecimal(price))
+                .stockQuantity(5)
+                .category(category)
+                .imageUrl("https://example.com/p.png")
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecommerce.product.controller;
+
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.config.import=",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Listings from the database, whose statements are counted here
+        "product.catalog.listings=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductScrollTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        // Only four distinct prices, so most of the order between equal prices comes from the id
+        products = productRepository.saveAll(IntStream.range(0, 23)
+                .mapToObj(i -> Product.builder()
+                        .name("Product " + i)
+                        .description("Description " + i)
+                        .price(BigDecimal.valueOf(1000 + (i * 7) % 4 * 250, 2))
+                        .stockQuantity(5)
+                        .category(i % 2 == 0 ? "books" : "games")
+                        .imageUrl("https://example.com/" + i + ".png")
+                        .active(true)
+                        .build())
+                .toList());
+    }
+
+    @Test
+    void scrollingVisitsEveryProductOnceInSortOrder() throws Exception {
+        Comparator<Product> byId = Comparator.comparing(Product::getId);
+        assertThat(scrollAll("id", 5, null)).isEqualTo(ids(products.stream().sorted(byId).toList()));
+        assertThat(scrollAll("price", 4, null)).isEqualTo(ids(products.stream()
+                .sorted(Comparator.comparing(Product::getPrice).thenComparing(byId)).toList()));
+        assertThat(scrollAll("-price", 6, null)).isEqualTo(ids(products.stream()
+                .sorted(Comparator.comparing(Product::getPrice).thenComparing(byId).reversed()).toList()));
+        assertThat(scrollAll("newest", 7, null)).hasSize(products.size()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void productsWithoutACreationTimeComeLastWhenScrollingNewest() throws Exception {
+        // Imported rows may lack created_at; the rest share three timestamps, so ids break most ties
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        Map<Long, LocalDateTime> createdAt = new HashMap<>();
+        for (Product product : products) {
+            long id = product.getId();
+            createdAt.put(id, id % 4 == 0 ? null : base.plusDays(id % 3));
+            jdbcTemplate.update("update product set created_at = ? where id = ?", createdAt.get(id), id);
+        }
+
+        Comparator<Long> newestFirst = Comparator
+                .<Long, LocalDateTime>comparing(createdAt::get, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Comparator.naturalOrder())
+                .reversed();
+        for (int size : new int[]{2, 3, 5}) {
+            assertThat(scrollAll("newest", size, null)).isEqualTo(createdAt.keySet().stream().sorted(newestFirst).toList());
+        }
+    }
+
+    @Test
+    void filtersApplyAndTheLastStretchHasNoCursor() throws Exception {
+        List<Long> books = scrollAll("price", 5, "books");
+
+        assertThat(books).hasSize(12)
+                .containsExactlyInAnyOrderElementsOf(ids(products.stream().filter(p -> p.getCategory().equals("books")).toList()));
+        mockMvc.perform(get("/api/products/scroll").param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(23))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void aCursorOnlyWorksWithItsOwnSort() throws Exception {
+        String cursor = read(get("/api/products/scroll").param("sort", "price").param("size", "2")).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/products/scroll").param("sort", "newest").param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/scroll").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/scroll").param("sort", "name"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/scroll").param("size", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void pagesCanSkipTheCount() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        mockMvc.perform(get("/api/products").param("size", "5"))
+                .andExpect(jsonPath("$.totalElements").value(23));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        mockMvc.perform(get("/api/products").param("size", "5").param("page", "1").param("includeTotal", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private List<Long> scrollAll(String sort, int size, String category) throws Exception {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/products/scroll").param("sort", sort).param("size", String.valueOf(size));
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            if (category != null) {
+                request.param("category", category);
+            }
+            JsonNode page = read(request);
+            page.get("items").forEach(item -> seen.add(item.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private JsonNode read(MockHttpServletRequestBuilder request) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.product.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        index.put(1, "Garden hose", "garden", "Thirty metres, fits every phone charger drawer");
+        index.put(2, "Phone charger", "electronics", "Fast USB-C charger");
+        index.put(3, "Cable organiser", "office", "Keeps a phone charger cable tidy");
+
+        ProductSearchIndex.SearchHits hits = index.search("charger", 10);
+
+        assertThat(hits.total()).isEqualTo(3);
+        assertThat(hits.ids()[0]).isEqualTo(2);
+    }
+
+    @Test
+    void everyTermMustMatchAndInflectionsAreFolded() {
+        index.put(1, "Running shoes", "sport", "Light shoes for long runs");
+        index.put(2, "Walking shoe", "sport", "Waterproof");
+        index.put(3, "Batteries", "electronics", "AA, pack of 8");
+
+        assertThat(index.search("RUN shoe", 10).ids()).containsExactly(1);
+        assertThat(index.search("shoes", 10).ids()).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.search("battery", 10).ids()).containsExactly(3);
+        assertThat(index.search("shoe battery", 10).total()).isZero();
+        assertThat(index.search("  ", 10).total()).isZero();
+    }
+
+    @Test
+    void matchingIdsListEveryMatchUnranked() {
+        index.put(1, "Desk lamp", "lighting", "LED");
+        index.put(2, "Floor lamp", "lighting", "Desk-height reading light");
+        index.put(3, "Desk", "office", "Oak");
+        index.remove(3);
+
+        assertThat(index.matchingIds("lamps")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.matchingIds("desk")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.matchingIds("desk oak")).isEmpty();
+    }
+
+    @Test
+    void limitKeepsTheBestHitsButCountsAll() {
+        for (long id = 1; id <= 50; id++) {
+            index.put(id, "Lamp " + id, "lighting", id == 42 ? "lamp lamp lamp" : "Desk light");
+        }
+
+        ProductSearchIndex.SearchHits hits = index.search("lamp", 5);
+
+        assertThat(hits.total()).isEqualTo(50);
+        assertThat(hits.ids()).hasSize(5).startsWith(42L);
+        // Equal scores keep indexing order
+        assertThat(hits.ids()).containsSubsequence(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void replacedAndRemovedProductsDisappearAlsoAfterCompaction() {
+        for (long id = 1; id <= 5_000; id++) {
+            index.put(id, "Mug " + id, "kitchen", "Stoneware");
+        }
+        index.put(7, "Teapot", "kitchen", "Stoneware");
+        for (long id = 1_000; id <= 3_000; id++) {
+            index.remove(id);
+        }
+
+        assertThat(index.size()).isEqualTo(2_999);
+        assertThat(index.search("mug", 10_000).total()).isEqualTo(2_998);
+        assertThat(index.search("teapot", 10).ids()).containsExactly(7);
+        assertThat(index.search("stoneware", 10_000).ids()).doesNotContain(1_000L, 2_000L, 3_000L).contains(7L, 999L, 3_001L);
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.product.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextAnalyzerTest {
+
+    @Test
+    void splitsLowercasesAndStems() {
+        assertThat(TextAnalyzer.terms("Kid's Running-Shoes, size 38")).containsExactly("kid", "run", "shoe", "size", "38");
+        assertThat(TextAnalyzer.terms("Batteries & boxes")).containsExactly("battery", "box");
+        assertThat(TextAnalyzer.terms("Glass bus")).containsExactly("glass", "bus");
+        assertThat(TextAnalyzer.terms(null)).isEmpty();
+    }
+}
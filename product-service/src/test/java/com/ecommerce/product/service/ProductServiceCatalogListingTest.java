@@ -0,0 +1,96 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.product.catalog.ProductCatalog;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.specification.ProductSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.config.import=")
+@ActiveProfiles("test")
+class ProductServiceCatalogListingTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        // The catalog is loaded in the background after startup
+        for (int i = 0; i < 100 && !productCatalog.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(productCatalog.isReady()).isTrue();
+        productRepository.findAll().forEach(product -> productService.deleteProductById(product.getId()));
+    }
+
+    @Test
+    void listingsMatchTheDatabase() {
+        productService.createProduct(product("Desk lamp", "Lighting", "15.00"));
+        productService.createProduct(product("Floor lamp", "lighting", "45.00"));
+        Product oil = productService.createProduct(product("Lamp oil", "lighting", "8.00"));
+        productService.createProduct(product("Desk", "office", "120.00"));
+        productService.createProduct(product("Table LAMP", "lighting", "30.00"));
+        oil.setPrice(new BigDecimal("50.00"));
+        productService.updateProduct(oil, oil.getId());
+        // Saved by another instance: only its event reaches this one
+        Product remote = productRepository.save(product("Wall lamp", "lighting", "25.00"));
+        eventPublisher.publishEvent(new ProductChangedEvent(this, "product-service:8082:other", remote.getId(),
+                ProductChangedEvent.ChangeType.CREATED));
+
+        PageRequest page = PageRequest.of(1, 2);
+        Page<Product> listed = productService.filterProducts("LAMP ", " LIGHTING", null, new BigDecimal("40"), null, page);
+        Page<Product> expected = productRepository.findAll(
+                ProductSpecification.filter("LAMP ", " LIGHTING", null, new BigDecimal("40"), null), page.withSort(Sort.by("id")));
+
+        assertThat(listed.getTotalElements()).isEqualTo(expected.getTotalElements()).isEqualTo(3);
+        assertThat(listed.getContent()).extracting(Product::getId)
+                .containsExactlyElementsOf(expected.getContent().stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void sizeAndHeapAreMetered() {
+        productService.createProduct(product("Desk lamp", "lighting", "15.00"));
+        productService.createProduct(product("Desk", "office", "120.00"));
+
+        assertThat(meterRegistry.get("product.catalog.products").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("product.catalog.heap").gauge().value()).isPositive();
+    }
+
+    private static Product product(String name, String category, String price) {
+        return Product.builder()
+                .name(name)
+                .description(name)
+                .price(new BigDecimal(price))
+                .stockQuantity(5)
+                .category(category)
+                .imageUrl("https://example.com/p.png")
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.common.libraray.product.event.ProductChangedEvent;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.ecommerce.product.search.ProductSearch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.config.import=")
+@ActiveProfiles("test")
+class ProductServiceSearchTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearch productSearch;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        // The index is built in the background after startup
+        for (int i = 0; i < 100 && !productSearch.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(productSearch.isReady()).isTrue();
+        productRepository.findAll().forEach(product -> productService.deleteProductById(product.getId()));
+    }
+
+    @Test
+    void keywordResultsAreRankedAndPaged() {
+        Product kettle = productService.createProduct(product("Electric kettle", "kitchen", "1.7 litres", "30.00"));
+        productService.createProduct(product("Tea set", "kitchen", "Goes well with a kettle", "25.00"));
+        productService.createProduct(product("Kettlebell", "sport", "12 kg", "40.00"));
+
+        Page<Product> first = productService.filterProducts(null, null, null, null, "kettles", PageRequest.of(0, 1));
+        Page<Product> second = productService.filterProducts(null, null, null, null, "kettles", PageRequest.of(1, 1));
+
+        assertThat(first.getTotalElements()).isEqualTo(2);
+        assertThat(first.getContent()).extracting(Product::getId).containsExactly(kettle.getId());
+        assertThat(second.getContent()).extracting(Product::getName).containsExactly("Tea set");
+    }
+
+    @Test
+    void otherFiltersStillApply() {
+        productService.createProduct(product("Oak desk", "office", "Solid oak", "300.00"));
+        productService.createProduct(product("Oak shelf", "living", "Solid oak", "90.00"));
+        productService.createProduct(product("Oak stool", "office", "Solid oak", "60.00"));
+
+        Page<Product> page = productService.filterProducts(null, "office", null, new BigDecimal("100"), "oak",
+                PageRequest.of(0, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent()).extracting(Product::getName).containsExactly("Oak stool");
+    }
+
+    @Test
+    void writesAreVisibleToTheNextSearch() {
+        Product lamp = productService.createProduct(product("Desk lamp", "office", "LED", "20.00"));
+        assertThat(search("lamp")).isEqualTo(1);
+
+        lamp.setName("Desk light");
+        productService.updateProduct(lamp, lamp.getId());
+        assertThat(search("lamp")).isZero();
+        assertThat(search("light")).isEqualTo(1);
+
+        productService.deleteProductById(lamp.getId());
+        assertThat(search("light")).isZero();
+    }
+
+    @Test
+    void changesFromOtherInstancesAreReadBack() {
+        Product rug = productRepository.save(product("Wool rug", "living", "Hand woven", "150.00"));
+        assertThat(search("rug")).isZero();
+
+        eventPublisher.publishEvent(new ProductChangedEvent(this, "product-service:8082:other", rug.getId(),
+                ProductChangedEvent.ChangeType.CREATED));
+
+        assertThat(search("rug")).isEqualTo(1);
+    }
+
+    private long search(String keyword) {
+        return productService.filterProducts(null, null, null, null, keyword, PageRequest.of(0, 10)).getTotalElements();
+    }
+
+    private static Product product(String name, String category, String description, String price) {
+        return Product.builder()
+                .name(name)
+                .category(category)
+                .description(description)
+                .price(new BigDecimal(price))
+                .stockQuantity(10)
+                .imageUrl("https://example.com/p.png")
+                .active(true)
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.ecommerce.user.exception;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -127,6 +128,11 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(DatabaseOperationException.class)
     public ResponseEntity<Map<String, Object>> handleDatabaseError(DatabaseOperationException ex) {
+        // 503 – no Mongo connection became free within mongodb.pool.max-wait
+        if (ex.getCause() instanceof DataAccessResourceFailureException) {
+            log.warn("No database connection available: {}", ex.getCause().getMessage());
+            return buildResponse("Service busy, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+        }
         log.error("Database operation error", ex);
         return buildResponse(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }